@@ -0,0 +1,41 @@
+package org.example.benchmarks;
+
+import org.example.game.ChessGame;
+import org.example.game.Move;
+import org.example.game.Position;
+
+/**
+ * The positions every benchmark runs on, one per game phase, each with a legal quiet move of
+ * the side to move so movePiece has something to play.
+ */
+public enum BenchmarkPositions {
+    OPENING("r1bqkbnr/1ppp1ppp/p1n5/1B2p3/4P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 0 4", "b5a4"),
+    MIDDLEGAME("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", "f3h4"),
+    ENDGAME("8/5k2/3p4/1p1Pp2p/pP2Pp1P/P4P1K/8/8 b - - 0 50", "f7e7");
+
+    private final String fen;
+    private final String quietMove;
+
+    BenchmarkPositions(String fen, String quietMove) {
+        this.fen = fen;
+        this.quietMove = quietMove;
+    }
+
+    /**
+     * A game seen from White's side with this position on the board.
+     */
+    ChessGame createGame() {
+        ChessGame game = new ChessGame(true, null);
+        game.loadFen(fen);
+        return game;
+    }
+
+    Move quietMove() {
+        return new Move(Position.of(parseSquare(quietMove.substring(0, 2))),
+                Position.of(parseSquare(quietMove.substring(2, 4))));
+    }
+
+    private static int parseSquare(String name) {
+        return (name.charAt(1) - '1') * 8 + (name.charAt(0) - 'a');
+    }
+}
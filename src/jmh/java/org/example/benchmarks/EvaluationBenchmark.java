@@ -0,0 +1,64 @@
+package org.example.benchmarks;
+
+import org.example.engine.Evaluation;
+import org.example.engine.Evaluator;
+import org.example.game.BitboardPosition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Static evaluations per second. The pawn cache is warm after the first call, as it mostly is
+ * during a search, where the pawns rarely change between neighbouring nodes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EvaluationBenchmark {
+    @Param({ "OPENING", "MIDDLEGAME", "ENDGAME" })
+    public BenchmarkPositions position;
+
+    private BitboardPosition board;
+    private Evaluator evaluator;
+
+    @Setup
+    public void setUp() {
+        board = position.createGame().getBoard().getBitboardPosition();
+        evaluator = new Evaluator();
+    }
+
+    @Benchmark
+    public int evaluate() {
+        return evaluator.evaluate(board);
+    }
+
+    // Every term from scratch and without the pawn cache, as debugging output does it
+    @Benchmark
+    public Evaluation explain() {
+        return evaluator.explain(board);
+    }
+
+    // What the material and piece-square terms would cost without the incremental sum
+    @Benchmark
+    public int computePieceSquareScore() {
+        return board.computePieceSquareScore();
+    }
+
+    @Benchmark
+    public int pieceSquareScore() {
+        return board.getPieceSquareScore();
+    }
+}
@@ -0,0 +1,120 @@
+package org.example.benchmarks;
+
+import org.example.game.ChessBoard;
+import org.example.game.ChessGame;
+import org.example.game.Move;
+import org.example.game.Piece;
+import org.example.game.PieceColor;
+import org.example.game.Position;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the game-level move rules. Run with -prof gc (the jmh profile does) to see
+ * bytes allocated per operation next to the scores.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoveGenerationBenchmark {
+    @Param({ "OPENING", "MIDDLEGAME", "ENDGAME" })
+    public BenchmarkPositions position;
+
+    private ChessGame game;
+    private ChessBoard board;
+    private PieceColor sideToMove;
+    private Move quietMove;
+    private Position[] ownPieces;
+    private Position[] allSquares;
+
+    @Setup
+    public void setUp() {
+        game = position.createGame();
+        board = game.getBoard();
+        sideToMove = game.getSideToMove();
+        quietMove = position.quietMove();
+
+        List<Position> own = new ArrayList<>();
+        allSquares = new Position[64];
+        for (int row = 0; row < 8; row++) {
+            for (int column = 0; column < 8; column++) {
+                allSquares[row * 8 + column] = Position.of(row, column);
+                Piece piece = board.getPiece(row, column);
+                if (piece != null && piece.getColor() == sideToMove) {
+                    own.add(Position.of(row, column));
+                }
+            }
+        }
+        ownPieces = own.toArray(new Position[0]);
+    }
+
+    // Every piece of the side to move, as the GUI does when highlighting
+    @Benchmark
+    public void getLegalMovesForPieceAt(Blackhole blackhole) {
+        for (Position square : ownPieces) {
+            blackhole.consume(game.getLegalMovesForPieceAt(square));
+        }
+    }
+
+    // The same through the square-index API: gc.alloc.rate.norm should read 0 B/op
+    @Benchmark
+    public void getLegalTargets(Blackhole blackhole) {
+        for (Position square : ownPieces) {
+            blackhole.consume(game.getLegalTargets(square.getSquare()));
+        }
+    }
+
+    // Interned positions: the lookups allocate nothing either
+    @Benchmark
+    public void positionLookup(Blackhole blackhole) {
+        for (int square = 0; square < 64; square++) {
+            blackhole.consume(Position.of(square));
+        }
+    }
+
+    @Benchmark
+    public boolean isInCheck() {
+        return game.isInCheck(sideToMove);
+    }
+
+    @Benchmark
+    public boolean isCheckmate() {
+        return game.isCheckmate(sideToMove);
+    }
+
+    // Each piece of the side to move against every square on the board
+    @Benchmark
+    public void isValidMove(Blackhole blackhole) {
+        Piece[][] grid = board.getBoard();
+        for (Position square : ownPieces) {
+            Piece piece = grid[square.getRow()][square.getColumn()];
+            for (Position target : allSquares) {
+                blackhole.consume(piece.isValidMove(target, grid));
+            }
+        }
+    }
+
+    // Taken back straight away, so every invocation starts from the same position
+    @Benchmark
+    public void movePiece() {
+        board.movePiece(quietMove);
+        board.unmakeMove();
+    }
+}
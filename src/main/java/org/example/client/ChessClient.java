@@ -1,38 +1,53 @@
 package org.example.client;
 
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import org.example.protocol.Message;
+import org.example.protocol.MessageListener;
+import org.example.protocol.MessageReader;
+import org.example.protocol.MessageWriter;
+
+import java.io.EOFException;
 import java.net.Socket;
 import java.io.IOException;
 
-public class ChessClient {
+/**
+ * Client side of ChessServer. Received messages are handed to the listener on the receive thread,
+ * which is a virtual thread unless platform threads are asked for. close() disconnects and waits
+ * for that thread to finish, so no callback runs after it returns.
+ */
+public class ChessClient implements AutoCloseable {
     private Socket socket;
-    private ObjectOutputStream out; // For sending data
-    private ObjectInputStream in;  // For receiving data
+    private MessageWriter out; // For sending data
     private String serverAddress;
     private int serverPort;
+    private final MessageListener listener;
+    private final boolean virtualThreads;
+    private Thread receiveThread;
+    private volatile boolean closed;
 
     public ChessClient(String address, int port) {
+        this(address, port, message -> System.out.println("Client received: " + message), true);
+    }
+
+    public ChessClient(String address, int port, MessageListener listener, boolean virtualThreads) {
         this.serverAddress = address;
         this.serverPort = port;
+        this.listener = listener;
+        this.virtualThreads = virtualThreads;
     }
 
     public boolean connect() {
         try {
             socket = new Socket(serverAddress, serverPort);
+            socket.setTcpNoDelay(true);
             System.out.println("Connected to server: " + serverAddress);
 
             // Initialize output and input streams
-            // IMPORTANT: Initialize ObjectOutputStream first on both client and server
-            out = new ObjectOutputStream(socket.getOutputStream());
-            in = new ObjectInputStream(socket.getInputStream());
-
-            // Start a new thread to listen for incoming messages from the server
-            new Thread(new ServerHandler(in)).start();
-
-            // You'll need to integrate this with your game logic
-            // e.g., disable local input if it's not your turn
+            out = new MessageWriter(socket.getOutputStream());
+            MessageReader in = new MessageReader(socket.getInputStream());
 
+            // Listen for incoming messages from the server on a thread of its own
+            Thread.Builder builder = virtualThreads ? Thread.ofVirtual() : Thread.ofPlatform().daemon(true);
+            receiveThread = builder.name("ChessClientReceiver").start(new ServerHandler(in));
             return true;
         } catch (IOException e) {
             System.err.println("Error connecting to server: " + e.getMessage());
@@ -41,56 +56,63 @@ public class ChessClient {
         }
     }
 
-    public void sendMove(Object moveData) { // moveData could be your custom class
+    public void sendMove(int move) { // Packed move, see BitboardPosition.encodeMove
+        send(Message.move(move));
+    }
+
+    public void send(Message message) {
         try {
             if (out != null) {
-                out.writeObject(moveData);
-                out.flush(); // Ensure data is sent immediately
+                out.send(message);
             }
         } catch (IOException e) {
-            System.err.println("Error sending move: " + e.getMessage());
+            System.err.println("Error sending message: " + e.getMessage());
         }
     }
 
-    // Method to close connections
-    public void disconnect() {
+    /**
+     * Disconnects and waits for the receive thread to end. Safe to call more than once.
+     */
+    @Override
+    public void close() {
+        closed = true;
         try {
-            if (in != null) in.close();
-            if (out != null) out.close();
-            if (socket != null) socket.close();
+            if (socket != null) socket.close(); // Unblocks the receive thread
         } catch (IOException e) {
             System.err.println("Error disconnecting from server: " + e.getMessage());
         }
+        if (receiveThread != null && receiveThread != Thread.currentThread()) {
+            try {
+                receiveThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
     }
+
     // Inner class to handle messages from the server
     private class ServerHandler implements Runnable {
-        private ObjectInputStream serverIn;
+        private MessageReader serverIn;
 
-        public ServerHandler(ObjectInputStream in) {
+        public ServerHandler(MessageReader in) {
             this.serverIn = in;
         }
 
         @Override
         public void run() {
             try {
-                Object receivedData;
-                while ((receivedData = serverIn.readObject()) != null) {
-                    // TODO: Process the received move data from the server
-                    // This will likely involve:
-                    // 1. Deserializing receivedData to your Move object/data structure
-                    // 2. Validating the move (optional, server should be authoritative)
-                    // 3. Updating your local game board
-                    // 4. Refreshing the GUI
-                    // 5. Enabling local input for your turn
-                    System.out.println("Client received move: " + receivedData);
-                    // Example: ((ChessGame) yourGameInstance).processOpponentMove(receivedData);
+                while (true) {
+                    listener.onMessage(serverIn.read());
+                }
+            } catch (EOFException e) {
+                System.out.println("Server disconnected");
+            } catch (IOException e) {
+                if (!closed) {
+                    System.err.println("Error receiving data from server or server disconnected: " + e.getMessage());
                 }
-            } catch (IOException | ClassNotFoundException e) {
-                System.err.println("Error receiving data from server or server disconnected: " + e.getMessage());
-                // Handle server disconnection
             } finally {
-                disconnect();
+                close();
             }
         }
     }
-}
\ No newline at end of file
+}
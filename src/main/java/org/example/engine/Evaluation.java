@@ -0,0 +1,74 @@
+package org.example.engine;
+
+import org.example.game.BitboardPosition;
+import org.example.game.PieceSquareTables;
+
+/**
+ * The terms behind one static evaluation, for debugging the evaluation rather than for search:
+ * what each term gives each side in the middlegame and the endgame, the game phase that blends
+ * them, and the final score. Made by Evaluator.explain.
+ */
+public final class Evaluation {
+    public enum Term {
+        MATERIAL,
+        PIECE_SQUARES,
+        MOBILITY,
+        PAWNS,
+        KING_SAFETY
+    }
+
+    private final int[][] scores = new int[Term.values().length][2]; // Packed, each side from its own view
+    private int phase;
+    private int score;
+
+    Evaluation() {
+    }
+
+    void add(Term term, int color, int score) {
+        scores[term.ordinal()][color] += score;
+    }
+
+    void setResult(int phase, int score) {
+        this.phase = phase;
+        this.score = score;
+    }
+
+    public int getMiddlegame(Term term, int color) {
+        return PieceSquareTables.middlegame(scores[term.ordinal()][color]);
+    }
+
+    public int getEndgame(Term term, int color) {
+        return PieceSquareTables.endgame(scores[term.ordinal()][color]);
+    }
+
+    // What the term is worth to White after tapering by the phase
+    public int getTapered(Term term) {
+        int packed = scores[term.ordinal()][BitboardPosition.WHITE] - scores[term.ordinal()][BitboardPosition.BLACK];
+        return Evaluator.taper(packed, phase);
+    }
+
+    // From MAX_PHASE with every piece on the board down to 0 with only kings and pawns
+    public int getPhase() {
+        return phase;
+    }
+
+    // In centipawns from the side to move's point of view, as Evaluator.evaluate returns it
+    public int getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("%-14s %13s %13s %7s%n", "term", "white mg/eg", "black mg/eg", "total"));
+        for (Term term : Term.values()) {
+            text.append(String.format("%-14s %6d %6d %6d %6d %7d%n", term.name().toLowerCase(),
+                    getMiddlegame(term, BitboardPosition.WHITE), getEndgame(term, BitboardPosition.WHITE),
+                    getMiddlegame(term, BitboardPosition.BLACK), getEndgame(term, BitboardPosition.BLACK),
+                    getTapered(term)));
+        }
+        text.append("phase ").append(phase).append('/').append(Evaluator.MAX_PHASE)
+                .append(", score ").append(score).append(" for the side to move");
+        return text.toString();
+    }
+}
@@ -0,0 +1,259 @@
+package org.example.engine;
+
+import org.example.game.BitboardPosition;
+import org.example.game.Bitboards;
+import org.example.game.PieceSquareTables;
+
+import static org.example.game.PieceSquareTables.endgame;
+import static org.example.game.PieceSquareTables.middlegame;
+import static org.example.game.PieceSquareTables.pack;
+
+/**
+ * Static evaluation, tapered between a middlegame and an endgame score by the material left:
+ * material and piece-square values (summed incrementally by BitboardPosition), mobility, pawn
+ * structure and king safety. Scores are in centipawns from the point of view of the side to move.
+ * <p>
+ * Pawn structure depends on the pawns alone, so its score is cached by the position's pawn key.
+ * The cache belongs to this instance, so each search thread needs its own Evaluator.
+ */
+public class Evaluator {
+    public static final int[] PIECE_VALUES = { 100, 320, 330, 500, 900, 0 };
+    public static final int MAX_PHASE = 24;
+
+    private static final int[] PHASE_WEIGHTS = { 0, 1, 1, 2, 4, 0 };
+
+    // Per square a piece can reach beyond the first few, which most pieces have anyway
+    private static final int[] MOBILITY_WEIGHTS = { 0, pack(4, 4), pack(5, 5), pack(2, 4), pack(1, 2), 0 };
+    private static final int[] MOBILITY_BASELINE = { 0, 4, 6, 6, 12, 0 };
+
+    private static final int DOUBLED_PAWN = pack(-10, -20);
+    private static final int ISOLATED_PAWN = pack(-10, -15);
+    private static final int[] PASSED_PAWN = { // By rank from the pawn's own side
+            0, pack(0, 10), pack(5, 15), pack(10, 25), pack(20, 40), pack(35, 65), pack(55, 100), 0 };
+
+    // Pawns in front of the king, on its file and the two next to it
+    private static final int[] SHELTER = { pack(-15, 0), pack(15, 0), pack(8, 0) }; // None, one rank ahead, two
+    private static final int[] ATTACK_UNITS = { 0, 2, 2, 3, 5, 0 };
+    private static final int MAX_KING_DANGER = 500;
+
+    private static final long[] FILES = new long[8];
+    private static final long[] ADJACENT_FILES = new long[8];
+    private static final long[][] PASSED_MASKS = new long[2][64]; // Squares enemy pawns must not hold
+
+    static {
+        for (int file = 0; file < 8; file++) {
+            FILES[file] = Bitboards.FILE_A << file;
+            ADJACENT_FILES[file] = (file > 0 ? Bitboards.FILE_A << (file - 1) : 0)
+                    | (file < 7 ? Bitboards.FILE_A << (file + 1) : 0);
+        }
+        for (int square = 0; square < 64; square++) {
+            long span = FILES[square & 7] | ADJACENT_FILES[square & 7];
+            int rank = square >>> 3;
+            PASSED_MASKS[BitboardPosition.WHITE][square] = rank == 7 ? 0 : span & (-1L << (8 * (rank + 1)));
+            PASSED_MASKS[BitboardPosition.BLACK][square] = span & ((1L << (8 * rank)) - 1);
+        }
+    }
+
+    private final long[] pawnKeys;
+    private final int[] pawnScores;
+    private final int pawnMask;
+    private long pawnHits;
+    private long pawnMisses;
+    private final int[] attackUnits = new int[2]; // On the enemy king zone, by attacking side
+    private final int[] attackers = new int[2];
+
+    public Evaluator() {
+        this(1 << 14);
+    }
+
+    public Evaluator(int pawnCacheEntries) {
+        int entries = Integer.highestOneBit(Math.max(1, pawnCacheEntries));
+        // A zeroed entry holds the correct score, 0, for the key of a board without pawns
+        this.pawnKeys = new long[entries];
+        this.pawnScores = new int[entries];
+        this.pawnMask = entries - 1;
+    }
+
+    public int evaluate(BitboardPosition position) {
+        return evaluate(position, null);
+    }
+
+    /**
+     * Evaluates the position term by term. Slower than evaluate, and bypasses the pawn cache.
+     */
+    public Evaluation explain(BitboardPosition position) {
+        Evaluation evaluation = new Evaluation();
+        int score = evaluate(position, evaluation);
+        evaluation.setResult(phase(position), score);
+        return evaluation;
+    }
+
+    public long getPawnCacheHits() {
+        return pawnHits;
+    }
+
+    public long getPawnCacheMisses() {
+        return pawnMisses;
+    }
+
+    // 24 with all minor and major pieces on the board, 0 with only kings and pawns
+    public static int phase(BitboardPosition position) {
+        int phase = 0;
+        for (int type = BitboardPosition.KNIGHT; type <= BitboardPosition.QUEEN; type++) {
+            phase += PHASE_WEIGHTS[type] * Long.bitCount(position.pieces(BitboardPosition.WHITE, type)
+                    | position.pieces(BitboardPosition.BLACK, type));
+        }
+        return Math.min(phase, MAX_PHASE);
+    }
+
+    static int taper(int score, int phase) {
+        return (middlegame(score) * phase + endgame(score) * (MAX_PHASE - phase)) / MAX_PHASE;
+    }
+
+    private int evaluate(BitboardPosition position, Evaluation trace) {
+        int score = position.getPieceSquareScore();
+        if (trace != null) {
+            tracePieceSquares(position, trace);
+            score += pawnScore(position, BitboardPosition.WHITE, trace) - pawnScore(position, BitboardPosition.BLACK, trace);
+        } else {
+            score += cachedPawnScore(position);
+        }
+        score += mobility(position, BitboardPosition.WHITE, trace) - mobility(position, BitboardPosition.BLACK, trace);
+        score += kingSafety(position, BitboardPosition.WHITE, trace) - kingSafety(position, BitboardPosition.BLACK, trace);
+        int tapered = taper(score, phase(position));
+        return position.getSideToMove() == BitboardPosition.WHITE ? tapered : -tapered;
+    }
+
+    private void tracePieceSquares(BitboardPosition position, Evaluation trace) {
+        for (long pieces = position.occupied(); pieces != 0; pieces &= pieces - 1) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            int piece = position.pieceAt(square);
+            int color = BitboardPosition.colorOf(piece);
+            int sign = color == BitboardPosition.WHITE ? 1 : -1; // The tables count Black negative
+            trace.add(Evaluation.Term.MATERIAL, color, sign * PieceSquareTables.materialScore(piece));
+            trace.add(Evaluation.Term.PIECE_SQUARES, color, sign * PieceSquareTables.squareScore(piece, square));
+        }
+    }
+
+    private int cachedPawnScore(BitboardPosition position) {
+        long key = position.getPawnKey();
+        int slot = (int) key & pawnMask;
+        if (pawnKeys[slot] == key) {
+            pawnHits++;
+            return pawnScores[slot];
+        }
+        pawnMisses++;
+        int score = pawnScore(position, BitboardPosition.WHITE, null) - pawnScore(position, BitboardPosition.BLACK, null);
+        pawnKeys[slot] = key;
+        pawnScores[slot] = score;
+        return score;
+    }
+
+    // Doubled, isolated and passed pawns of one side, from that side's point of view
+    private static int pawnScore(BitboardPosition position, int color, Evaluation trace) {
+        long ours = position.pieces(color, BitboardPosition.PAWN);
+        long theirs = position.pieces(color ^ 1, BitboardPosition.PAWN);
+        int score = 0;
+        for (int file = 0; file < 8; file++) {
+            int count = Long.bitCount(ours & FILES[file]);
+            if (count > 1) {
+                score += (count - 1) * DOUBLED_PAWN;
+            }
+        }
+        for (long pawns = ours; pawns != 0; pawns &= pawns - 1) {
+            int square = Long.numberOfTrailingZeros(pawns);
+            if ((ours & ADJACENT_FILES[square & 7]) == 0) {
+                score += ISOLATED_PAWN;
+            }
+            if ((theirs & PASSED_MASKS[color][square]) == 0) {
+                score += PASSED_PAWN[color == BitboardPosition.WHITE ? square >>> 3 : 7 - (square >>> 3)];
+            }
+        }
+        if (trace != null) {
+            trace.add(Evaluation.Term.PAWNS, color, score);
+        }
+        return score;
+    }
+
+    /**
+     * Squares each piece attacks that are neither held by its own side nor guarded by an enemy
+     * pawn. Also counts the attacks on the enemy king zone for kingSafety.
+     */
+    private int mobility(BitboardPosition position, int color, Evaluation trace) {
+        int them = color ^ 1;
+        long occupied = position.occupied();
+        long enemyPawns = position.pieces(them, BitboardPosition.PAWN);
+        long pawnGuarded = them == BitboardPosition.WHITE
+                ? ((enemyPawns << 7) & ~Bitboards.FILE_H) | ((enemyPawns << 9) & ~Bitboards.FILE_A)
+                : ((enemyPawns >>> 9) & ~Bitboards.FILE_H) | ((enemyPawns >>> 7) & ~Bitboards.FILE_A);
+        long area = ~position.occupancy(color) & ~pawnGuarded;
+        int enemyKing = position.kingSquare(them);
+        long kingZone = enemyKing == BitboardPosition.NO_SQUARE ? 0
+                : Bitboards.kingAttacks(enemyKing) | Bitboards.bit(enemyKing);
+        int score = 0;
+        int units = 0;
+        int count = 0;
+        for (int type = BitboardPosition.KNIGHT; type <= BitboardPosition.QUEEN; type++) {
+            for (long pieces = position.pieces(color, type); pieces != 0; pieces &= pieces - 1) {
+                int square = Long.numberOfTrailingZeros(pieces);
+                long attacks = attacks(type, square, occupied);
+                score += (Long.bitCount(attacks & area) - MOBILITY_BASELINE[type]) * MOBILITY_WEIGHTS[type];
+                if ((attacks & kingZone) != 0) {
+                    units += ATTACK_UNITS[type] * Long.bitCount(attacks & kingZone);
+                    count++;
+                }
+            }
+        }
+        attackUnits[color] = units;
+        attackers[color] = count;
+        if (trace != null) {
+            trace.add(Evaluation.Term.MOBILITY, color, score);
+        }
+        return score;
+    }
+
+    private static long attacks(int type, int square, long occupied) {
+        switch (type) {
+            case BitboardPosition.KNIGHT:
+                return Bitboards.knightAttacks(square);
+            case BitboardPosition.BISHOP:
+                return Bitboards.bishopAttacks(square, occupied);
+            case BitboardPosition.ROOK:
+                return Bitboards.rookAttacks(square, occupied);
+            default:
+                return Bitboards.queenAttacks(square, occupied);
+        }
+    }
+
+    // Pawn shelter in front of the king, less the danger from enemy pieces attacking around it.
+    // Needs mobility to have run for the other side first
+    private int kingSafety(BitboardPosition position, int color, Evaluation trace) {
+        int king = position.kingSquare(color);
+        if (king == BitboardPosition.NO_SQUARE) {
+            return 0;
+        }
+        long pawns = position.pieces(color, BitboardPosition.PAWN);
+        int kingFile = king & 7;
+        int kingRank = king >>> 3;
+        int score = 0;
+        for (int file = Math.max(0, kingFile - 1); file <= Math.min(7, kingFile + 1); file++) {
+            long shield = pawns & FILES[file] & PASSED_MASKS[color][king];
+            int distance = 0;
+            if (shield != 0) {
+                int nearest = color == BitboardPosition.WHITE
+                        ? Long.numberOfTrailingZeros(shield) : 63 - Long.numberOfLeadingZeros(shield);
+                distance = Math.abs((nearest >>> 3) - kingRank);
+            }
+            score += SHELTER[distance <= 2 ? distance : 0];
+        }
+        int them = color ^ 1;
+        if (attackers[them] >= 2) {
+            int units = attackUnits[them];
+            score -= pack(Math.min(2 * units * units, MAX_KING_DANGER), 0);
+        }
+        if (trace != null) {
+            trace.add(Evaluation.Term.KING_SAFETY, color, score);
+        }
+        return score;
+    }
+}
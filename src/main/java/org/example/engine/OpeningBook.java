@@ -0,0 +1,136 @@
+package org.example.engine;
+
+import org.example.game.BitboardPosition;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only opening book: a file of 16-byte entries (Zobrist key, packed move, weight) sorted by
+ * key, memory-mapped and searched by binary search. A probe touches about log2(entries) cache
+ * lines and allocates nothing, so the engine can answer a book position in well under a
+ * microsecond and skip its search. Build the file with OpeningBookBuilder.
+ * <p>
+ * The whole book is one mapping, which limits it to 2 GB, about 130 million entries. Safe for
+ * any number of threads.
+ */
+public class OpeningBook implements AutoCloseable {
+    static final long MAGIC = 0x4348534F424B31L; // "CHSOBK1"
+    static final int HEADER_BYTES = 16; // magic, entry count
+    static final int ENTRY_BYTES = 16; // key, move (16 bits), unused (16), weight (32)
+    public static final int NO_MOVE = 0;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer entries;
+    private final int entryCount;
+
+    private OpeningBook(FileChannel channel) throws IOException {
+        this.channel = channel;
+        if (channel.size() > Integer.MAX_VALUE) {
+            throw new IOException("Opening book larger than 2 GB");
+        }
+        this.entries = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        if (channel.size() < HEADER_BYTES || entries.getLong(0) != MAGIC) {
+            throw new IOException("Not an opening book");
+        }
+        long count = entries.getLong(8);
+        if (HEADER_BYTES + count * ENTRY_BYTES > channel.size()) {
+            throw new IOException("Opening book is truncated");
+        }
+        this.entryCount = (int) count;
+    }
+
+    public static OpeningBook open(Path file) throws IOException {
+        return new OpeningBook(FileChannel.open(file, StandardOpenOption.READ));
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Copies the book moves for a position and their weights into the arrays, heaviest first, and
+     * returns how many there are. The moves are not checked against the position.
+     */
+    public int probe(long key, int[] moves, int[] weights) {
+        int count = 0;
+        for (int entry = firstEntry(key); entry < entryCount && keyAt(entry) == key && count < moves.length; entry++) {
+            moves[count] = moveAt(entry);
+            weights[count++] = weightAt(entry);
+        }
+        return count;
+    }
+
+    /**
+     * A book move for the position chosen at random in proportion to its weight, or NO_MOVE when
+     * the position is not in the book. random must lie in [0, 1). Moves that are not legal in the
+     * position, which only a key collision can produce, are never returned.
+     */
+    public int pickMove(BitboardPosition position, double random) {
+        long key = position.getZobristKey();
+        int first = firstEntry(key);
+        long totalWeight = 0;
+        int end = first;
+        for (; end < entryCount && keyAt(end) == key; end++) {
+            if (position.isLegalMove(moveAt(end))) {
+                totalWeight += weightAt(end);
+            }
+        }
+        long target = (long) (random * totalWeight);
+        for (int entry = first; entry < end; entry++) {
+            if (position.isLegalMove(moveAt(entry))) {
+                target -= weightAt(entry);
+                if (target < 0) {
+                    return moveAt(entry);
+                }
+            }
+        }
+        return NO_MOVE;
+    }
+
+    // The most played legal book move, or NO_MOVE
+    public int bestMove(BitboardPosition position) {
+        long key = position.getZobristKey();
+        for (int entry = firstEntry(key); entry < entryCount && keyAt(entry) == key; entry++) {
+            if (position.isLegalMove(moveAt(entry))) {
+                return moveAt(entry); // Entries of one key are sorted by weight
+            }
+        }
+        return NO_MOVE;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Lower bound: the first entry whose key is not below key
+    private int firstEntry(long key) {
+        int low = 0;
+        int high = entryCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keyAt(middle) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long keyAt(int entry) {
+        return entries.getLong(HEADER_BYTES + entry * ENTRY_BYTES);
+    }
+
+    private int moveAt(int entry) {
+        return entries.getShort(HEADER_BYTES + entry * ENTRY_BYTES + 8) & 0xFFFF;
+    }
+
+    private int weightAt(int entry) {
+        return entries.getInt(HEADER_BYTES + entry * ENTRY_BYTES + 12);
+    }
+}
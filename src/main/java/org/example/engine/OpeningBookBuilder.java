@@ -0,0 +1,279 @@
+package org.example.engine;
+
+import org.example.game.BitboardPosition;
+import org.example.pgn.ParallelPgnReader;
+import org.example.pgn.PgnGame;
+import org.example.pgn.PgnReader;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds an OpeningBook from games. Every (position, move) pair of the first maxPly plies is
+ * counted, weighted by how the game went for the side that played it: 2 for a win, 1 for a draw
+ * or unknown result, 0 for a loss.
+ * <p>
+ * Counts are kept in an open-addressing table of primitive arrays, so ingesting costs no
+ * allocation per move. When the table fills up, pairs with a weight of 2 or less are dropped: no
+ * more than one win, two draws, or only losses so far. They would rarely survive the minimum
+ * weight anyway, and it keeps memory fixed for archives of any size.
+ * <pre>
+ * OpeningBookBuilder &lt;book&gt; &lt;file.pgn&gt;... [--plies n] [--min-weight n] [--threads n]
+ * </pre>
+ */
+public class OpeningBookBuilder {
+    private static final double MAX_LOAD = 0.75;
+
+    private final int maxPly;
+    private final long[] keys;
+    private final int[] moves; // Packed move + 1, 0 marks an empty slot
+    private final int[] weights;
+    private final int mask;
+    private int size;
+    private final BitboardPosition position = new BitboardPosition();
+
+    /**
+     * @param maxEntries how many (position, move) pairs may be counted at once; each takes about 21 bytes
+     */
+    public OpeningBookBuilder(int maxPly, int maxEntries) {
+        long slots = Math.max(2, (long) Math.ceil(maxEntries / MAX_LOAD));
+        int capacity = (int) Math.min(1 << 30, Long.highestOneBit(slots - 1) << 1);
+        this.maxPly = maxPly;
+        this.keys = new long[capacity];
+        this.moves = new int[capacity];
+        this.weights = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+    public void addGame(PgnGame game) {
+        int whiteWeight;
+        switch (game.getResult()) {
+            case "1-0":
+                whiteWeight = 2;
+                break;
+            case "0-1":
+                whiteWeight = 0;
+                break;
+            default:
+                whiteWeight = 1;
+        }
+        game.setUp(position);
+        int plies = Math.min(maxPly, game.getMoveCount());
+        for (int ply = 0; ply < plies; ply++) {
+            int move = game.getMove(ply);
+            int weight = position.getSideToMove() == BitboardPosition.WHITE ? whiteWeight : 2 - whiteWeight;
+            add(position.getZobristKey(), move, weight);
+            position.makeMove(move);
+        }
+    }
+
+    // Number of distinct (position, move) pairs counted so far
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Writes the pairs with at least minWeight to a book file, sorted by key and within a key by
+     * weight, heaviest first. Returns the number of entries written.
+     */
+    public int write(Path file, int minWeight) throws IOException {
+        int count = 0;
+        for (int slot = 0; slot <= mask; slot++) {
+            if (moves[slot] != 0 && weights[slot] >= Math.max(1, minWeight)) {
+                count++;
+            }
+        }
+        long[] bookKeys = new long[count];
+        int[] bookMoves = new int[count];
+        int[] bookWeights = new int[count];
+        int entry = 0;
+        for (int slot = 0; slot <= mask; slot++) {
+            if (moves[slot] != 0 && weights[slot] >= Math.max(1, minWeight)) {
+                bookKeys[entry] = keys[slot];
+                bookMoves[entry] = moves[slot] - 1;
+                bookWeights[entry++] = weights[slot];
+            }
+        }
+        sort(bookKeys, bookMoves, bookWeights, 0, count - 1);
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+            out.writeLong(OpeningBook.MAGIC);
+            out.writeLong(count);
+            for (int i = 0; i < count; i++) {
+                out.writeLong(bookKeys[i]);
+                out.writeShort(bookMoves[i]);
+                out.writeShort(0);
+                out.writeInt(bookWeights[i]);
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        return count;
+    }
+
+    private void add(long key, int move, int weight) {
+        if (size >= (mask + 1) * MAX_LOAD) {
+            dropLightPairs();
+        }
+        int slot = slot(key, move);
+        while (moves[slot] != 0) {
+            if (keys[slot] == key && moves[slot] == move + 1) {
+                weights[slot] = (int) Math.min(Integer.MAX_VALUE, (long) weights[slot] + weight);
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        moves[slot] = move + 1;
+        weights[slot] = weight;
+        size++;
+    }
+
+    // Removes every pair with weight 2 or less, however many games played it, and rehashes in place
+    private void dropLightPairs() {
+        int threshold = 2;
+        while (true) {
+            int kept = 0;
+            for (int slot = 0; slot <= mask; slot++) {
+                if (moves[slot] != 0 && weights[slot] > threshold) {
+                    kept++;
+                }
+            }
+            if (kept < (mask + 1) * MAX_LOAD / 2) {
+                break;
+            }
+            threshold *= 2; // Still too full: raise the bar until half the table is free
+        }
+        long[] keptKeys = new long[0];
+        int[] keptMoves = new int[0];
+        int[] keptWeights = new int[0];
+        int kept = 0;
+        for (int slot = 0; slot <= mask; slot++) {
+            if (moves[slot] != 0 && weights[slot] > threshold) {
+                if (kept == keptKeys.length) {
+                    keptKeys = Arrays.copyOf(keptKeys, Math.max(1024, kept * 2));
+                    keptMoves = Arrays.copyOf(keptMoves, keptKeys.length);
+                    keptWeights = Arrays.copyOf(keptWeights, keptKeys.length);
+                }
+                keptKeys[kept] = keys[slot];
+                keptMoves[kept] = moves[slot];
+                keptWeights[kept++] = weights[slot];
+            }
+            moves[slot] = 0;
+        }
+        size = 0;
+        for (int i = 0; i < kept; i++) {
+            int slot = slot(keptKeys[i], keptMoves[i] - 1);
+            while (moves[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = keptKeys[i];
+            moves[slot] = keptMoves[i];
+            weights[slot] = keptWeights[i];
+            size++;
+        }
+    }
+
+    private int slot(long key, int move) {
+        long hash = (key ^ move * 0x9E3779B97F4A7C15L) * 0xBF58476D1CE4E5B9L;
+        return (int) (hash >>> 32) & mask;
+    }
+
+    // Quicksort of the parallel arrays by key, then weight descending
+    private static void sort(long[] keys, int[] moves, int[] weights, int low, int high) {
+        while (low < high) {
+            if (high - low < 16) {
+                for (int i = low + 1; i <= high; i++) {
+                    for (int j = i; j > low && compare(keys, weights, j - 1, j) > 0; j--) {
+                        swap(keys, moves, weights, j - 1, j);
+                    }
+                }
+                return;
+            }
+            swap(keys, moves, weights, (low + high) >>> 1, high);
+            int store = low;
+            for (int i = low; i < high; i++) {
+                if (compare(keys, weights, i, high) < 0) {
+                    swap(keys, moves, weights, i, store++);
+                }
+            }
+            swap(keys, moves, weights, store, high);
+            // Recurse into the smaller half so the stack stays logarithmic
+            if (store - low < high - store) {
+                sort(keys, moves, weights, low, store - 1);
+                low = store + 1;
+            } else {
+                sort(keys, moves, weights, store + 1, high);
+                high = store - 1;
+            }
+        }
+    }
+
+    private static int compare(long[] keys, int[] weights, int a, int b) {
+        int byKey = Long.compare(keys[a], keys[b]); // Signed, as OpeningBook's binary search expects
+        return byKey != 0 ? byKey : Integer.compare(weights[b], weights[a]);
+    }
+
+    private static void swap(long[] keys, int[] moves, int[] weights, int a, int b) {
+        long key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        int move = moves[a];
+        moves[a] = moves[b];
+        moves[b] = move;
+        int weight = weights[a];
+        weights[a] = weights[b];
+        weights[b] = weight;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path book = null;
+        List<Path> inputs = new ArrayList<>();
+        int plies = 24;
+        int minWeight = 4;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--plies":
+                    plies = Integer.parseInt(args[++i]);
+                    break;
+                case "--min-weight":
+                    minWeight = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    if (book == null) {
+                        book = Path.of(args[i]);
+                    } else {
+                        inputs.add(Path.of(args[i]));
+                    }
+            }
+        }
+        if (book == null || inputs.isEmpty()) {
+            System.out.println("Usage: OpeningBookBuilder <book> <file.pgn>... [--plies n] [--min-weight n] [--threads n]");
+            System.exit(2);
+        }
+
+        long start = System.nanoTime();
+        OpeningBookBuilder builder = new OpeningBookBuilder(plies, 1 << 22);
+        try (ParallelPgnReader parallel = new ParallelPgnReader(threads)) {
+            for (Path input : inputs) {
+                try (PgnReader reader = PgnReader.open(input)) {
+                    parallel.read(reader, builder::addGame);
+                }
+            }
+            int entries = builder.write(book, minWeight);
+            System.out.println("Read " + parallel.getGamesRead() + " games (" + parallel.getGamesSkipped()
+                    + " skipped), wrote " + entries + " book entries in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+    }
+}
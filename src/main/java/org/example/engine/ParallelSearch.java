@@ -0,0 +1,134 @@
+package org.example.engine;
+
+import org.example.game.BitboardPosition;
+import org.example.game.TranspositionTable;
+import org.example.tablebase.Tablebases;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Lazy SMP: every thread runs its own iterative-deepening Search over the same root, and the
+ * threads only cooperate through one shared lock-free TranspositionTable. Helpers mostly fill the
+ * table with results the main thread then finds as hash hits. The main thread's result is returned
+ * and the helpers are stopped as soon as it finishes.
+ * <p>
+ * Node limits apply per thread. With one thread the search runs on the caller's thread exactly
+ * like a plain Search, which keeps results reproducible for tests.
+ */
+public class ParallelSearch implements AutoCloseable {
+    private final TranspositionTable transpositionTable;
+    private final Search[] workers;
+    private final ExecutorService helperPool;
+    private OpeningBook openingBook;
+    private Tablebases tablebases;
+
+    public ParallelSearch(int threads, TranspositionTable transpositionTable) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1: " + threads);
+        }
+        this.transpositionTable = transpositionTable;
+        this.workers = new Search[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Search(transpositionTable, new Evaluator());
+            workers[i].configureWorker(i);
+        }
+        this.helperPool = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1, runnable -> {
+            Thread helperThread = new Thread(runnable);
+            helperThread.setName("ChessSearchHelper");
+            helperThread.setDaemon(true);
+            return helperThread;
+        });
+    }
+
+    public ParallelSearch(int threads) {
+        this(threads, new TranspositionTable(256));
+    }
+
+    public int getThreadCount() {
+        return workers.length;
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
+
+    public void setListener(SearchListener listener) {
+        workers[0].setListener(listener);
+    }
+
+    public void setOpeningBook(OpeningBook openingBook) {
+        this.openingBook = openingBook;
+    }
+
+    public void setTablebases(Tablebases tablebases) {
+        this.tablebases = tablebases;
+        for (Search worker : workers) {
+            worker.setTablebases(tablebases);
+        }
+    }
+
+    public void stop() {
+        for (Search worker : workers) {
+            worker.stop();
+        }
+    }
+
+    /**
+     * Searches with all threads. The returned node count is the sum over every thread.
+     */
+    public SearchResult search(BitboardPosition root, SearchLimits limits) {
+        SearchResult bookResult = Search.probeBook(openingBook, root);
+        if (bookResult != null) {
+            return bookResult; // No helper is woken for a book move
+        }
+        SearchResult tablebaseResult = Search.probeTablebases(tablebases, root);
+        if (tablebaseResult != null) {
+            return tablebaseResult;
+        }
+        long start = System.nanoTime();
+        transpositionTable.newSearch();
+        for (Search worker : workers) {
+            worker.clearStop();
+        }
+
+        List<Future<SearchResult>> helpers = new ArrayList<>();
+        for (int i = 1; i < workers.length; i++) {
+            Search helper = workers[i];
+            BitboardPosition helperRoot = new BitboardPosition();
+            helperRoot.copyFrom(root);
+            helpers.add(helperPool.submit(() -> helper.runSearch(helperRoot, limits)));
+        }
+
+        SearchResult main = workers[0].runSearch(root, limits);
+
+        long nodes = main.getNodes();
+        for (int i = 1; i < workers.length; i++) {
+            workers[i].stop();
+        }
+        for (Future<SearchResult> helper : helpers) {
+            try {
+                nodes += helper.get().getNodes();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Search helper failed", e.getCause());
+            }
+        }
+        return new SearchResult(main.getBestMove(), main.getScore(), main.getDepth(), nodes,
+                System.nanoTime() - start);
+    }
+
+    @Override
+    public void close() {
+        stop();
+        if (helperPool != null) {
+            helperPool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.example.engine;
+
+import org.example.game.BitboardPosition;
+import org.example.game.TranspositionTable;
+
+/**
+ * Measures how nodes per second scale with the number of search threads. A single-threaded pass
+ * over the positions runs first and is not reported, so the JIT has compiled the search before the
+ * one-thread baseline is taken. Speedups only mean something up to the number of cores.
+ * Usage: ParallelSearchBenchmark [maxThreads] [millisPerPosition]
+ */
+public class ParallelSearchBenchmark {
+    // Each line is a sequence of coordinate moves played from the starting position
+    private static final String[] POSITIONS = {
+            "",
+            "e2e4 e7e5 g1f3 b8c6 f1b5 a7a6 b5a4 g8f6 e1g1 f8e7",
+            "d2d4 g8f6 c2c4 e7e6 b1c3 f8b4 e2e3 e8g8 f1d3 d7d5 g1f3 c7c5",
+            "e2e4 c7c5 g1f3 d7d6 d2d4 c5d4 f3d4 g8f6 b1c3 a7a6 c1e3 e7e5 d4b3 c8e6",
+    };
+
+    public static void main(String[] args) {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        long millis = args.length > 1 ? Long.parseLong(args[1]) : 3000;
+
+        BitboardPosition[] positions = new BitboardPosition[POSITIONS.length];
+        for (int i = 0; i < POSITIONS.length; i++) {
+            positions[i] = playMoves(POSITIONS[i]);
+        }
+
+        runPositions(positions, 1, millis); // Warm-up
+        System.out.println("threads        nodes          nps  speedup (" + Runtime.getRuntime().availableProcessors() + " cores)");
+        long baseline = 0;
+        for (int threads = 1; threads <= maxThreads; threads = nextThreadCount(threads, maxThreads)) {
+            long[] totals = runPositions(positions, threads, millis);
+            long nodes = totals[0];
+            long nanos = totals[1];
+            long nps = nanos == 0 ? 0 : nodes * 1_000_000_000L / nanos;
+            if (threads == 1) {
+                baseline = nps;
+            }
+            System.out.printf("%7d %12d %12d %8.2f%n", threads, nodes, nps, baseline == 0 ? 0.0 : (double) nps / baseline);
+        }
+    }
+
+    // Nodes and nanoseconds summed over the positions
+    private static long[] runPositions(BitboardPosition[] positions, int threads, long millis) {
+        long nodes = 0;
+        long nanos = 0;
+        try (ParallelSearch search = new ParallelSearch(threads, new TranspositionTable(256))) {
+            for (BitboardPosition position : positions) {
+                search.getTranspositionTable().clear();
+                SearchResult result = search.search(position, SearchLimits.moveTime(millis));
+                nodes += result.getNodes();
+                nanos += result.getElapsedNanos();
+            }
+        }
+        return new long[] { nodes, nanos };
+    }
+
+    // 1, 2, 4, 8, ... and always the requested maximum last
+    private static int nextThreadCount(int threads, int maxThreads) {
+        if (threads == maxThreads) {
+            return maxThreads + 1;
+        }
+        return Math.min(threads * 2, maxThreads);
+    }
+
+    private static BitboardPosition playMoves(String line) {
+        BitboardPosition position = new BitboardPosition();
+        position.setupStartPosition();
+        int[] moves = new int[BitboardPosition.MAX_MOVES];
+        for (String text : line.trim().split("\\s+")) {
+            if (text.isEmpty()) {
+                continue;
+            }
+            int count = position.generateLegalMoves(moves, 0);
+            int found = 0;
+            for (int i = 0; i < count; i++) {
+                if (BitboardPosition.moveToString(moves[i]).equals(text)) {
+                    found = moves[i];
+                    break;
+                }
+            }
+            if (found == 0) {
+                throw new IllegalArgumentException("Illegal move " + text + " in: " + line);
+            }
+            position.makeMove(found);
+        }
+        return position;
+    }
+}
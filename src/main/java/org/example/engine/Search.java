@@ -0,0 +1,422 @@
+package org.example.engine;
+
+import org.example.game.BitboardPosition;
+import org.example.game.MoveList;
+import org.example.game.TranspositionTable;
+import org.example.tablebase.Tablebases;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Negamax alpha-beta search with iterative deepening, a transposition table, quiescence search
+ * and move ordering by hash move, MVV-LVA, killer moves and the history heuristic.
+ * A Search owns its own copy of the position and all buffers, so nothing is allocated per node.
+ * One instance must only be used by one thread at a time.
+ */
+public class Search {
+    public static final int INFINITY = 32000;
+    public static final int MATE = 31000;
+    public static final int MAX_PLY = 128;
+    // Scores from here to MATE are mates: found by the search within MAX_PLY, or read from a
+    // tablebase up to MAX_TABLEBASE_PLIES beyond the ply that probed it
+    public static final int MAX_TABLEBASE_PLIES = 255;
+    public static final int MATE_BOUND = MATE - MAX_PLY - MAX_TABLEBASE_PLIES;
+
+    private static final int HASH_MOVE_SCORE = 1 << 30;
+    private static final int CAPTURE_SCORE = 1 << 29;
+    private static final int FIRST_KILLER_SCORE = 1 << 28;
+    private static final int SECOND_KILLER_SCORE = FIRST_KILLER_SCORE - 1;
+    private static final int HISTORY_LIMIT = 1 << 20;
+
+    private final BitboardPosition position = new BitboardPosition();
+    private final TranspositionTable transpositionTable;
+    private final Evaluator evaluator;
+    private final MoveList[] moveLists = new MoveList[MAX_PLY + 1];
+    private final int[][] killers = new int[MAX_PLY + 1][2];
+    private final int[][] history = new int[12][64];
+
+    private SearchListener listener;
+    private OpeningBook openingBook;
+    private Tablebases tablebases;
+    private int workerIndex; // 0 unless this is a helper thread of a ParallelSearch
+    private boolean agesTable = true;
+    private volatile boolean stopRequested;
+    private boolean stopped;
+    private boolean limitsActive;
+    private long nodes;
+    private long maxNodes;
+    private long deadline;
+    private int rootBestMove;
+
+    public Search(TranspositionTable transpositionTable, Evaluator evaluator) {
+        this.transpositionTable = transpositionTable;
+        this.evaluator = evaluator;
+        for (int ply = 0; ply < moveLists.length; ply++) {
+            moveLists[ply] = new MoveList();
+        }
+    }
+
+    public Search() {
+        this(new TranspositionTable(64), new Evaluator());
+    }
+
+    public void setListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    // When set, a position found in the book is answered with a book move at depth 0, unsearched
+    public void setOpeningBook(OpeningBook openingBook) {
+        this.openingBook = openingBook;
+    }
+
+    // When set, positions with few enough pieces are scored exactly instead of searched
+    public void setTablebases(Tablebases tablebases) {
+        this.tablebases = tablebases;
+    }
+
+    /**
+     * Asks a running search to return as soon as possible with its last completed iteration.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    void clearStop() {
+        stopRequested = false;
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
+
+    /**
+     * Nodes visited by the current or last search.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    // Called by ParallelSearch: the table is aged once per search by the coordinator, and
+    // odd-numbered helpers start one iteration deeper so threads spread over different depths
+    void configureWorker(int workerIndex) {
+        this.workerIndex = workerIndex;
+        this.agesTable = false;
+    }
+
+    /**
+     * Searches the position within the limits. A stop() issued before this call belongs to an
+     * earlier search and is discarded, so only stop() calls made while searching cut it short.
+     */
+    public SearchResult search(BitboardPosition root, SearchLimits limits) {
+        stopRequested = false;
+        SearchResult bookResult = probeBook(openingBook, root);
+        if (bookResult != null) {
+            return bookResult;
+        }
+        SearchResult tablebaseResult = probeTablebases(tablebases, root);
+        if (tablebaseResult != null) {
+            return tablebaseResult;
+        }
+        return runSearch(root, limits);
+    }
+
+    static SearchResult probeBook(OpeningBook openingBook, BitboardPosition root) {
+        if (openingBook == null) {
+            return null;
+        }
+        long start = System.nanoTime();
+        int bookMove = openingBook.pickMove(root, ThreadLocalRandom.current().nextDouble());
+        return bookMove == OpeningBook.NO_MOVE ? null : new SearchResult(bookMove, 0, 0, 0, System.nanoTime() - start);
+    }
+
+    // A covered root is answered with the tablebase move at depth 0: the quickest mate, or the
+    // slowest when losing
+    static SearchResult probeTablebases(Tablebases tablebases, BitboardPosition root) {
+        if (tablebases == null || Long.bitCount(root.occupied()) > tablebases.getMaxPieces()) {
+            return null;
+        }
+        long start = System.nanoTime();
+        BitboardPosition position = new BitboardPosition();
+        position.copyFrom(root);
+        int value = tablebases.probe(position);
+        int move = value == Tablebases.NOT_FOUND ? 0 : tablebases.bestMove(position);
+        return move == 0 ? null : new SearchResult(move, tablebaseScore(value, 0), 0, 0, System.nanoTime() - start);
+    }
+
+    static int tablebaseScore(int value, int ply) {
+        if (Tablebases.isWin(value)) {
+            return MATE - ply - Tablebases.pliesToMate(value);
+        }
+        return Tablebases.isLoss(value) ? -MATE + ply + Tablebases.pliesToMate(value) : 0;
+    }
+
+    // Leaves stopRequested alone. ParallelSearch clears it with clearStop before handing the search
+    // to a helper thread, so a stop issued between then and the helper getting here still counts
+    SearchResult runSearch(BitboardPosition root, SearchLimits limits) {
+        long start = System.nanoTime();
+        position.copyFrom(root);
+        prepare();
+        if (agesTable) {
+            transpositionTable.newSearch();
+        }
+        stopped = false;
+        limitsActive = false; // The first iteration always completes, so there is a move to play
+        nodes = 0;
+        maxNodes = limits.getMaxNodes() > 0 ? limits.getMaxNodes() : Long.MAX_VALUE;
+        deadline = limits.getMoveTimeMillis() > 0 ? start + limits.getMoveTimeMillis() * 1_000_000 : Long.MAX_VALUE;
+        int maxDepth = limits.getMaxDepth() > 0 ? Math.min(limits.getMaxDepth(), MAX_PLY - 1) : MAX_PLY - 1;
+
+        SearchResult result = new SearchResult(0, 0, 0, 0, 0);
+        for (int depth = 1 + (workerIndex & 1); depth <= maxDepth; depth++) {
+            rootBestMove = 0;
+            int score = negamax(depth, 0, -INFINITY, INFINITY);
+            if (stopped) {
+                break; // Partial iterations are not trusted
+            }
+            result = new SearchResult(rootBestMove, score, depth, nodes, System.nanoTime() - start);
+            if (listener != null && workerIndex == 0) {
+                listener.onIterationCompleted(result);
+            }
+            limitsActive = true;
+            if (rootBestMove == 0 || result.isMateScore()) {
+                break;
+            }
+            // The next iteration costs several times this one, so do not start what cannot finish
+            long now = System.nanoTime();
+            if (deadline != Long.MAX_VALUE && now - start > (deadline - start) / 2) {
+                break;
+            }
+        }
+        return new SearchResult(result.getBestMove(), result.getScore(), result.getDepth(), nodes,
+                System.nanoTime() - start);
+    }
+
+    private void prepare() {
+        for (int[] killer : killers) {
+            killer[0] = 0;
+            killer[1] = 0;
+        }
+        for (int[] row : history) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] >>= 2; // Keep some ordering knowledge from the previous move
+            }
+        }
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta) {
+        if ((nodes & 1023) == 0) {
+            checkLimits();
+        }
+        if (stopped) {
+            return 0;
+        }
+        if (ply > 0 && (position.getHalfmoveClock() >= 100 || position.isRepetition())) {
+            return 0;
+        }
+        boolean inCheck = position.isInCheck(position.getSideToMove());
+        if (inCheck && ply < MAX_PLY / 2) {
+            depth++;
+        }
+        if (depth <= 0 || ply >= MAX_PLY) {
+            return quiescence(ply, alpha, beta);
+        }
+        nodes++;
+
+        long key = position.getZobristKey();
+        long entry = transpositionTable.probe(key);
+        int hashMove = 0;
+        if (entry != TranspositionTable.NO_ENTRY) {
+            hashMove = TranspositionTable.entryMove(entry);
+            if (ply > 0 && TranspositionTable.entryDepth(entry) >= depth) {
+                int score = fromTableScore(TranspositionTable.entryScore(entry), ply);
+                int bound = TranspositionTable.entryBound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER_BOUND && score >= beta)
+                        || (bound == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        if (ply > 0 && tablebases != null && Long.bitCount(position.occupied()) <= tablebases.getMaxPieces()) {
+            int value = tablebases.probe(position);
+            if (value != Tablebases.NOT_FOUND) {
+                return tablebaseScore(value, ply);
+            }
+        }
+
+        MoveList moves = moveLists[ply];
+        position.generateLegalMoves(moves);
+        int count = moves.size();
+        if (count == 0) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        scoreMoves(moves, ply, hashMove);
+
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves.pickBest(i);
+            position.makeMove(move);
+            int score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            position.unmakeMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (ply == 0) {
+                    rootBestMove = move;
+                }
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        if (!BitboardPosition.isCapture(move)) {
+                            rememberQuietCutoff(move, ply, depth);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = bestScore >= beta ? TranspositionTable.LOWER_BOUND
+                : bestScore > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER_BOUND;
+        transpositionTable.store(key, bestMove, toTableScore(bestScore, ply), depth, bound);
+        return bestScore;
+    }
+
+    // Only captures and promotions are searched, so the static score settles before it is trusted.
+    // In check there is no standing pat: every evasion is searched, and no evasion means mate
+    private int quiescence(int ply, int alpha, int beta) {
+        if ((nodes & 1023) == 0) {
+            checkLimits();
+        }
+        if (stopped) {
+            return 0;
+        }
+        nodes++;
+        if (ply >= MAX_PLY) {
+            return evaluator.evaluate(position);
+        }
+        boolean inCheck = position.isInCheck(position.getSideToMove());
+        if (!inCheck) {
+            // A cutoff here skips move generation, so a stalemate is only seen by a side that
+            // is not already doing well enough
+            int standPat = evaluator.evaluate(position);
+            if (standPat >= beta) {
+                return standPat;
+            }
+            if (standPat > alpha) {
+                alpha = standPat;
+            }
+        }
+
+        MoveList moves = moveLists[ply];
+        position.generateLegalMoves(moves);
+        if (moves.isEmpty()) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        if (!inCheck) {
+            int tactical = 0;
+            for (int i = 0; i < moves.size(); i++) {
+                if (BitboardPosition.isCapture(moves.get(i)) || BitboardPosition.isPromotion(moves.get(i))) {
+                    moves.set(tactical++, moves.get(i));
+                }
+            }
+            moves.truncate(tactical);
+        }
+        scoreMoves(moves, ply, 0);
+
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.pickBest(i);
+            position.makeMove(move);
+            int score = -quiescence(ply + 1, -beta, -alpha);
+            position.unmakeMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score > alpha) {
+                alpha = score;
+                if (alpha >= beta) {
+                    break;
+                }
+            }
+        }
+        return alpha;
+    }
+
+    private void scoreMoves(MoveList moves, int ply, int hashMove) {
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int from = BitboardPosition.moveFrom(move);
+            int to = BitboardPosition.moveTo(move);
+            if (move == hashMove) {
+                moves.setScore(i, HASH_MOVE_SCORE);
+            } else if (BitboardPosition.isCapture(move) || BitboardPosition.isPromotion(move)) {
+                int victim = position.pieceAt(to) == BitboardPosition.NO_PIECE ? BitboardPosition.PAWN
+                        : BitboardPosition.typeOf(position.pieceAt(to));
+                int attacker = BitboardPosition.typeOf(position.pieceAt(from));
+                int gain = BitboardPosition.isCapture(move) ? Evaluator.PIECE_VALUES[victim] : 0;
+                if (BitboardPosition.isPromotion(move)) {
+                    gain += Evaluator.PIECE_VALUES[BitboardPosition.promotionType(move)];
+                }
+                // Most valuable victim first, then least valuable attacker
+                moves.setScore(i, CAPTURE_SCORE + gain * 8 - attacker);
+            } else if (move == killers[ply][0]) {
+                moves.setScore(i, FIRST_KILLER_SCORE);
+            } else if (move == killers[ply][1]) {
+                moves.setScore(i, SECOND_KILLER_SCORE);
+            } else {
+                moves.setScore(i, history[position.pieceAt(from)][to]);
+            }
+        }
+    }
+
+    private void rememberQuietCutoff(int move, int ply, int depth) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int piece = position.pieceAt(BitboardPosition.moveFrom(move));
+        int[] pieceHistory = history[piece];
+        int to = BitboardPosition.moveTo(move);
+        pieceHistory[to] += depth * depth;
+        if (pieceHistory[to] > HISTORY_LIMIT) {
+            for (int[] row : history) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] >>= 1;
+                }
+            }
+        }
+    }
+
+    private void checkLimits() {
+        if (stopRequested || (limitsActive && (nodes >= maxNodes || System.nanoTime() >= deadline))) {
+            stopped = true;
+        }
+    }
+
+    // Mate scores are stored relative to the node, so they stay correct when reached at another ply
+    static int toTableScore(int score, int ply) {
+        if (score >= MATE_BOUND) {
+            return score + ply;
+        }
+        if (score <= -MATE_BOUND) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    static int fromTableScore(int score, int ply) {
+        if (score >= MATE_BOUND) {
+            return score - ply;
+        }
+        if (score <= -MATE_BOUND) {
+            return score + ply;
+        }
+        return score;
+    }
+}
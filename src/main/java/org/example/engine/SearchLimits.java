@@ -0,0 +1,36 @@
+package org.example.engine;
+
+/**
+ * When a search has to stop. Zero means no limit for that dimension.
+ */
+public class SearchLimits {
+    private final int maxDepth;
+    private final long moveTimeMillis;
+    private final long maxNodes;
+
+    public SearchLimits(int maxDepth, long moveTimeMillis, long maxNodes) {
+        this.maxDepth = maxDepth;
+        this.moveTimeMillis = moveTimeMillis;
+        this.maxNodes = maxNodes;
+    }
+
+    public static SearchLimits depth(int maxDepth) {
+        return new SearchLimits(maxDepth, 0, 0);
+    }
+
+    public static SearchLimits moveTime(long moveTimeMillis) {
+        return new SearchLimits(0, moveTimeMillis, 0);
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public long getMoveTimeMillis() {
+        return moveTimeMillis;
+    }
+
+    public long getMaxNodes() {
+        return maxNodes;
+    }
+}
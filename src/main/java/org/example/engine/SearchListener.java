@@ -0,0 +1,6 @@
+package org.example.engine;
+
+@FunctionalInterface
+public interface SearchListener {
+    void onIterationCompleted(SearchResult iteration);
+}
@@ -0,0 +1,69 @@
+package org.example.engine;
+
+import org.example.game.BitboardPosition;
+
+/**
+ * Outcome of a search, or of one completed iteration while the search is still running.
+ */
+public class SearchResult {
+    private final int bestMove;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long elapsedNanos;
+
+    public SearchResult(int bestMove, int score, int depth, long nodes, long elapsedNanos) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+
+    public long getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1_000_000_000L / elapsedNanos;
+    }
+
+    // Depth completed per second of search time, for comparing how quickly releases reach a given depth
+    public double getDepthPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : depth * 1e9 / elapsedNanos;
+    }
+
+    public boolean isMateScore() {
+        return Math.abs(score) >= Search.MATE_BOUND;
+    }
+
+    @Override
+    public String toString() {
+        String scoreText = isMateScore()
+                ? "mate " + (score > 0 ? (Search.MATE - score + 1) / 2 : -(Search.MATE + score) / 2)
+                : "cp " + score;
+        return "depth " + depth + " score " + scoreText + " nodes " + nodes + " time " + getElapsedMillis()
+                + "ms nps " + getNodesPerSecond() + " depth/s " + String.format("%.2f", getDepthPerSecond())
+                + " bestmove " + (bestMove == 0 ? "(none)" : BitboardPosition.moveToString(bestMove));
+    }
+}
@@ -7,22 +7,16 @@ public class Bishop extends Piece {
 
     @Override
     public boolean isValidMove(Position newPosition, Piece[][] board) {
-        int rowDiff = Math.abs(position.getRow() - newPosition.getRow());
-        int colDiff = Math.abs(position.getColumn() - newPosition.getColumn());
+        int from = Bitboards.square(position.getRow(), position.getColumn());
+        int to = Bitboards.square(newPosition.getRow(), newPosition.getColumn());
 
-        if (rowDiff != colDiff) {
+        if ((Bitboards.bishopAttacks(from, 0L) & Bitboards.bit(to)) == 0) {
             return false; // Move is not diagonal
         }
 
-        int rowStep = newPosition.getRow() > position.getRow() ? 1 : -1;
-        int colStep = newPosition.getColumn() > position.getColumn() ? 1 : -1;
-        int steps = rowDiff - 1; // Number of squares to check for obstruction
-
         // Check for obstructions along the path
-        for (int i = 1; i <= steps; i++) {
-            if (board[position.getRow() + i * rowStep][position.getColumn() + i * colStep] != null) {
-                return false; // There's a piece in the way
-            }
+        if (!Bitboards.isPathClear(from, to, board)) {
+            return false; // There's a piece in the way
         }
 
         // Check the destination square for capturing or moving to an empty square
@@ -0,0 +1,1153 @@
+package org.example.game;
+
+import static org.example.game.Bitboards.*;
+
+/**
+ * Chess position stored as twelve 64-bit piece bitboards plus side to move, castling rights
+ * and en passant state. Moves are packed into an int (from, to and a 4-bit flag) and the
+ * generators write them into caller supplied int[] buffers, so nothing is allocated per move.
+ */
+public final class BitboardPosition {
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+
+    public static final int NO_PIECE = -1;
+    public static final int NO_SQUARE = -1;
+
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+    public static final int ALL_CASTLING = 15;
+
+    // Move flags, stored in bits 12..15 of a packed move
+    public static final int QUIET = 0;
+    public static final int DOUBLE_PAWN_PUSH = 1;
+    public static final int KING_CASTLE = 2;
+    public static final int QUEEN_CASTLE = 3;
+    public static final int CAPTURE = 4;
+    public static final int EN_PASSANT = 5;
+    public static final int PROMOTION = 8; // low two bits hold the promoted piece (KNIGHT..QUEEN)
+
+    public static final int MAX_MOVES = 256;
+
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private static final int[] CASTLING_MASK = new int[64];
+
+    static {
+        java.util.Arrays.fill(CASTLING_MASK, ALL_CASTLING);
+        CASTLING_MASK[square(0, 0)] &= ~WHITE_QUEENSIDE;
+        CASTLING_MASK[square(0, 4)] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_MASK[square(0, 7)] &= ~WHITE_KINGSIDE;
+        CASTLING_MASK[square(7, 0)] &= ~BLACK_QUEENSIDE;
+        CASTLING_MASK[square(7, 4)] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_MASK[square(7, 7)] &= ~BLACK_KINGSIDE;
+    }
+
+    private final long[] pieces = new long[12];
+    private final long[] occupancy = new long[2];
+    private final int[] mailbox = new int[64];
+    private final int[] kingSquares = new int[2];
+    private int sideToMove;
+    private int castlingRights;
+    private int enPassantSquare;
+    private int halfmoveClock;
+    private int fullmoveNumber;
+
+    // Attack state derived from the pieces. Each part is rebuilt at most once per position,
+    // on the first query after a change, and then answered from these fields. This is deliberately
+    // not kept up to date in makeMove: the search asks for checkers at nearly every node but for
+    // pins at about a third and attack maps at about a sixth, and refreshing the attacks of every
+    // slider crossing the changed squares on each make and unmake cost 35-40% of search speed.
+    private static final int WHITE_ATTACKS_VALID = 1;
+    private static final int BLACK_ATTACKS_VALID = 2;
+    private static final int WHITE_PINS_VALID = 4;
+    private static final int BLACK_PINS_VALID = 8;
+    private static final int CHECKERS_VALID = 16;
+    private final long[] attackMaps = new long[2];
+    private final long[] pinnedPieces = new long[2];
+    private long checkers;
+    private int validState;
+    private final int[] castlingScratch = new int[2]; // Lets isLegalMove reuse addCastlingMoves
+
+    // One packed long per played move, see packUndo, and the position key before that move
+    private long[] undoStack = new long[256];
+    private long[] keyHistory = new long[256];
+    private int undoCount;
+    private long zobristKey;
+    private long pawnKey; // Zobrist keys of the pawns alone
+    private int pieceSquareScore; // Sum of PieceSquareTables.score over the pieces
+
+    public BitboardPosition() {
+        clear();
+    }
+
+    public static int pieceCode(int color, int type) {
+        return color * 6 + type;
+    }
+
+    public static int colorOf(int pieceCode) {
+        return pieceCode / 6;
+    }
+
+    public static int typeOf(int pieceCode) {
+        return pieceCode % 6;
+    }
+
+    public static int encodeMove(int from, int to, int flags) {
+        return from | (to << 6) | (flags << 12);
+    }
+
+    public static int moveFrom(int move) {
+        return move & 63;
+    }
+
+    public static int moveTo(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    public static int moveFlags(int move) {
+        return (move >>> 12) & 15;
+    }
+
+    public static boolean isCapture(int move) {
+        return (moveFlags(move) & CAPTURE) != 0;
+    }
+
+    public static boolean isPromotion(int move) {
+        return (moveFlags(move) & PROMOTION) != 0;
+    }
+
+    public static int promotionType(int move) {
+        return KNIGHT + (moveFlags(move) & 3);
+    }
+
+    /**
+     * Coordinate notation such as "e2e4" or "e7e8q".
+     */
+    public static String moveToString(int move) {
+        StringBuilder text = new StringBuilder(5);
+        text.append(squareName(moveFrom(move))).append(squareName(moveTo(move)));
+        if (isPromotion(move)) {
+            text.append("nbrq".charAt(promotionType(move) - KNIGHT));
+        }
+        return text.toString();
+    }
+
+    public static String squareName(int square) {
+        return "" + (char) ('a' + fileOf(square)) + (char) ('1' + rankOf(square));
+    }
+
+    public void clear() {
+        java.util.Arrays.fill(pieces, 0L);
+        java.util.Arrays.fill(occupancy, 0L);
+        java.util.Arrays.fill(mailbox, NO_PIECE);
+        java.util.Arrays.fill(kingSquares, NO_SQUARE);
+        validState = 0;
+        undoCount = 0;
+        zobristKey = 0L;
+        pawnKey = 0L;
+        pieceSquareScore = 0;
+        sideToMove = WHITE;
+        castlingRights = 0;
+        enPassantSquare = NO_SQUARE;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+    }
+
+    public void setupStartPosition() {
+        clear();
+        int[] backRank = { ROOK, KNIGHT, BISHOP, QUEEN, KING, BISHOP, KNIGHT, ROOK };
+        for (int file = 0; file < 8; file++) {
+            setPiece(square(0, file), pieceCode(WHITE, backRank[file]));
+            setPiece(square(1, file), pieceCode(WHITE, PAWN));
+            setPiece(square(6, file), pieceCode(BLACK, PAWN));
+            setPiece(square(7, file), pieceCode(BLACK, backRank[file]));
+        }
+        setCastlingRights(ALL_CASTLING);
+    }
+
+    /**
+     * Replaces the whole position with the one described by a FEN string. The move counters may
+     * be left out, as they are in EPD records.
+     */
+    public void setFromFen(String fen) {
+        parseFen(fen, 0, fen.length());
+    }
+
+    /**
+     * Reads the FEN fields found in text between start and end into this position and returns
+     * the index just after the last field read, which is where the operations of an EPD record
+     * begin. The two move counters are optional. Works on any CharSequence, such as a reused line
+     * buffer, and allocates nothing unless the text is malformed.
+     * <p>
+     * Positions no game can reach are rejected too: a king count other than one per side, pawns on
+     * the first or last rank, the side not to move in check, or an en passant square without the
+     * pawn that just passed it.
+     */
+    public int parseFen(CharSequence text, int start, int end) {
+        clear();
+        int i = skipSpaces(text, start, end);
+        int rank = 7;
+        int file = 0;
+        for (; i < end && !isSpace(text.charAt(i)); i++) {
+            char c = text.charAt(i);
+            if (c == '/') {
+                if (file != 8 || rank == 0) {
+                    throw badFen("Every rank must describe eight squares", text, start, end);
+                }
+                rank--;
+                file = 0;
+            } else if (c >= '1' && c <= '8') {
+                file += c - '0';
+                if (file > 8) {
+                    throw badFen("Bad piece placement", text, start, end);
+                }
+            } else {
+                int type = pieceType(c);
+                if (type < 0 || rank < 0 || file > 7) {
+                    throw badFen("Bad piece placement", text, start, end);
+                }
+                setPiece(square(rank, file++), pieceCode(Character.isUpperCase(c) ? WHITE : BLACK, type));
+            }
+        }
+        if (rank != 0 || file != 8) {
+            throw badFen("FEN must describe eight ranks of eight squares", text, start, end);
+        }
+        if (Long.bitCount(pieces[pieceCode(WHITE, KING)]) != 1 || Long.bitCount(pieces[pieceCode(BLACK, KING)]) != 1) {
+            throw badFen("FEN must have one king per side", text, start, end);
+        }
+        if (((pieces[pieceCode(WHITE, PAWN)] | pieces[pieceCode(BLACK, PAWN)]) & (RANK_1 | RANK_8)) != 0) {
+            throw badFen("Pawn on the first or last rank", text, start, end);
+        }
+
+        i = skipSpaces(text, i, end);
+        char side = i < end ? text.charAt(i++) : ' ';
+        if ((side != 'w' && side != 'b') || (i < end && !isSpace(text.charAt(i)))) {
+            throw badFen("Bad side to move", text, start, end);
+        }
+        setSideToMove(side == 'w' ? WHITE : BLACK);
+        if (isInCheck(sideToMove ^ 1)) {
+            throw badFen("The side not to move is in check", text, start, end);
+        }
+
+        i = skipSpaces(text, i, end);
+        int rights = 0;
+        int fieldStart = i;
+        for (; i < end && !isSpace(text.charAt(i)); i++) {
+            int right = "KQkq-".indexOf(text.charAt(i));
+            if (right < 0) {
+                throw badFen("Bad castling rights", text, start, end);
+            }
+            rights |= right < 4 ? 1 << right : 0;
+        }
+        if (i == fieldStart) {
+            throw badFen("FEN needs at least four fields", text, start, end);
+        }
+        setCastlingRights(rights);
+
+        i = skipSpaces(text, i, end);
+        if (i < end && text.charAt(i) == '-') {
+            i++;
+        } else {
+            char fileChar = i < end ? text.charAt(i) : ' ';
+            char rankChar = i + 1 < end ? text.charAt(i + 1) : ' ';
+            if (fileChar < 'a' || fileChar > 'h' || (rankChar != '3' && rankChar != '6')) {
+                throw badFen("Bad en passant square", text, start, end);
+            }
+            int enPassant = square(rankChar - '1', fileChar - 'a');
+            int forward = sideToMove == WHITE ? 8 : -8;
+            if (rankChar != (sideToMove == WHITE ? '6' : '3') || mailbox[enPassant] != NO_PIECE
+                    || mailbox[enPassant + forward] != NO_PIECE
+                    || mailbox[enPassant - forward] != pieceCode(sideToMove ^ 1, PAWN)) {
+                throw badFen("No pawn just passed the en passant square", text, start, end);
+            }
+            setEnPassantSquare(enPassant);
+            i += 2;
+        }
+        if (i < end && !isSpace(text.charAt(i))) {
+            throw badFen("Bad en passant square", text, start, end);
+        }
+
+        // Counters are optional; EPD operations that follow always start with a letter
+        int countersStart = skipSpaces(text, i, end);
+        if (countersStart < end && isDigit(text.charAt(countersStart))) {
+            i = countersStart;
+            int halfmoves = 0;
+            for (; i < end && isDigit(text.charAt(i)); i++) {
+                halfmoves = halfmoves * 10 + text.charAt(i) - '0';
+            }
+            setHalfmoveClock(halfmoves);
+            int fullmoveStart = skipSpaces(text, i, end);
+            if (fullmoveStart < end && isDigit(text.charAt(fullmoveStart))) {
+                i = fullmoveStart;
+                int fullmoves = 0;
+                for (; i < end && isDigit(text.charAt(i)); i++) {
+                    fullmoves = fullmoves * 10 + text.charAt(i) - '0';
+                }
+                setFullmoveNumber(fullmoves);
+            }
+            if (i < end && !isSpace(text.charAt(i))) {
+                throw badFen("Bad move counters", text, start, end);
+            }
+        }
+        return i;
+    }
+
+    /**
+     * The position in Forsyth-Edwards Notation, including both move counters.
+     */
+    public String toFen() {
+        StringBuilder fen = new StringBuilder(90);
+        appendFen(fen);
+        return fen.toString();
+    }
+
+    // Lets writers of many positions reuse one builder
+    public void appendFen(StringBuilder fen) {
+        appendEpd(fen);
+        fen.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber);
+    }
+
+    /**
+     * Appends the four position fields of an EPD record, which are the FEN without its move
+     * counters. The caller appends any operations, e.g. " bm Nf3;".
+     */
+    public void appendEpd(StringBuilder fen) {
+        for (int rank = 7; rank >= 0; rank--) {
+            int empty = 0;
+            for (int file = 0; file < 8; file++) {
+                int piece = mailbox[square(rank, file)];
+                if (piece == NO_PIECE) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                char letter = "pnbrqk".charAt(typeOf(piece));
+                fen.append(colorOf(piece) == WHITE ? Character.toUpperCase(letter) : letter);
+            }
+            if (empty > 0) {
+                fen.append((char) ('0' + empty));
+            }
+            if (rank > 0) {
+                fen.append('/');
+            }
+        }
+        fen.append(sideToMove == WHITE ? " w " : " b ");
+        if (castlingRights == 0) {
+            fen.append('-');
+        } else {
+            for (int right = 0; right < 4; right++) {
+                if ((castlingRights & (1 << right)) != 0) {
+                    fen.append("KQkq".charAt(right));
+                }
+            }
+        }
+        fen.append(' ');
+        if (enPassantSquare == NO_SQUARE) {
+            fen.append('-');
+        } else {
+            fen.append((char) ('a' + fileOf(enPassantSquare))).append((char) ('1' + rankOf(enPassantSquare)));
+        }
+    }
+
+    private static int pieceType(char c) {
+        return "pnbrqk".indexOf(Character.toLowerCase(c));
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int skipSpaces(CharSequence text, int i, int end) {
+        while (i < end && isSpace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static IllegalArgumentException badFen(String problem, CharSequence text, int start, int end) {
+        return new IllegalArgumentException(problem + " in FEN: " + text.subSequence(start, end));
+    }
+
+    public void copyFrom(BitboardPosition other) {
+        System.arraycopy(other.pieces, 0, pieces, 0, pieces.length);
+        System.arraycopy(other.occupancy, 0, occupancy, 0, occupancy.length);
+        System.arraycopy(other.mailbox, 0, mailbox, 0, mailbox.length);
+        System.arraycopy(other.kingSquares, 0, kingSquares, 0, kingSquares.length);
+        System.arraycopy(other.attackMaps, 0, attackMaps, 0, attackMaps.length);
+        System.arraycopy(other.pinnedPieces, 0, pinnedPieces, 0, pinnedPieces.length);
+        checkers = other.checkers;
+        validState = other.validState;
+        if (undoStack.length < other.undoCount) {
+            undoStack = new long[other.undoStack.length];
+            keyHistory = new long[other.undoStack.length];
+        }
+        System.arraycopy(other.undoStack, 0, undoStack, 0, other.undoCount);
+        System.arraycopy(other.keyHistory, 0, keyHistory, 0, other.undoCount);
+        undoCount = other.undoCount;
+        zobristKey = other.zobristKey;
+        pawnKey = other.pawnKey;
+        pieceSquareScore = other.pieceSquareScore;
+        sideToMove = other.sideToMove;
+        castlingRights = other.castlingRights;
+        enPassantSquare = other.enPassantSquare;
+        halfmoveClock = other.halfmoveClock;
+        fullmoveNumber = other.fullmoveNumber;
+    }
+
+    public int pieceAt(int square) {
+        return mailbox[square];
+    }
+
+    public long pieces(int color, int type) {
+        return pieces[pieceCode(color, type)];
+    }
+
+    public long occupancy(int color) {
+        return occupancy[color];
+    }
+
+    public long occupied() {
+        return occupancy[WHITE] | occupancy[BLACK];
+    }
+
+    public int getSideToMove() {
+        return sideToMove;
+    }
+
+    public void setSideToMove(int color) {
+        if (color != sideToMove) {
+            validState &= ~CHECKERS_VALID;
+            zobristKey ^= Zobrist.BLACK_TO_MOVE;
+        }
+        this.sideToMove = color;
+    }
+
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    public void setCastlingRights(int castlingRights) {
+        zobristKey ^= Zobrist.castlingKey(this.castlingRights) ^ Zobrist.castlingKey(castlingRights);
+        this.castlingRights = castlingRights;
+    }
+
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    /**
+     * Kept only when a pawn of the side to move attacks the square, so set the side and the pieces
+     * first. Positions that differ just by an en passant square nobody can use then share a key.
+     */
+    public void setEnPassantSquare(int enPassantSquare) {
+        int square = canCaptureEnPassant(sideToMove, enPassantSquare) ? enPassantSquare : NO_SQUARE;
+        zobristKey ^= Zobrist.enPassantKey(this.enPassantSquare) ^ Zobrist.enPassantKey(square);
+        this.enPassantSquare = square;
+    }
+
+    private boolean canCaptureEnPassant(int color, int square) {
+        return square != NO_SQUARE && (pawnAttacks(color ^ 1, square) & pieces[pieceCode(color, PAWN)]) != 0;
+    }
+
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public void setHalfmoveClock(int halfmoveClock) {
+        this.halfmoveClock = halfmoveClock;
+    }
+
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    public void setFullmoveNumber(int fullmoveNumber) {
+        this.fullmoveNumber = fullmoveNumber;
+    }
+
+    /**
+     * Places a piece on a square, replacing whatever was there. NO_PIECE empties the square.
+     */
+    public void setPiece(int square, int pieceCode) {
+        if (mailbox[square] != NO_PIECE) {
+            removePiece(square);
+        }
+        if (pieceCode != NO_PIECE) {
+            putPiece(square, pieceCode);
+        }
+    }
+
+    private void putPiece(int square, int pieceCode) {
+        long mask = bit(square);
+        pieces[pieceCode] |= mask;
+        occupancy[colorOf(pieceCode)] |= mask;
+        mailbox[square] = pieceCode;
+        zobristKey ^= Zobrist.PIECE_SQUARE[pieceCode][square];
+        pieceSquareScore += PieceSquareTables.SCORES[pieceCode][square];
+        if (typeOf(pieceCode) == KING) {
+            kingSquares[colorOf(pieceCode)] = square;
+        } else if (typeOf(pieceCode) == PAWN) {
+            pawnKey ^= Zobrist.PIECE_SQUARE[pieceCode][square];
+        }
+        validState = 0;
+    }
+
+    private void removePiece(int square) {
+        int pieceCode = mailbox[square];
+        long mask = ~bit(square);
+        pieces[pieceCode] &= mask;
+        occupancy[colorOf(pieceCode)] &= mask;
+        mailbox[square] = NO_PIECE;
+        zobristKey ^= Zobrist.PIECE_SQUARE[pieceCode][square];
+        pieceSquareScore -= PieceSquareTables.SCORES[pieceCode][square];
+        if (typeOf(pieceCode) == KING && kingSquares[colorOf(pieceCode)] == square) {
+            long king = pieces[pieceCode];
+            kingSquares[colorOf(pieceCode)] = king == 0 ? NO_SQUARE : lowestSquare(king);
+        } else if (typeOf(pieceCode) == PAWN) {
+            pawnKey ^= Zobrist.PIECE_SQUARE[pieceCode][square];
+        }
+        validState = 0;
+    }
+
+    public int kingSquare(int color) {
+        return kingSquares[color];
+    }
+
+    public long attackersTo(int square, int color, long occupied) {
+        long bishopsQueens = pieces[pieceCode(color, BISHOP)] | pieces[pieceCode(color, QUEEN)];
+        long rooksQueens = pieces[pieceCode(color, ROOK)] | pieces[pieceCode(color, QUEEN)];
+        return (pawnAttacks(color ^ 1, square) & pieces[pieceCode(color, PAWN)])
+                | (knightAttacks(square) & pieces[pieceCode(color, KNIGHT)])
+                | (kingAttacks(square) & pieces[pieceCode(color, KING)])
+                | (bishopAttacks(square, occupied) & bishopsQueens)
+                | (rookAttacks(square, occupied) & rooksQueens);
+    }
+
+    public boolean isSquareAttacked(int square, int byColor) {
+        return (attackMap(byColor) & bit(square)) != 0;
+    }
+
+    public boolean isInCheck(int color) {
+        if (color == sideToMove) {
+            return checkers() != 0;
+        }
+        int king = kingSquares[color];
+        return king != NO_SQUARE && isSquareAttacked(king, color ^ 1);
+    }
+
+    /**
+     * Enemy pieces currently giving check to the side to move.
+     */
+    public long checkers() {
+        if ((validState & CHECKERS_VALID) == 0) {
+            int king = kingSquares[sideToMove];
+            checkers = king == NO_SQUARE ? 0L : attackersTo(king, sideToMove ^ 1, occupied());
+            validState |= CHECKERS_VALID;
+        }
+        return checkers;
+    }
+
+    /**
+     * Every square attacked by the given side, including squares held by its own pieces.
+     */
+    public long attackMap(int color) {
+        int flag = color == WHITE ? WHITE_ATTACKS_VALID : BLACK_ATTACKS_VALID;
+        if ((validState & flag) == 0) {
+            attackMaps[color] = computeAttackMap(color, occupied());
+            validState |= flag;
+        }
+        return attackMaps[color];
+    }
+
+    /**
+     * Pieces of the given side that cannot leave the line between their king and an enemy slider.
+     */
+    public long pinned(int color) {
+        int flag = color == WHITE ? WHITE_PINS_VALID : BLACK_PINS_VALID;
+        if ((validState & flag) == 0) {
+            pinnedPieces[color] = computePinned(color);
+            validState |= flag;
+        }
+        return pinnedPieces[color];
+    }
+
+    private long computeAttackMap(int color, long occupied) {
+        long pawns = pieces[pieceCode(color, PAWN)];
+        long attacks = color == WHITE
+                ? ((pawns & ~FILE_A) << 7) | ((pawns & ~FILE_H) << 9)
+                : ((pawns & ~FILE_A) >>> 9) | ((pawns & ~FILE_H) >>> 7);
+        for (long from = pieces[pieceCode(color, KNIGHT)]; from != 0; from &= from - 1) {
+            attacks |= knightAttacks(lowestSquare(from));
+        }
+        long bishopsQueens = pieces[pieceCode(color, BISHOP)] | pieces[pieceCode(color, QUEEN)];
+        for (long from = bishopsQueens; from != 0; from &= from - 1) {
+            attacks |= bishopAttacks(lowestSquare(from), occupied);
+        }
+        long rooksQueens = pieces[pieceCode(color, ROOK)] | pieces[pieceCode(color, QUEEN)];
+        for (long from = rooksQueens; from != 0; from &= from - 1) {
+            attacks |= rookAttacks(lowestSquare(from), occupied);
+        }
+        if (kingSquares[color] != NO_SQUARE) {
+            attacks |= kingAttacks(kingSquares[color]);
+        }
+        return attacks;
+    }
+
+    private long computePinned(int color) {
+        int king = kingSquares[color];
+        if (king == NO_SQUARE) {
+            return 0L;
+        }
+        int them = color ^ 1;
+        long queens = pieces[pieceCode(them, QUEEN)];
+        long snipers = (rookAttacks(king, 0L) & (pieces[pieceCode(them, ROOK)] | queens))
+                | (bishopAttacks(king, 0L) & (pieces[pieceCode(them, BISHOP)] | queens));
+        long occupied = occupied();
+        long pinned = 0L;
+        for (; snipers != 0; snipers &= snipers - 1) {
+            long blockers = between(king, lowestSquare(snipers)) & occupied;
+            if (Long.bitCount(blockers) == 1) {
+                pinned |= blockers & occupancy[color];
+            }
+        }
+        return pinned;
+    }
+
+    // Replaces the list's contents with the pseudo-legal moves of the side to move
+    public void generatePseudoLegalMoves(MoveList list) {
+        list.setSize(generatePseudoLegalMoves(list.buffer(), 0));
+    }
+
+    // Replaces the list's contents with the legal moves of the side to move
+    public void generateLegalMoves(MoveList list) {
+        list.setSize(generateLegalMoves(list.buffer(), 0));
+    }
+
+    /**
+     * Writes the pseudo-legal moves of the side to move into moves, starting at index count.
+     * Returns the new number of moves in the buffer. Castling is only generated when legal.
+     */
+    public int generatePseudoLegalMoves(int[] moves, int count) {
+        int us = sideToMove;
+        int them = us ^ 1;
+        long own = occupancy[us];
+        long enemy = occupancy[them];
+        long empty = ~(own | enemy);
+
+        long pawns = pieces[pieceCode(us, PAWN)];
+        int forward = us == WHITE ? 8 : -8;
+        long singlePushes = us == WHITE ? (pawns << 8) & empty : (pawns >>> 8) & empty;
+        long doublePushes = us == WHITE ? ((singlePushes & RANK_3) << 8) & empty
+                : ((singlePushes & RANK_6) >>> 8) & empty;
+        for (long targets = singlePushes; targets != 0; targets &= targets - 1) {
+            int to = lowestSquare(targets);
+            count = addPawnMove(moves, count, to - forward, to, QUIET);
+        }
+        for (long targets = doublePushes; targets != 0; targets &= targets - 1) {
+            int to = lowestSquare(targets);
+            moves[count++] = encodeMove(to - 2 * forward, to, DOUBLE_PAWN_PUSH);
+        }
+        for (long from = pawns; from != 0; from &= from - 1) {
+            int square = lowestSquare(from);
+            long attacks = pawnAttacks(us, square);
+            for (long targets = attacks & enemy; targets != 0; targets &= targets - 1) {
+                count = addPawnMove(moves, count, square, lowestSquare(targets), CAPTURE);
+            }
+            if (enPassantSquare != NO_SQUARE && (attacks & bit(enPassantSquare)) != 0) {
+                moves[count++] = encodeMove(square, enPassantSquare, EN_PASSANT);
+            }
+        }
+
+        long occupied = own | enemy;
+        for (long from = pieces[pieceCode(us, KNIGHT)]; from != 0; from &= from - 1) {
+            int square = lowestSquare(from);
+            count = addMoves(moves, count, square, knightAttacks(square) & ~own, enemy);
+        }
+        for (long from = pieces[pieceCode(us, BISHOP)]; from != 0; from &= from - 1) {
+            int square = lowestSquare(from);
+            count = addMoves(moves, count, square, bishopAttacks(square, occupied) & ~own, enemy);
+        }
+        for (long from = pieces[pieceCode(us, ROOK)]; from != 0; from &= from - 1) {
+            int square = lowestSquare(from);
+            count = addMoves(moves, count, square, rookAttacks(square, occupied) & ~own, enemy);
+        }
+        for (long from = pieces[pieceCode(us, QUEEN)]; from != 0; from &= from - 1) {
+            int square = lowestSquare(from);
+            count = addMoves(moves, count, square, queenAttacks(square, occupied) & ~own, enemy);
+        }
+        int king = kingSquare(us);
+        if (king != NO_SQUARE) {
+            count = addMoves(moves, count, king, kingAttacks(king) & ~own, enemy);
+            count = addCastlingMoves(moves, count, us, occupied);
+        }
+        return count;
+    }
+
+    /**
+     * Writes the legal moves of the side to move into moves, starting at index count, and returns
+     * the new number of moves in the buffer. Legality is decided while generating: in double check
+     * only the king moves, in single check the other pieces must capture the checker or block, and
+     * pinned pieces stay on the line through their king. Zero moves means checkmate or stalemate.
+     */
+    public int generateLegalMoves(int[] moves, int count) {
+        int us = sideToMove;
+        int them = us ^ 1;
+        int king = kingSquares[us];
+        if (king == NO_SQUARE) {
+            return generatePseudoLegalMoves(moves, count); // Only in hand-made positions
+        }
+        long own = occupancy[us];
+        long enemy = occupancy[them];
+        long occupied = own | enemy;
+
+        // The king may not step along a checking ray, so it is taken off the board for the test
+        long withoutKing = occupied & ~bit(king);
+        for (long targets = kingAttacks(king) & ~own; targets != 0; targets &= targets - 1) {
+            int to = lowestSquare(targets);
+            if (attackersTo(to, them, withoutKing) == 0) {
+                moves[count++] = encodeMove(king, to, (enemy & bit(to)) != 0 ? CAPTURE : QUIET);
+            }
+        }
+
+        long checkers = checkers();
+        if (Long.bitCount(checkers) > 1) {
+            return count;
+        }
+        long checkMask = -1L;
+        if (checkers != 0) {
+            int checker = lowestSquare(checkers);
+            checkMask = checkers | between(king, checker);
+        } else {
+            count = addCastlingMoves(moves, count, us, occupied);
+        }
+        long pinned = pinned(us);
+        long targetMask = ~own & checkMask;
+
+        for (long from = pieces[pieceCode(us, KNIGHT)] & ~pinned; from != 0; from &= from - 1) {
+            int square = lowestSquare(from);
+            count = addMoves(moves, count, square, knightAttacks(square) & targetMask, enemy);
+        }
+        long bishopsQueens = pieces[pieceCode(us, BISHOP)] | pieces[pieceCode(us, QUEEN)];
+        for (long from = bishopsQueens; from != 0; from &= from - 1) {
+            int square = lowestSquare(from);
+            long targets = bishopAttacks(square, occupied) & targetMask;
+            if ((pinned & bit(square)) != 0) {
+                targets &= line(king, square);
+            }
+            count = addMoves(moves, count, square, targets, enemy);
+        }
+        long rooksQueens = pieces[pieceCode(us, ROOK)] | pieces[pieceCode(us, QUEEN)];
+        for (long from = rooksQueens; from != 0; from &= from - 1) {
+            int square = lowestSquare(from);
+            long targets = rookAttacks(square, occupied) & targetMask;
+            if ((pinned & bit(square)) != 0) {
+                targets &= line(king, square);
+            }
+            count = addMoves(moves, count, square, targets, enemy);
+        }
+
+        int forward = us == WHITE ? 8 : -8;
+        long empty = ~occupied;
+        for (long from = pieces[pieceCode(us, PAWN)]; from != 0; from &= from - 1) {
+            int square = lowestSquare(from);
+            long allowed = (pinned & bit(square)) != 0 ? checkMask & line(king, square) : checkMask;
+            int push = square + forward;
+            if ((empty & bit(push)) != 0) {
+                if ((allowed & bit(push)) != 0) {
+                    count = addPawnMove(moves, count, square, push, QUIET);
+                }
+                int doublePush = push + forward;
+                if ((bit(square) & (us == WHITE ? RANK_2 : RANK_7)) != 0
+                        && (empty & allowed & bit(doublePush)) != 0) {
+                    moves[count++] = encodeMove(square, doublePush, DOUBLE_PAWN_PUSH);
+                }
+            }
+            long attacks = pawnAttacks(us, square);
+            for (long targets = attacks & enemy & allowed; targets != 0; targets &= targets - 1) {
+                count = addPawnMove(moves, count, square, lowestSquare(targets), CAPTURE);
+            }
+            if (enPassantSquare != NO_SQUARE && (attacks & bit(enPassantSquare)) != 0) {
+                // Two pawns leave the rank at once, which no pin or check mask describes, so the
+                // resulting position is tested directly
+                int captured = enPassantSquare - forward;
+                long occupiedAfter = (occupied & ~bit(square) & ~bit(captured)) | bit(enPassantSquare);
+                if ((attackersTo(king, them, occupiedAfter) & ~bit(captured)) == 0) {
+                    moves[count++] = encodeMove(square, enPassantSquare, EN_PASSANT);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether a pseudo-legal move leaves the mover's king safe, without changing the position.
+     */
+    public boolean isLegal(int move) {
+        int flags = moveFlags(move);
+        if (flags == KING_CASTLE || flags == QUEEN_CASTLE) {
+            return true; // Attacked squares are already checked during generation
+        }
+        int us = sideToMove;
+        int from = moveFrom(move);
+        int to = moveTo(move);
+        // Outside check, only king moves, en passant and pinned pieces can expose the king
+        if (flags != EN_PASSANT && from != kingSquares[us] && checkers() == 0 && (pinned(us) & bit(from)) == 0) {
+            return true;
+        }
+        int capturedSquare = flags == EN_PASSANT ? to + (us == WHITE ? -8 : 8) : to;
+        long occupiedAfter = (occupied() & ~bit(from) & ~bit(capturedSquare)) | bit(to);
+        int king = from == kingSquares[us] ? to : kingSquares[us];
+        if (king == NO_SQUARE) {
+            return true;
+        }
+        return (attackersTo(king, us ^ 1, occupiedAfter) & ~bit(capturedSquare)) == 0;
+    }
+
+    /**
+     * Checks an arbitrary packed move, for example one received from the network, against the
+     * full rules: it must be exactly one of the moves generateLegalMoves would list, flags and
+     * promotion piece included. Decides from the move's own squares without generating or
+     * allocating anything.
+     */
+    public boolean isLegalMove(int move) {
+        if ((move & ~0xFFFF) != 0) {
+            return false;
+        }
+        int us = sideToMove;
+        int from = moveFrom(move);
+        int to = moveTo(move);
+        int flags = moveFlags(move);
+        int movingPiece = mailbox[from];
+        if (movingPiece == NO_PIECE || colorOf(movingPiece) != us || (occupancy[us] & bit(to)) != 0) {
+            return false;
+        }
+        int target = mailbox[to];
+        if (target != NO_PIECE && typeOf(target) == KING) {
+            return false;
+        }
+        boolean capture = target != NO_PIECE;
+        long occupied = occupied();
+        int type = typeOf(movingPiece);
+
+        if (type == PAWN) {
+            int forward = us == WHITE ? 8 : -8;
+            boolean promotes = (bit(to) & (RANK_1 | RANK_8)) != 0;
+            if (flags == EN_PASSANT) {
+                if (to != enPassantSquare || (pawnAttacks(us, from) & bit(to)) == 0) {
+                    return false;
+                }
+            } else if (flags == DOUBLE_PAWN_PUSH) {
+                if (to != from + 2 * forward || (bit(from) & (us == WHITE ? RANK_2 : RANK_7)) == 0
+                        || (occupied & (bit(from + forward) | bit(to))) != 0) {
+                    return false;
+                }
+            } else {
+                int expected = (promotes ? PROMOTION | (flags & 3) : 0) | (capture ? CAPTURE : QUIET);
+                if (flags != expected) {
+                    return false;
+                }
+                boolean reaches = capture ? (pawnAttacks(us, from) & bit(to)) != 0 : to == from + forward;
+                if (!reaches) {
+                    return false;
+                }
+            }
+        } else if (flags == KING_CASTLE || flags == QUEEN_CASTLE) {
+            if (type != KING) {
+                return false;
+            }
+            int count = addCastlingMoves(castlingScratch, 0, us, occupied);
+            for (int i = 0; i < count; i++) {
+                if (castlingScratch[i] == move) {
+                    return true;
+                }
+            }
+            return false;
+        } else {
+            if (flags != (capture ? CAPTURE : QUIET)) {
+                return false;
+            }
+            if ((pieceAttacks(type, from, occupied) & bit(to)) == 0) {
+                return false;
+            }
+        }
+        return isLegal(move);
+    }
+
+    private static long pieceAttacks(int type, int square, long occupied) {
+        switch (type) {
+            case KNIGHT:
+                return knightAttacks(square);
+            case BISHOP:
+                return bishopAttacks(square, occupied);
+            case ROOK:
+                return rookAttacks(square, occupied);
+            case QUEEN:
+                return bishopAttacks(square, occupied) | rookAttacks(square, occupied);
+            default:
+                return kingAttacks(square);
+        }
+    }
+
+    /**
+     * Plays a move on this position and records what is needed to take it back with unmakeMove.
+     * The move is assumed to be pseudo-legal for the side to move.
+     */
+    public void makeMove(int move) {
+        int us = sideToMove;
+        int from = moveFrom(move);
+        int to = moveTo(move);
+        int flags = moveFlags(move);
+        int movingPiece = mailbox[from];
+        int capturedSquare = flags == EN_PASSANT ? to + (us == WHITE ? -8 : 8) : to;
+        int capturedPiece = mailbox[capturedSquare];
+
+        if (undoCount == undoStack.length) {
+            undoStack = java.util.Arrays.copyOf(undoStack, undoStack.length * 2);
+            keyHistory = java.util.Arrays.copyOf(keyHistory, keyHistory.length * 2);
+        }
+        keyHistory[undoCount] = zobristKey;
+        undoStack[undoCount++] = packUndo(move, capturedPiece);
+
+        if (capturedPiece != NO_PIECE) {
+            removePiece(capturedSquare);
+        }
+        removePiece(from);
+        putPiece(to, (flags & PROMOTION) != 0 ? pieceCode(us, promotionType(move)) : movingPiece);
+
+        if (flags == KING_CASTLE) {
+            removePiece(to + 1);
+            putPiece(to - 1, pieceCode(us, ROOK));
+        } else if (flags == QUEEN_CASTLE) {
+            removePiece(to - 2);
+            putPiece(to + 1, pieceCode(us, ROOK));
+        }
+
+        int skipped = (from + to) / 2;
+        int newEnPassantSquare = flags == DOUBLE_PAWN_PUSH && canCaptureEnPassant(us ^ 1, skipped) ? skipped : NO_SQUARE;
+        int newCastlingRights = castlingRights & CASTLING_MASK[from] & CASTLING_MASK[to];
+        zobristKey ^= Zobrist.enPassantKey(enPassantSquare) ^ Zobrist.enPassantKey(newEnPassantSquare)
+                ^ Zobrist.CASTLING[castlingRights] ^ Zobrist.CASTLING[newCastlingRights]
+                ^ Zobrist.BLACK_TO_MOVE;
+        halfmoveClock = capturedPiece != NO_PIECE || typeOf(movingPiece) == PAWN ? 0 : halfmoveClock + 1;
+        enPassantSquare = newEnPassantSquare;
+        castlingRights = newCastlingRights;
+        if (us == BLACK) {
+            fullmoveNumber++;
+        }
+        sideToMove = us ^ 1;
+    }
+
+    /**
+     * Takes back the last move played with makeMove.
+     */
+    public void unmakeMove() {
+        long undo = undoStack[--undoCount];
+        int move = (int) (undo & 0xFFFF);
+        int us = sideToMove ^ 1;
+        int from = moveFrom(move);
+        int to = moveTo(move);
+        int flags = moveFlags(move);
+
+        if (flags == KING_CASTLE) {
+            removePiece(to - 1);
+            putPiece(to + 1, pieceCode(us, ROOK));
+        } else if (flags == QUEEN_CASTLE) {
+            removePiece(to + 1);
+            putPiece(to - 2, pieceCode(us, ROOK));
+        }
+
+        int movedPiece = (flags & PROMOTION) != 0 ? pieceCode(us, PAWN) : mailbox[to];
+        removePiece(to);
+        putPiece(from, movedPiece);
+        int capturedPiece = (int) ((undo >>> 16) & 0xF) - 1;
+        if (capturedPiece != NO_PIECE) {
+            putPiece(flags == EN_PASSANT ? to + (us == WHITE ? -8 : 8) : to, capturedPiece);
+        }
+
+        castlingRights = (int) ((undo >>> 20) & 0xF);
+        enPassantSquare = (int) ((undo >>> 24) & 0x7F) - 1;
+        halfmoveClock = (int) (undo >>> 32);
+        if (us == BLACK) {
+            fullmoveNumber--;
+        }
+        sideToMove = us;
+        zobristKey = keyHistory[undoCount];
+    }
+
+    /**
+     * Number of moves that can currently be taken back.
+     */
+    public int getPly() {
+        return undoCount;
+    }
+
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    /**
+     * Recomputes the key from scratch; matches getZobristKey whenever the incremental updates are right.
+     */
+    public long computeZobristKey() {
+        long key = Zobrist.castlingKey(castlingRights) ^ Zobrist.enPassantKey(enPassantSquare)
+                ^ Zobrist.sideKey(sideToMove);
+        for (int square = 0; square < 64; square++) {
+            if (mailbox[square] != NO_PIECE) {
+                key ^= Zobrist.pieceKey(mailbox[square], square);
+            }
+        }
+        return key;
+    }
+
+    // Changes only when a pawn moves, is captured or promotes, so it keys caches of pawn structure
+    public long getPawnKey() {
+        return pawnKey;
+    }
+
+    /**
+     * Material plus piece-square values of every piece, packed as PieceSquareTables describes and
+     * kept up to date by every change to the board.
+     */
+    public int getPieceSquareScore() {
+        return pieceSquareScore;
+    }
+
+    /**
+     * Recomputes the score from scratch; matches getPieceSquareScore whenever the incremental updates are right.
+     */
+    public int computePieceSquareScore() {
+        int score = 0;
+        for (int square = 0; square < 64; square++) {
+            if (mailbox[square] != NO_PIECE) {
+                score += PieceSquareTables.score(mailbox[square], square);
+            }
+        }
+        return score;
+    }
+
+    /**
+     * How many earlier positions in the move history equal the current one. Only positions since
+     * the last capture or pawn move, with the same side to move, are compared.
+     */
+    public int repetitionCount() {
+        int count = 0;
+        int oldest = Math.max(0, undoCount - halfmoveClock);
+        for (int ply = undoCount - 2; ply >= oldest; ply -= 2) {
+            if (keyHistory[ply] == zobristKey) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public boolean isRepetition() {
+        return repetitionCount() > 0;
+    }
+
+    public int lastMove() {
+        return (int) (undoStack[undoCount - 1] & 0xFFFF);
+    }
+
+    // The move played at the given ply of the history, 0 being the oldest that can be taken back
+    public int getMove(int ply) {
+        return (int) (undoStack[ply] & 0xFFFF);
+    }
+
+    // move | captured piece + 1 | castling rights | en passant square + 1 | halfmove clock
+    private long packUndo(int move, int capturedPiece) {
+        return (move & 0xFFFFL)
+                | ((long) (capturedPiece + 1) << 16)
+                | ((long) castlingRights << 20)
+                | ((long) (enPassantSquare + 1) << 24)
+                | ((long) halfmoveClock << 32);
+    }
+
+    /**
+     * Counts the leaf nodes of the legal move tree to the given depth.
+     * Move buffers are allocated once per call and reused for every node.
+     */
+    public long perft(int depth) {
+        if (depth <= 0) {
+            return 1;
+        }
+        MoveList[] moveLists = new MoveList[depth];
+        for (int i = 0; i < depth; i++) {
+            moveLists[i] = new MoveList();
+        }
+        return perft(depth, moveLists);
+    }
+
+    private long perft(int depth, MoveList[] moveLists) {
+        MoveList moves = moveLists[depth - 1];
+        generateLegalMoves(moves);
+        if (depth == 1) {
+            return moves.size();
+        }
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            makeMove(moves.get(i));
+            nodes += perft(depth - 1, moveLists);
+            unmakeMove();
+        }
+        return nodes;
+    }
+
+    private int addMoves(int[] moves, int count, int from, long targets, long enemy) {
+        for (; targets != 0; targets &= targets - 1) {
+            int to = lowestSquare(targets);
+            moves[count++] = encodeMove(from, to, (enemy & bit(to)) != 0 ? CAPTURE : QUIET);
+        }
+        return count;
+    }
+
+    private int addPawnMove(int[] moves, int count, int from, int to, int flags) {
+        if ((bit(to) & (RANK_1 | RANK_8)) != 0) {
+            for (int type = QUEEN; type >= KNIGHT; type--) {
+                moves[count++] = encodeMove(from, to, PROMOTION | flags | (type - KNIGHT));
+            }
+        } else {
+            moves[count++] = encodeMove(from, to, flags);
+        }
+        return count;
+    }
+
+    private int addCastlingMoves(int[] moves, int count, int us, long occupied) {
+        int them = us ^ 1;
+        int kingSide = us == WHITE ? WHITE_KINGSIDE : BLACK_KINGSIDE;
+        int queenSide = us == WHITE ? WHITE_QUEENSIDE : BLACK_QUEENSIDE;
+        int home = us == WHITE ? square(0, 4) : square(7, 4);
+        if ((castlingRights & (kingSide | queenSide)) == 0 || mailbox[home] != pieceCode(us, KING)
+                || isSquareAttacked(home, them)) {
+            return count;
+        }
+        int rook = pieceCode(us, ROOK);
+        if ((castlingRights & kingSide) != 0 && mailbox[home + 3] == rook
+                && (occupied & (bit(home + 1) | bit(home + 2))) == 0
+                && !isSquareAttacked(home + 1, them) && !isSquareAttacked(home + 2, them)) {
+            moves[count++] = encodeMove(home, home + 2, KING_CASTLE);
+        }
+        if ((castlingRights & queenSide) != 0 && mailbox[home - 4] == rook
+                && (occupied & (bit(home - 1) | bit(home - 2) | bit(home - 3))) == 0
+                && !isSquareAttacked(home - 1, them) && !isSquareAttacked(home - 2, them)) {
+            moves[count++] = encodeMove(home, home - 2, QUEEN_CASTLE);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,135 @@
+package org.example.game;
+
+/**
+ * Static bitboard helpers and precomputed attack tables.
+ * Squares are numbered 0..63 from a1 to h8 (file = square & 7, rank = square >>> 3).
+ */
+public final class Bitboards {
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_H = FILE_A << 7;
+    public static final long RANK_1 = 0xFFL;
+    public static final long RANK_2 = RANK_1 << 8;
+    public static final long RANK_3 = RANK_1 << 16;
+    public static final long RANK_4 = RANK_1 << 24;
+    public static final long RANK_5 = RANK_1 << 32;
+    public static final long RANK_6 = RANK_1 << 40;
+    public static final long RANK_7 = RANK_1 << 48;
+    public static final long RANK_8 = RANK_1 << 56;
+
+    static final long[] KNIGHT_ATTACKS = new long[64];
+    static final long[] KING_ATTACKS = new long[64];
+    static final long[][] PAWN_ATTACKS = new long[2][64];
+    static final long[][] BETWEEN = new long[64][64];
+    static final long[][] LINE = new long[64][64];
+
+    static {
+        int[][] knightSteps = { { 2, 1 }, { 2, -1 }, { -2, 1 }, { -2, -1 }, { 1, 2 }, { -1, 2 }, { 1, -2 }, { -1, -2 } };
+        int[][] kingSteps = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 }, { 1, 1 }, { -1, -1 }, { 1, -1 }, { -1, 1 } };
+        for (int square = 0; square < 64; square++) {
+            KNIGHT_ATTACKS[square] = stepAttacks(square, knightSteps);
+            KING_ATTACKS[square] = stepAttacks(square, kingSteps);
+            PAWN_ATTACKS[BitboardPosition.WHITE][square] = stepAttacks(square, new int[][] { { 1, 1 }, { 1, -1 } });
+            PAWN_ATTACKS[BitboardPosition.BLACK][square] = stepAttacks(square, new int[][] { { -1, 1 }, { -1, -1 } });
+        }
+        for (int from = 0; from < 64; from++) {
+            for (int to = 0; to < 64; to++) {
+                if ((MagicTables.rookAttacks(from, 0L) & bit(to)) != 0) {
+                    BETWEEN[from][to] = MagicTables.rookAttacks(from, bit(to)) & MagicTables.rookAttacks(to, bit(from));
+                    LINE[from][to] = (MagicTables.rookAttacks(from, 0L) & MagicTables.rookAttacks(to, 0L))
+                            | bit(from) | bit(to);
+                } else if ((MagicTables.bishopAttacks(from, 0L) & bit(to)) != 0) {
+                    BETWEEN[from][to] = MagicTables.bishopAttacks(from, bit(to)) & MagicTables.bishopAttacks(to, bit(from));
+                    LINE[from][to] = (MagicTables.bishopAttacks(from, 0L) & MagicTables.bishopAttacks(to, 0L))
+                            | bit(from) | bit(to);
+                }
+            }
+        }
+    }
+
+    private Bitboards() {
+    }
+
+    public static int square(int rank, int file) {
+        return rank * 8 + file;
+    }
+
+    public static int rankOf(int square) {
+        return square >>> 3;
+    }
+
+    public static int fileOf(int square) {
+        return square & 7;
+    }
+
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    public static int lowestSquare(long bitboard) {
+        return Long.numberOfTrailingZeros(bitboard);
+    }
+
+    public static long knightAttacks(int square) {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    public static long kingAttacks(int square) {
+        return KING_ATTACKS[square];
+    }
+
+    public static long pawnAttacks(int color, int square) {
+        return PAWN_ATTACKS[color][square];
+    }
+
+    public static long rookAttacks(int square, long occupied) {
+        return MagicTables.rookAttacks(square, occupied);
+    }
+
+    public static long bishopAttacks(int square, long occupied) {
+        return MagicTables.bishopAttacks(square, occupied);
+    }
+
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    /**
+     * Squares strictly between two squares on a shared rank, file or diagonal, otherwise empty.
+     */
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    /**
+     * The whole rank, file or diagonal through two squares, edge to edge, or empty if they share none.
+     */
+    public static long line(int from, int to) {
+        return LINE[from][to];
+    }
+
+    /**
+     * Checks the squares between two cells of a Piece grid for blockers. The grid is indexed
+     * [rank][file] like the board model, so square = row * 8 + column is the usual a1..h8 numbering.
+     */
+    public static boolean isPathClear(int from, int to, Piece[][] board) {
+        for (long path = BETWEEN[from][to]; path != 0; path &= path - 1) {
+            int square = lowestSquare(path);
+            if (board[rankOf(square)][fileOf(square)] != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long stepAttacks(int square, int[][] steps) {
+        long attacks = 0L;
+        for (int[] step : steps) {
+            int rank = rankOf(square) + step[0];
+            int file = fileOf(square) + step[1];
+            if (rank >= 0 && rank < 8 && file >= 0 && file < 8) {
+                attacks |= bit(square(rank, file));
+            }
+        }
+        return attacks;
+    }
+}
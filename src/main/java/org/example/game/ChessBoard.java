@@ -1,95 +1,277 @@
 package org.example.game;
 
+import java.util.Arrays;
+
+/**
+ * The game state as Piece objects on an 8x8 grid, kept in step with a BitboardPosition. The grid
+ * uses the same canonical coordinates for both players: board[rank][file], so board[0][0] is a1
+ * and square = rank * 8 + file. Showing the board from Black's side is left to the GUI.
+ */
 public class ChessBoard {
-    private boolean isWhite;
+    public static final int NO_MOVE = -1;
+
     private Piece[][] board;
+    private final BitboardPosition bitboards = new BitboardPosition();
+    private final MoveList legalMoves = new MoveList();
+    // Grid objects taken off by each made move, indexed by ply, so unmakeMove restores the same instances
+    private Piece[] movedPieces = new Piece[256];
+    private Piece[] capturedPieces = new Piece[256];
 
-    public ChessBoard(boolean isWhite) {
+    public ChessBoard() {
         this.board = new Piece[8][8]; // Chessboard is 8x8
-        setupPieces(isWhite);
+        setupPieces();
+        syncBitboards();
+    }
+
+    public void reset() {
+        for (Piece[] row : board) {
+            Arrays.fill(row, null);
+        }
+        Arrays.fill(movedPieces, null);
+        Arrays.fill(capturedPieces, null);
+        setupPieces();
+        syncBitboards();
+    }
+
+    /**
+     * Replaces the whole game state with the position described by a FEN string. Throws
+     * IllegalArgumentException, leaving the board unchanged, if the FEN is malformed.
+     */
+    public void setFromFen(String fen) {
+        BitboardPosition parsed = new BitboardPosition();
+        parsed.setFromFen(fen);
+        bitboards.copyFrom(parsed);
+        Arrays.fill(movedPieces, null);
+        Arrays.fill(capturedPieces, null);
+        for (int square = 0; square < 64; square++) {
+            int code = bitboards.pieceAt(square);
+            if (code == BitboardPosition.NO_PIECE) {
+                placePiece(square, null);
+            } else {
+                PieceColor color = BitboardPosition.colorOf(code) == BitboardPosition.WHITE ? PieceColor.WHITE : PieceColor.BLACK;
+                placePiece(square, createPiece(BitboardPosition.typeOf(code), color, null));
+            }
+        }
+    }
+
+    public String toFen() {
+        return bitboards.toFen();
     }
 
     public Piece[][] getBoard() {
         return board;
     }
 
+    public BitboardPosition getBitboardPosition() {
+        return bitboards;
+    }
+
+    public long getZobristKey() {
+        return bitboards.getZobristKey();
+    }
+
     public Piece getPiece(int row, int column) {
         return board[row][column];
     }
 
+    public Piece getPiece(int square) {
+        return board[Bitboards.rankOf(square)][Bitboards.fileOf(square)];
+    }
+
     public void setPiece(int row, int column, Piece piece) {
         board[row][column] = piece;
+        bitboards.setPiece(Bitboards.square(row, column), pieceCode(piece));
         if (piece != null) {
-            piece.setPosition(new Position(row, column));
+            piece.setPosition(Position.of(row, column));
         }
     }
 
-    private void setupPieces(boolean isWhite) {
-        if (isWhite) {
-            // Place Rooks
-            board[0][0] = new Rook(PieceColor.BLACK, new Position(0, 0));
-            board[0][7] = new Rook(PieceColor.BLACK, new Position(0, 7));
-            board[7][0] = new Rook(PieceColor.WHITE, new Position(7, 0));
-            board[7][7] = new Rook(PieceColor.WHITE, new Position(7, 7));
-            // Place Knights
-            board[0][1] = new Knight(PieceColor.BLACK, new Position(0, 1));
-            board[0][6] = new Knight(PieceColor.BLACK, new Position(0, 6));
-            board[7][1] = new Knight(PieceColor.WHITE, new Position(7, 1));
-            board[7][6] = new Knight(PieceColor.WHITE, new Position(7, 6));
-            // Place Bishops
-            board[0][2] = new Bishop(PieceColor.BLACK, new Position(0, 2));
-            board[0][5] = new Bishop(PieceColor.BLACK, new Position(0, 5));
-            board[7][2] = new Bishop(PieceColor.WHITE, new Position(7, 2));
-            board[7][5] = new Bishop(PieceColor.WHITE, new Position(7, 5));
-            // Place Queens
-            board[0][3] = new Queen(PieceColor.BLACK, new Position(0, 3));
-            board[7][3] = new Queen(PieceColor.WHITE, new Position(7, 3));
-            // Place Kings
-            board[0][4] = new King(PieceColor.BLACK, new Position(0, 4));
-            board[7][4] = new King(PieceColor.WHITE, new Position(7, 4));
-            // Place Pawns
-            for (int i = 0; i < 8; i++) {
-                board[1][i] = new Pawn(PieceColor.BLACK, new Position(1, i));
-                board[6][i] = new Pawn(PieceColor.WHITE, new Position(6, i));
+    // Grid-only update; the caller keeps the bitboards in step
+    private void placePiece(int square, Piece piece) {
+        board[Bitboards.rankOf(square)][Bitboards.fileOf(square)] = piece;
+        if (piece != null) {
+            piece.setPosition(Position.of(square));
+        }
+    }
+
+    private static Piece createPiece(int type, PieceColor color, Position position) {
+        switch (type) {
+            case BitboardPosition.KNIGHT:
+                return new Knight(color, position);
+            case BitboardPosition.BISHOP:
+                return new Bishop(color, position);
+            case BitboardPosition.ROOK:
+                return new Rook(color, position);
+            case BitboardPosition.QUEEN:
+                return new Queen(color, position);
+            case BitboardPosition.KING:
+                return new King(color, position);
+            default:
+                return new Pawn(color, position);
+        }
+    }
+
+    public static int colorIndex(PieceColor color) {
+        return color == PieceColor.WHITE ? BitboardPosition.WHITE : BitboardPosition.BLACK;
+    }
+
+    public static int pieceCode(Piece piece) {
+        if (piece == null) {
+            return BitboardPosition.NO_PIECE;
+        }
+        int color = colorIndex(piece.getColor());
+        int type;
+        if (piece instanceof Pawn) {
+            type = BitboardPosition.PAWN;
+        } else if (piece instanceof Knight) {
+            type = BitboardPosition.KNIGHT;
+        } else if (piece instanceof Bishop) {
+            type = BitboardPosition.BISHOP;
+        } else if (piece instanceof Rook) {
+            type = BitboardPosition.ROOK;
+        } else if (piece instanceof Queen) {
+            type = BitboardPosition.QUEEN;
+        } else {
+            type = BitboardPosition.KING;
+        }
+        return BitboardPosition.pieceCode(color, type);
+    }
+
+    private void syncBitboards() {
+        bitboards.clear();
+        for (int row = 0; row < 8; row++) {
+            for (int column = 0; column < 8; column++) {
+                bitboards.setPiece(Bitboards.square(row, column), pieceCode(board[row][column]));
             }
         }
-        else {
+        bitboards.setCastlingRights(BitboardPosition.ALL_CASTLING);
+    }
+
+    private void setupPieces() {
+        PieceColor[] colors = { PieceColor.WHITE, PieceColor.BLACK };
+        int[] backRanks = { 0, 7 };
+        int[] pawnRanks = { 1, 6 };
+        for (int side = 0; side < 2; side++) {
+            PieceColor color = colors[side];
+            int back = backRanks[side];
             // Place Rooks
-            board[0][0] = new Rook(PieceColor.WHITE, new Position(0, 0));
-            board[0][7] = new Rook(PieceColor.WHITE, new Position(0, 7));
-            board[7][0] = new Rook(PieceColor.BLACK, new Position(7, 0));
-            board[7][7] = new Rook(PieceColor.BLACK, new Position(7, 7));
+            board[back][0] = new Rook(color, Position.of(back, 0));
+            board[back][7] = new Rook(color, Position.of(back, 7));
             // Place Knights
-            board[0][1] = new Knight(PieceColor.WHITE, new Position(0, 1));
-            board[0][6] = new Knight(PieceColor.WHITE, new Position(0, 6));
-            board[7][1] = new Knight(PieceColor.BLACK, new Position(7, 1));
-            board[7][6] = new Knight(PieceColor.BLACK, new Position(7, 6));
+            board[back][1] = new Knight(color, Position.of(back, 1));
+            board[back][6] = new Knight(color, Position.of(back, 6));
             // Place Bishops
-            board[0][2] = new Bishop(PieceColor.WHITE, new Position(0, 2));
-            board[0][5] = new Bishop(PieceColor.WHITE, new Position(0, 5));
-            board[7][2] = new Bishop(PieceColor.BLACK, new Position(7, 2));
-            board[7][5] = new Bishop(PieceColor.BLACK, new Position(7, 5));
-            // Place Queens
-            board[0][3] = new Queen(PieceColor.WHITE, new Position(0, 3));
-            board[7][3] = new Queen(PieceColor.BLACK, new Position(7, 3));
-            // Place Kings
-            board[0][4] = new King(PieceColor.WHITE, new Position(0, 4));
-            board[7][4] = new King(PieceColor.BLACK, new Position(7, 4));
+            board[back][2] = new Bishop(color, Position.of(back, 2));
+            board[back][5] = new Bishop(color, Position.of(back, 5));
+            // Place Queen and King
+            board[back][3] = new Queen(color, Position.of(back, 3));
+            board[back][4] = new King(color, Position.of(back, 4));
             // Place Pawns
             for (int i = 0; i < 8; i++) {
-                board[1][i] = new Pawn(PieceColor.WHITE, new Position(1, i));
-                board[6][i] = new Pawn(PieceColor.BLACK, new Position(6, i));
+                board[pawnRanks[side]][i] = new Pawn(color, Position.of(pawnRanks[side], i));
+            }
+        }
+    }
+
+    /**
+     * Plays the move if it is legal for the side to move, see findLegalMove. Returns false,
+     * leaving the board unchanged, if it is not.
+     */
+    public boolean movePiece(Move move) {
+        int legalMove = findLegalMove(move);
+        if (legalMove == NO_MOVE) {
+            return false;
+        }
+        makeMove(legalMove);
+        return true;
+    }
+
+    /**
+     * The legal move of the side to move between the two squares, or NO_MOVE. Matching against the
+     * generated moves recognises castling, en passant and promotion, which is always to a queen.
+     */
+    public int findLegalMove(Move move) {
+        int from = move.from.getSquare();
+        int to = move.to.getSquare();
+        bitboards.generateLegalMoves(legalMoves);
+        for (int i = 0; i < legalMoves.size(); i++) {
+            int legalMove = legalMoves.get(i);
+            if (BitboardPosition.moveFrom(legalMove) == from && BitboardPosition.moveTo(legalMove) == to) {
+                return legalMove; // Queen promotions are generated first
             }
         }
+        return NO_MOVE;
     }
 
-    public void movePiece(Move move) {
-        if (board[move.from.getRow()][move.from.getColumn()] != null &&
-                board[move.from.getRow()][move.from.getColumn()].isValidMove(move.to, board)) {
+    /**
+     * Plays a packed move for the side to move on both the bitboards and the Piece grid.
+     * Every call can be taken back with unmakeMove, in reverse order.
+     */
+    public void makeMove(int move) {
+        int ply = bitboards.getPly();
+        if (ply == movedPieces.length) {
+            movedPieces = Arrays.copyOf(movedPieces, ply * 2);
+            capturedPieces = Arrays.copyOf(capturedPieces, ply * 2);
+        }
+        int from = BitboardPosition.moveFrom(move);
+        int to = BitboardPosition.moveTo(move);
+        int flags = BitboardPosition.moveFlags(move);
+        int capturedSquare = capturedSquare(move, bitboards.getSideToMove());
+
+        Piece movingPiece = getPiece(from);
+        movedPieces[ply] = movingPiece;
+        capturedPieces[ply] = getPiece(capturedSquare);
+        placePiece(capturedSquare, null);
+        placePiece(from, null);
+        if (BitboardPosition.isPromotion(move)) {
+            placePiece(to, createPiece(BitboardPosition.promotionType(move), movingPiece.getColor(), null));
+        } else {
+            placePiece(to, movingPiece);
+        }
+        if (flags == BitboardPosition.KING_CASTLE) {
+            Piece rook = getPiece(to + 1);
+            placePiece(to + 1, null);
+            placePiece(to - 1, rook);
+        } else if (flags == BitboardPosition.QUEEN_CASTLE) {
+            Piece rook = getPiece(to - 2);
+            placePiece(to - 2, null);
+            placePiece(to + 1, rook);
+        }
+        bitboards.makeMove(move);
+    }
+
+    /**
+     * Takes back the last move played with makeMove or movePiece.
+     */
+    public void unmakeMove() {
+        int ply = bitboards.getPly() - 1;
+        int move = bitboards.lastMove();
+        int from = BitboardPosition.moveFrom(move);
+        int to = BitboardPosition.moveTo(move);
+        int flags = BitboardPosition.moveFlags(move);
+        bitboards.unmakeMove();
+
+        if (flags == BitboardPosition.KING_CASTLE) {
+            Piece rook = getPiece(to - 1);
+            placePiece(to - 1, null);
+            placePiece(to + 1, rook);
+        } else if (flags == BitboardPosition.QUEEN_CASTLE) {
+            Piece rook = getPiece(to + 1);
+            placePiece(to + 1, null);
+            placePiece(to - 2, rook);
+        }
+        placePiece(to, null);
+        placePiece(from, movedPieces[ply]);
+        placePiece(capturedSquare(move, bitboards.getSideToMove()), capturedPieces[ply]);
+        movedPieces[ply] = null;
+        capturedPieces[ply] = null;
+    }
 
-            board[move.to.getRow()][move.to.getColumn()] = board[move.from.getRow()][move.from.getColumn()];
-            board[move.to.getRow()][move.to.getColumn()].setPosition(move.to);
-            board[move.from.getRow()][move.from.getColumn()] = null;
+    private static int capturedSquare(int move, int mover) {
+        int to = BitboardPosition.moveTo(move);
+        if (BitboardPosition.moveFlags(move) != BitboardPosition.EN_PASSANT) {
+            return to;
         }
+        return mover == BitboardPosition.WHITE ? to - 8 : to + 8;
     }
-}
\ No newline at end of file
+}
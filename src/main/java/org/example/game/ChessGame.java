@@ -1,22 +1,22 @@
 package org.example.game;
 
+import org.example.protocol.Message;
+import org.example.protocol.MessageSender;
+
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.List;
 import java.util.ArrayList;
 
 public class ChessGame {
     private ChessBoard board;
     private boolean isWhite;
-    private ObjectOutputStream out;
-    private ObjectInputStream in;
+    private MessageSender out;
+    private final MoveList legalMoves = new MoveList();
 
-    public ChessGame(boolean isWhite, ObjectOutputStream out, ObjectInputStream in) {
+    public ChessGame(boolean isWhite, MessageSender out) {
         this.isWhite = isWhite;
-        this.board = new ChessBoard(isWhite);
+        this.board = new ChessBoard();
         this.out = out;
-        this.in = in;
     }
 
     public ChessBoard getBoard() {
@@ -24,10 +24,26 @@ public class ChessGame {
     }
 
     public void resetGame() {
-        this.board = new ChessBoard(isWhite);
+        board.reset();
+        selectedPosition = null;
 //        this.isWhite = true;
     }
 
+    // Throws IllegalArgumentException for a malformed FEN, see ChessBoard.setFromFen
+    public void loadFen(String fen) {
+        board.setFromFen(fen);
+        selectedPosition = null;
+    }
+
+    public String getFen() {
+        return board.toFen();
+    }
+
+    public PieceColor getSideToMove() {
+        return board.getBitboardPosition().getSideToMove() == BitboardPosition.WHITE
+                ? PieceColor.WHITE : PieceColor.BLACK;
+    }
+
     public PieceColor getPlayerColor() {
         return isWhite ? PieceColor.WHITE : PieceColor.BLACK;
     }
@@ -38,16 +54,21 @@ public class ChessGame {
         return selectedPosition != null;
     }
 
+    // Row and column are canonical, see Position
     public boolean handleSquareSelection(int row, int col) throws IOException {
+        return handleSquareSelection(Bitboards.square(row, col));
+    }
+
+    public boolean handleSquareSelection(int square) throws IOException {
         if (selectedPosition == null) {
-            Piece selectedPiece = board.getPiece(row, col);
+            Piece selectedPiece = board.getPiece(square);
             if (selectedPiece != null
                     && selectedPiece.getColor() == getPlayerColor()) {
-                selectedPosition = new Position(row, col);
+                selectedPosition = Position.of(square);
                 return false;
             }
         } else {
-            boolean moveMade = makeMove(new Move(selectedPosition, new Position(row, col)), true);
+            boolean moveMade = makeMove(new Move(selectedPosition, Position.of(square)), true);
             selectedPosition = null;
             return moveMade;
         }
@@ -60,172 +81,129 @@ public class ChessGame {
             return false;
         }
 
-        if (movingPiece.isValidMove(move.to, board.getBoard())) {
-            board.movePiece(move);
+        int legalMove = board.findLegalMove(move);
+        if (legalMove != ChessBoard.NO_MOVE) {
+            board.makeMove(legalMove);
             if (isYourTurn) {
-                out.writeObject(move);
-                out.flush();
+                send(Message.move(legalMove));
             }
             return true;
         }
         return false;
     }
 
-    public boolean isInCheck(PieceColor kingColor) {
-        Position kingPosition = findKingPosition(kingColor);
-        for (int row = 0; row < board.getBoard().length; row++) {
-            for (int col = 0; col < board.getBoard()[row].length; col++) {
-                Piece piece = board.getPiece(row, col);
-                if (piece != null && piece.getColor() != kingColor) {
-                    if (piece.isValidMove(kingPosition, board.getBoard())) {
-                        return true;
-                    }
-                }
-            }
+    /**
+     * Plays a packed move received from the opponent. It is only accepted if it is exactly one of
+     * the legal moves, promotion piece included.
+     */
+    public boolean makeMove(int move) {
+        if (!board.getBitboardPosition().isLegalMove(move)) {
+            return false;
         }
-        return false;
+        board.makeMove(move);
+        selectedPosition = null;
+        return true;
     }
 
-    private Position findKingPosition(PieceColor color) {
-        for (int row = 0; row < board.getBoard().length; row++) {
-            for (int col = 0; col < board.getBoard()[row].length; col++) {
-                Piece piece = board.getPiece(row, col);
-                if (piece instanceof King && piece.getColor() == color) {
-                    return new Position(row, col);
-                }
-            }
-        }
-        throw new RuntimeException("King not found, which should never happen.");
+    /**
+     * Plays a move given in SAN, e.g. "Nf3" or "exd8=Q". Returns false if it is not a legal move
+     * of the side to move or does not name exactly one.
+     */
+    public boolean makeSanMove(String san) {
+        int move = San.parse(board.getBitboardPosition(), san);
+        return move != San.NO_MOVE && makeMove(move);
     }
 
-    public boolean isCheckmate(PieceColor kingColor) {
-        if (!isInCheck(kingColor)) {
-            return false;
-        }
+    public String toSan(int move) {
+        return San.toSan(board.getBitboardPosition(), move);
+    }
 
-        Position kingPosition = findKingPosition(kingColor);
-        King king = (King) board.getPiece(kingPosition.getRow(), kingPosition.getColumn());
-
-        for (int rowOffset = -1; rowOffset <= 1; rowOffset++) {
-            for (int colOffset = -1; colOffset <= 1; colOffset++) {
-                if (rowOffset == 0 && colOffset == 0) {
-                    continue;
-                }
-                Position newPosition = new Position(kingPosition.getRow() + rowOffset,
-                        kingPosition.getColumn() + colOffset);
-
-                if (isPositionOnBoard(newPosition) && king.isValidMove(newPosition, board.getBoard())
-                        && !wouldBeInCheckAfterMove(kingColor, kingPosition, newPosition)) {
-                    return false;
-                }
-            }
+    /**
+     * Takes back our last move after the server refused it. Returns false if that move is not
+     * the last one played.
+     */
+    public boolean takeBack(int move) {
+        BitboardPosition bitboards = board.getBitboardPosition();
+        if (bitboards.getPly() == 0 || bitboards.lastMove() != move) {
+            return false;
         }
+        board.unmakeMove();
+        selectedPosition = null;
         return true;
     }
 
-    private boolean isPositionOnBoard(Position position) {
-        return position.getRow() >= 0 && position.getRow() < board.getBoard().length &&
-                position.getColumn() >= 0 && position.getColumn() < board.getBoard()[0].length;
+    // Does nothing outside a network game
+    public void send(Message message) throws IOException {
+        if (out != null) {
+            out.send(message);
+        }
     }
 
-    private boolean wouldBeInCheckAfterMove(PieceColor kingColor, Position from, Position to) {
-        Piece temp = board.getPiece(to.getRow(), to.getColumn());
-        board.setPiece(to.getRow(), to.getColumn(), board.getPiece(from.getRow(), from.getColumn()));
-        board.setPiece(from.getRow(), from.getColumn(), null);
-
-        boolean inCheck = isInCheck(kingColor);
+    public boolean isNetworkGame() {
+        return out != null;
+    }
 
-        board.setPiece(from.getRow(), from.getColumn(), board.getPiece(to.getRow(), to.getColumn()));
-        board.setPiece(to.getRow(), to.getColumn(), temp);
+    public boolean isInCheck(PieceColor kingColor) {
+        return board.getBitboardPosition().isInCheck(ChessBoard.colorIndex(kingColor));
+    }
 
-        return inCheck;
+    // Both outcomes are only decided for the side to move, from one pass of the legal generator
+    public boolean isCheckmate(PieceColor kingColor) {
+        return isInCheck(kingColor) && hasNoLegalMoves(kingColor);
     }
 
-    public List<Position> getLegalMovesForPieceAt(Position position) {
-        Piece selectedPiece = board.getPiece(position.getRow(), position.getColumn());
-        if (selectedPiece == null)
-            return new ArrayList<>();
+    public boolean isStalemate(PieceColor color) {
+        return !isInCheck(color) && hasNoLegalMoves(color);
+    }
 
-        List<Position> legalMoves = new ArrayList<>();
-        switch (selectedPiece.getClass().getSimpleName()) {
-            case "Pawn":
-                addPawnMoves(position, selectedPiece.getColor(), legalMoves);
-                break;
-            case "Rook":
-                addLineMoves(position, new int[][] { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } }, legalMoves);
-                break;
-            case "Knight":
-                addSingleMoves(position, new int[][] { { 2, 1 }, { 2, -1 }, { -2, 1 }, { -2, -1 }, { 1, 2 }, { -1, 2 },
-                        { 1, -2 }, { -1, -2 } }, legalMoves);
-                break;
-            case "Bishop":
-                addLineMoves(position, new int[][] { { 1, 1 }, { -1, -1 }, { 1, -1 }, { -1, 1 } }, legalMoves);
-                break;
-            case "Queen":
-                addLineMoves(position, new int[][] { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 }, { 1, 1 }, { -1, -1 },
-                        { 1, -1 }, { -1, 1 } }, legalMoves);
-                break;
-            case "King":
-                addSingleMoves(position, new int[][] { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 }, { 1, 1 }, { -1, -1 },
-                        { 1, -1 }, { -1, 1 } }, legalMoves);
-                break;
+    private boolean hasNoLegalMoves(PieceColor color) {
+        BitboardPosition bitboards = board.getBitboardPosition();
+        if (bitboards.getSideToMove() != ChessBoard.colorIndex(color)) {
+            return false;
         }
-        return legalMoves;
+        bitboards.generateLegalMoves(legalMoves);
+        return legalMoves.isEmpty();
     }
 
-    private void addLineMoves(Position position, int[][] directions, List<Position> legalMoves) {
-        for (int[] d : directions) {
-            Position newPos = new Position(position.getRow() + d[0], position.getColumn() + d[1]);
-            while (isPositionOnBoard(newPos)) {
-                if (board.getPiece(newPos.getRow(), newPos.getColumn()) == null) {
-                    legalMoves.add(new Position(newPos.getRow(), newPos.getColumn()));
-                    newPos = new Position(newPos.getRow() + d[0], newPos.getColumn() + d[1]);
-                } else {
-                    if (board.getPiece(newPos.getRow(), newPos.getColumn()).getColor() != board
-                            .getPiece(position.getRow(), position.getColumn()).getColor()) {
-                        legalMoves.add(newPos);
-                    }
-                    break;
-                }
-            }
-        }
+    public boolean isPinned(Position position) {
+        return isPinned(position.getSquare());
     }
 
-    private void addSingleMoves(Position position, int[][] moves, List<Position> legalMoves) {
-        for (int[] move : moves) {
-            Position newPos = new Position(position.getRow() + move[0], position.getColumn() + move[1]);
-            if (isPositionOnBoard(newPos) && (board.getPiece(newPos.getRow(), newPos.getColumn()) == null ||
-                    board.getPiece(newPos.getRow(), newPos.getColumn()).getColor() != board
-                            .getPiece(position.getRow(), position.getColumn()).getColor())) {
-                legalMoves.add(newPos);
-            }
+    public boolean isPinned(int square) {
+        int piece = board.getBitboardPosition().pieceAt(square);
+        if (piece == BitboardPosition.NO_PIECE) {
+            return false;
         }
+        long pinned = board.getBitboardPosition().pinned(BitboardPosition.colorOf(piece));
+        return (pinned & Bitboards.bit(square)) != 0;
     }
 
-    private void addPawnMoves(Position position, PieceColor color, List<Position> legalMoves) {
-        int direction = color == PieceColor.WHITE ? -1 : 1;
-        Position newPos = new Position(position.getRow() + direction, position.getColumn());
-        if (isPositionOnBoard(newPos) && board.getPiece(newPos.getRow(), newPos.getColumn()) == null) {
-            legalMoves.add(newPos);
+    public List<Position> getLegalMovesForPieceAt(Position position) {
+        List<Position> legalMoves = new ArrayList<>();
+        for (long targets = getLegalTargets(position.getSquare()); targets != 0; targets &= targets - 1) {
+            legalMoves.add(Position.of(Long.numberOfTrailingZeros(targets)));
         }
+        return legalMoves;
+    }
 
-        if ((color == PieceColor.WHITE && position.getRow() == 6)
-                || (color == PieceColor.BLACK && position.getRow() == 1)) {
-            newPos = new Position(position.getRow() + 2 * direction, position.getColumn());
-            Position intermediatePos = new Position(position.getRow() + direction, position.getColumn());
-            if (isPositionOnBoard(newPos) && board.getPiece(newPos.getRow(), newPos.getColumn()) == null
-                    && board.getPiece(intermediatePos.getRow(), intermediatePos.getColumn()) == null) {
-                legalMoves.add(newPos);
-            }
+    /**
+     * Strictly legal target squares of the piece on square, including castling and en passant,
+     * as a bitboard. Empty unless the piece belongs to the side to move. Allocates nothing.
+     */
+    public long getLegalTargets(int square) {
+        BitboardPosition bitboards = board.getBitboardPosition();
+        int piece = bitboards.pieceAt(square);
+        if (piece == BitboardPosition.NO_PIECE || BitboardPosition.colorOf(piece) != bitboards.getSideToMove()) {
+            return 0L;
         }
-
-        int[] captureCols = { position.getColumn() - 1, position.getColumn() + 1 };
-        for (int col : captureCols) {
-            newPos = new Position(position.getRow() + direction, col);
-            if (isPositionOnBoard(newPos) && board.getPiece(newPos.getRow(), newPos.getColumn()) != null &&
-                    board.getPiece(newPos.getRow(), newPos.getColumn()).getColor() != color) {
-                legalMoves.add(newPos);
+        long targets = 0L;
+        bitboards.generateLegalMoves(legalMoves);
+        for (int i = 0; i < legalMoves.size(); i++) {
+            int move = legalMoves.get(i);
+            if (BitboardPosition.moveFrom(move) == square) {
+                targets |= Bitboards.bit(BitboardPosition.moveTo(move)); // Promotions share a target
             }
         }
+        return targets;
     }
 }
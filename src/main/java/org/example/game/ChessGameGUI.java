@@ -1,18 +1,43 @@
 package org.example.game;
 
+import org.example.engine.OpeningBook;
+import org.example.engine.Search;
+import org.example.engine.SearchLimits;
+import org.example.engine.SearchResult;
+import org.example.protocol.Message;
+import org.example.protocol.MessageSender;
+
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.io.*;
-import java.io.ObjectInputStream;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+/**
+ * The board window. Create one with forNetworkGame or forComputerGame, which finish setting the
+ * window up and show it once the constructor has returned.
+ */
 public class ChessGameGUI extends JFrame {
+    private static final long serialVersionUID = 1L;
+
+    // Indexed by screen row and column. The board model is canonical (see Position); turning it
+    // round for the Black player happens only in toScreenRow/toScreenColumn and their inverses.
     private final ChessSquareComponent[][] squares = new ChessSquareComponent[8][8];
+    private final boolean flipped;
+    private static final long COMPUTER_MOVE_MILLIS = 2000;
+    private static final String OPENING_BOOK_FILE = "openings.book";
+
     private final ChessGame game;
+    private final transient Search engine; // null when both players are human
+    private final transient ExecutorService engineExecutor;
+    private boolean computerThinking;
+    private int gameGeneration; // Bumped on reset so a search for an old game is ignored
+    private boolean drawOffered; // We offered a draw and the opponent has not answered yet
 
     private final Map<Class<? extends Piece>, String> pieceUnicodeMap = new HashMap<>() {
         {
@@ -25,8 +50,47 @@ public class ChessGameGUI extends JFrame {
         }
     };
 
-    public ChessGameGUI(boolean isWhite, ObjectOutputStream out, ObjectInputStream in) {
-        game = new ChessGame(isWhite, out, in);
+    public static ChessGameGUI forNetworkGame(boolean isWhite, MessageSender out) {
+        ChessGameGUI gui = new ChessGameGUI(new ChessGame(isWhite, out), null);
+        gui.open();
+        return gui;
+    }
+
+    // Single player mode: the computer plays the other colour
+    public static ChessGameGUI forComputerGame(boolean isWhite) {
+        Search engine = new Search();
+        if (new File(OPENING_BOOK_FILE).isFile()) {
+            try {
+                engine.setOpeningBook(OpeningBook.open(new File(OPENING_BOOK_FILE).toPath()));
+            } catch (IOException e) {
+                System.out.println("Opening book not loaded: " + e.getMessage());
+            }
+        }
+        ChessGameGUI gui = new ChessGameGUI(new ChessGame(isWhite, null), engine);
+        // Progress goes to the title, where the finished search reports too; posted before the result
+        engine.setListener(iteration -> SwingUtilities.invokeLater(() -> gui.showProgress(iteration)));
+        gui.open();
+        if (gui.game.getSideToMove() != gui.game.getPlayerColor()) {
+            gui.requestComputerMove();
+        }
+        return gui;
+    }
+
+    // Only assigns fields: listeners and the engine thread see the window once open() runs
+    private ChessGameGUI(ChessGame game, Search engine) {
+        this.game = game;
+        this.engine = engine;
+        this.flipped = game.getPlayerColor() == PieceColor.BLACK;
+        // One engine thread, so a search for a reset game finishes before the next one starts
+        this.engineExecutor = engine == null ? null : Executors.newSingleThreadExecutor(runnable -> {
+            Thread engineThread = new Thread(runnable);
+            engineThread.setName("ChessEngineThread");
+            engineThread.setDaemon(true);
+            return engineThread;
+        });
+    }
+
+    private void open() {
         setTitle("Chess Game");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLayout(new GridLayout(8, 8));
@@ -63,7 +127,7 @@ public class ChessGameGUI extends JFrame {
         ChessBoard board = game.getBoard();
         for (int row = 0; row < 8; row++) {
             for (int col = 0; col < 8; col++) {
-                Piece piece = board.getPiece(row, col);
+                Piece piece = board.getPiece(toBoardRow(row), toBoardColumn(col));
                 if (piece != null) {
                     // If using Unicode symbols:
                     String symbol = pieceUnicodeMap.get(piece.getClass());
@@ -76,15 +140,38 @@ public class ChessGameGUI extends JFrame {
         }
     }
 
+    // White sees rank 8 at the top, Black sees the board turned round with h1 at the top left
+    private int toBoardRow(int screenRow) {
+        return flipped ? screenRow : 7 - screenRow;
+    }
+
+    private int toBoardColumn(int screenColumn) {
+        return flipped ? 7 - screenColumn : screenColumn;
+    }
+
+    private int toScreenRow(Position position) {
+        return toBoardRow(position.getRow()); // The mapping is its own inverse
+    }
+
+    private int toScreenColumn(Position position) {
+        return toBoardColumn(position.getColumn());
+    }
+
     private void handleSquareClick(int row, int col) throws IOException {
-        boolean moveResult = game.handleSquareSelection(row, col);
+        if (computerThinking) {
+            return;
+        }
+        Position clicked = Position.of(toBoardRow(row), toBoardColumn(col));
+        boolean moveResult = game.handleSquareSelection(clicked.getRow(), clicked.getColumn());
         clearHighlights();
         if (moveResult) {
             refreshBoard();
             checkGameState();
-            checkGameOver();
+            if (!checkGameOver() && engine != null) {
+                requestComputerMove();
+            }
         } else if (game.isPieceSelected()) {
-            highlightLegalMoves(new Position(row, col));
+            highlightLegalMoves(clicked);
         }
         refreshBoard();
     }
@@ -102,7 +189,7 @@ public class ChessGameGUI extends JFrame {
     private void highlightLegalMoves(Position position) {
         List<Position> legalMoves = game.getLegalMovesForPieceAt(position);
         for (Position move : legalMoves) {
-            squares[move.getRow()][move.getColumn()].setBackground(Color.GREEN);
+            squares[toScreenRow(move)][toScreenColumn(move)].setBackground(Color.GREEN);
         }
     }
 
@@ -118,34 +205,174 @@ public class ChessGameGUI extends JFrame {
         JMenuBar menuBar = new JMenuBar();
         JMenu gameMenu = new JMenu("Game");
         JMenuItem resetItem = new JMenuItem("Reset");
-        resetItem.addActionListener(e -> resetGame());
+        resetItem.addActionListener(e -> requestReset());
         gameMenu.add(resetItem);
+        if (game.isNetworkGame()) {
+            JMenuItem resignItem = new JMenuItem("Resign");
+            resignItem.addActionListener(e -> resign());
+            gameMenu.add(resignItem);
+            JMenuItem drawItem = new JMenuItem("Offer Draw");
+            drawItem.addActionListener(e -> offerDraw());
+            gameMenu.add(drawItem);
+        }
         menuBar.add(gameMenu);
         setJMenuBar(menuBar);
     }
 
+    // A reset from the menu restarts the opponent's board as well
+    private void requestReset() {
+        sendToOpponent(Message.RESET);
+        resetGame();
+    }
+
+    private void resign() {
+        sendToOpponent(Message.RESIGN);
+        int response = JOptionPane.showConfirmDialog(this, "You resigned. Would you like to play again?", "Game Over",
+                JOptionPane.YES_NO_OPTION);
+        if (response == JOptionPane.YES_OPTION) {
+            requestReset();
+        }
+    }
+
+    private void offerDraw() {
+        drawOffered = true;
+        sendToOpponent(Message.DRAW_OFFER);
+    }
+
+    private void sendToOpponent(Message message) {
+        try {
+            game.send(message);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Could not reach the opponent: " + e.getMessage(), "Connection Error",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     private void resetGame() {
+        drawOffered = false;
+        if (engine != null) {
+            engine.stop();
+            gameGeneration++;
+            computerThinking = false;
+        }
         game.resetGame();
         refreshBoard();
+        if (engine != null && game.getSideToMove() != game.getPlayerColor()) {
+            requestComputerMove();
+        }
     }
 
-    private void checkGameOver() {
+    // Returns true when the game ended
+    private boolean checkGameOver() {
+        String message = null;
         if (game.isCheckmate(game.getPlayerColor())) {
-            int response = JOptionPane.showConfirmDialog(this, "Checkmate! Would you like to play again?", "Game Over",
-                    JOptionPane.YES_NO_OPTION);
-            if (response == JOptionPane.YES_OPTION) {
-                resetGame();
-            } else {
-                System.exit(0);
-            }
+            message = "Checkmate! Would you like to play again?";
+        } else if (engine != null && game.isCheckmate(game.getSideToMove())) {
+            message = "Checkmate! You win. Would you like to play again?";
+        } else if (game.isStalemate(game.getSideToMove())) {
+            message = "Stalemate! Would you like to play again?";
+        }
+        if (message == null) {
+            return false;
         }
+        int response = JOptionPane.showConfirmDialog(this, message, "Game Over", JOptionPane.YES_NO_OPTION);
+        if (response == JOptionPane.YES_OPTION) {
+            resetGame();
+        } else {
+            System.exit(0);
+        }
+        return true;
     }
 
-    public void makeMove(Move move, boolean isYourTurn) throws IOException {
-        game.makeMove(move, isYourTurn);
+    // Searches on a background thread with a private copy of the position, then plays the
+    // result through ChessGame.makeMove like any other move
+    private void requestComputerMove() {
+        computerThinking = true;
+        int generation = gameGeneration;
+        BitboardPosition snapshot = new BitboardPosition();
+        snapshot.copyFrom(game.getBoard().getBitboardPosition());
+        engineExecutor.execute(() -> {
+            SearchResult result = engine.search(snapshot, SearchLimits.moveTime(COMPUTER_MOVE_MILLIS));
+            SwingUtilities.invokeLater(() -> {
+                if (generation != gameGeneration) {
+                    return;
+                }
+                computerThinking = false;
+                playComputerMove(result);
+            });
+        });
+    }
+
+    private void showProgress(SearchResult iteration) {
+        if (computerThinking) {
+            setTitle("Chess Game - computer thinking: depth " + iteration.getDepth());
+        }
+    }
+
+    private void playComputerMove(SearchResult result) {
+        if (result.getBestMove() == 0) {
+            return; // No legal move: the game is already over
+        }
+        game.makeMove(result.getBestMove()); // Packed, so an underpromotion stays one
+        setTitle(result.getDepth() == 0 ? "Chess Game - computer: book move"
+                : "Chess Game - computer: depth " + result.getDepth() + ", " + result.getNodesPerSecond() + " nps");
+        refreshBoard();
+        checkGameState();
+        checkGameOver();
+    }
+
+    /**
+     * Applies a message from the opponent. May be called from any thread.
+     */
+    public void handleMessage(Message message) {
+        SwingUtilities.invokeLater(() -> {
+            switch (message.getType()) {
+                case MOVE:
+                    if (game.makeMove(message.getMove())) {
+                        clearHighlights();
+                        refreshBoard();
+                        checkGameState();
+                        checkGameOver();
+                    }
+                    break;
+                case RESET:
+                    resetGame();
+                    break;
+                case RESIGN:
+                    JOptionPane.showMessageDialog(this, "Your opponent resigned. You win!", "Game Over",
+                            JOptionPane.INFORMATION_MESSAGE);
+                    break;
+                case DRAW_OFFER:
+                    handleDrawOffer();
+                    break;
+                case REJECT:
+                    if (game.takeBack(message.getMove())) {
+                        clearHighlights();
+                        refreshBoard();
+                        JOptionPane.showMessageDialog(this, "The server refused that move.", "Illegal Move",
+                                JOptionPane.WARNING_MESSAGE);
+                    }
+                    break;
+            }
+        });
+    }
+
+    // An offer sent back while ours is open means both sides agreed
+    private void handleDrawOffer() {
+        if (drawOffered) {
+            drawOffered = false;
+            JOptionPane.showMessageDialog(this, "Draw agreed.", "Game Over", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        int response = JOptionPane.showConfirmDialog(this, "Your opponent offers a draw. Accept?", "Draw Offer",
+                JOptionPane.YES_NO_OPTION);
+        if (response == JOptionPane.YES_OPTION) {
+            sendToOpponent(Message.DRAW_OFFER);
+            JOptionPane.showMessageDialog(this, "Draw agreed.", "Game Over", JOptionPane.INFORMATION_MESSAGE);
+        }
     }
 
     public static void main(String[] args) {
-//        SwingUtilities.invokeLater(ChessGameGUI::new);
+        SwingUtilities.invokeLater(() -> forComputerGame(true));
     }
 }
\ No newline at end of file
@@ -1,13 +1,14 @@
 package org.example.game;
 
+import org.example.protocol.Connection;
+import org.example.protocol.Message;
+
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.EOFException;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.net.*;
 import java.util.ArrayList;
 import java.util.Enumeration;
@@ -318,7 +319,7 @@ class ChessServer {
             // Crucially, update GUI state *before* blocking on accept()
             // This is handled by the caller (ChessGameLAN) updating menus after starting the thread.
 
-            Socket clientSocket = serverSocket.accept();
+            clientSocket = serverSocket.accept();
 
             // Only 1 client is accepted. Close server socket to prevent more.
             if (serverSocket != null && !serverSocket.isClosed()) {
@@ -333,41 +334,14 @@ class ChessServer {
             logger.log("Client connected: " + clientSocket.getInetAddress().getHostAddress() + ". Ready for game.");
             // Server is running and has a client.
 
-            ObjectOutputStream out = new ObjectOutputStream(clientSocket.getOutputStream());
-            ObjectInputStream in = new ObjectInputStream(clientSocket.getInputStream());
-
-            chessGameGUI = new ChessGameGUI(true, out, in);
+            Connection connection = new Connection(clientSocket, this::onMessage);
+            chessGameGUI = ChessGameGUI.forNetworkGame(true, connection);
 
-            // Communication loop with the clients
+            // Communication loop with the client: every message is dispatched as soon as it is decoded
             communicationThread = Thread.currentThread(); // Store for potential interrupt
-            while (running && clientSocket != null && !clientSocket.isClosed() && !Thread.currentThread().isInterrupted()) {
-                try {
-                    Object obj = in.readObject();
-                    if (obj instanceof Move move) {
-                        logger.log("Received move from client: " + move);
-                        chessGameGUI.makeMove(move, false);
-                    }
-
-                    if (clientSocket.getInputStream().read() == -1) {
-                        logger.log("Client disconnected (EOF reached).");
-                        break; // Client closed connection
-                    }
-                    // Simulate some processing
-                    Thread.sleep(200); // Check periodically
-                } catch (SocketException se) {
-                    if (running) logger.log("Client connection issue: " + se.getMessage() + ". Assuming client disconnected.");
-                    break;
-                } catch (IOException e) {
-                    if (running) logger.log("IO Error during client communication: " + e.getMessage());
-                    break; // Error in communication
-                } catch (InterruptedException e) {
-                    logger.log("Server communication thread interrupted.");
-                    Thread.currentThread().interrupt(); // Preserve interrupt status
-                    break;
-                } catch (ClassNotFoundException e) {
-                    throw new RuntimeException(e);
-                }
-            }
+            String reason = connection.run();
+            if (running) logger.log("Client disconnected: " + reason + ".");
+            logger.log("Move latency (round trip): " + connection.getMoveLatency());
 
         } catch (BindException e) {
             logger.log("SERVER ERROR: Port " + port + " is already in use. Cannot start server. " + e.getMessage());
@@ -389,6 +363,11 @@ class ChessServer {
         }
     }
 
+    private void onMessage(Message message) {
+        logger.log("Received from client: " + message);
+        chessGameGUI.handleMessage(message);
+    }
+
     private void cleanUpResources() {
         running = false; // Ensure it's marked as not running
         logger.log("Server cleaning up resources...");
@@ -477,46 +456,15 @@ class ChessClient {
             if (logger != null)
                 logger.log("CLIENT: Successfully connected to server: " + serverIp + ":" + serverPort);
 
-            ObjectOutputStream out = new ObjectOutputStream(socket.getOutputStream());
-            ObjectInputStream in = new ObjectInputStream(socket.getInputStream());
-
-            chessGameGUI = new ChessGameGUI(false, out, in);
-
-            // TODO: Implement actual game data exchange here
-            while (connected && socket != null && !socket.isClosed() && !Thread.currentThread().isInterrupted()) {
-                try {
-                    Object obj = in.readObject();
-                    if (obj instanceof Move move) {
-                        if (logger != null)
-                            logger.log("Received move from server: " + move);
-                        chessGameGUI.makeMove(move, false);
-                    }
+            Connection connection = new Connection(socket, this::onMessage);
+            chessGameGUI = ChessGameGUI.forNetworkGame(false, connection);
 
-                    if (socket.getInputStream().read() == -1) { // Check for server disconnect
-                        if (logger != null)
-                            logger.log("CLIENT: Server disconnected (EOF reached).");
-                        break;
-                    }
-                    Thread.sleep(200); // Simulate activity or keep-alive check
-                } catch (SocketException se) {
-                    if(connected)
-                        if (logger != null)
-                            logger.log("CLIENT: Connection issue: " + se.getMessage() + ". Assuming server disconnected.");
-                    break;
-                } catch (IOException e) {
-                    if(connected)
-                        if (logger != null)
-                            logger.log("CLIENT: IO Error: " + e.getMessage());
-                    break;
-                } catch (InterruptedException e) {
-                    if (logger != null)
-                        logger.log("CLIENT: Communication thread interrupted.");
-                    Thread.currentThread().interrupt(); // Preserve interrupt status
-                    break;
-                } catch (ClassNotFoundException e) {
-                    throw new RuntimeException(e);
-                }
-            }
+            // Blocks until the server disconnects, dispatching each message as soon as it is decoded
+            String reason = connection.run();
+            if (connected && logger != null)
+                logger.log("CLIENT: Server disconnected: " + reason + ".");
+            if (logger != null)
+                logger.log("CLIENT: Move latency (round trip): " + connection.getMoveLatency());
         } catch (SocketTimeoutException ste) {
             if (logger != null)
                 logger.log("CLIENT: Connection timed out. Server not responding at " + serverIp + ":" + serverPort);
@@ -538,6 +486,12 @@ class ChessClient {
         }
     }
 
+    private void onMessage(Message message) {
+        if (logger != null)
+            logger.log("Received from server: " + message);
+        chessGameGUI.handleMessage(message);
+    }
+
     private void cleanUpConnection() {
         connected = false; // Ensure status is updated
         try {
@@ -562,7 +516,15 @@ class ChessClient {
         if (communicationThread != null && communicationThread.isAlive()) {
             communicationThread.interrupt(); // Interrupt if stuck
         }
-        // The finally block in connect() will handle actual socket closing and callback.
+        try {
+            if (socket != null) {
+                socket.close(); // A blocked read only returns once the socket is closed
+            }
+        } catch (IOException e) {
+            if (logger != null)
+                logger.log("CLIENT: Error closing client socket: " + e.getMessage());
+        }
+        // The finally block in connect() will handle the callback.
     }
 
     public boolean isConnected() {
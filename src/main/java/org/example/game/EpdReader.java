@@ -0,0 +1,198 @@
+package org.example.game;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Streams the records of an EPD file, one line each: the four FEN position fields (move counters
+ * are accepted too) followed by operations such as {@code bm Nf3; id "WAC.001";} or the perft
+ * counts {@code ;D1 20 ;D2 400}. Blank lines and lines starting with '#' are skipped.
+ * <p>
+ * Built for files with millions of records: the reader keeps one char buffer and one line buffer
+ * and parses straight into a caller's BitboardPosition, so next() and getLongOperation() allocate
+ * nothing per record. Only getOperation() creates a String.
+ */
+public class EpdReader implements Closeable {
+    private final Reader reader;
+    private final char[] buffer = new char[1 << 16];
+    private int bufferPosition;
+    private int bufferLimit;
+    private final StringBuilder line = new StringBuilder(256);
+    private int operationsStart;
+    private long lineNumber;
+
+    public EpdReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    public EpdReader(InputStream in) {
+        this(new InputStreamReader(in, StandardCharsets.US_ASCII));
+    }
+
+    public static EpdReader open(Path file) throws IOException {
+        return new EpdReader(Files.newInputStream(file));
+    }
+
+    /**
+     * Reads the next record into position. Returns false at the end of the input. A malformed
+     * record throws IllegalArgumentException naming its line number.
+     */
+    public boolean next(BitboardPosition position) throws IOException {
+        while (readLine()) {
+            int start = 0;
+            while (start < line.length() && (line.charAt(start) == ' ' || line.charAt(start) == '\t')) {
+                start++;
+            }
+            if (start == line.length() || line.charAt(start) == '#') {
+                continue;
+            }
+            try {
+                operationsStart = position.parseFen(line, start, line.length());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Line " + lineNumber + ": " + e.getMessage(), e);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    // The current record as read, valid until the next call to next()
+    public CharSequence getLine() {
+        return line;
+    }
+
+    /**
+     * The operands of the given operation in the current record, without the terminating ';' and
+     * with surrounding quotes removed, or null if the record has no such operation.
+     */
+    public String getOperation(String opcode) {
+        int operand = findOperand(opcode);
+        if (operand < 0) {
+            return null;
+        }
+        int end = operandEnd(operand);
+        while (end > operand && line.charAt(end - 1) == ' ') {
+            end--;
+        }
+        if (end - operand >= 2 && line.charAt(operand) == '"' && line.charAt(end - 1) == '"') {
+            operand++;
+            end--;
+        }
+        return line.substring(operand, end);
+    }
+
+    /**
+     * The integer operand of the given operation, such as the node count of "D5", or missing if
+     * the record has no such operation.
+     */
+    public long getLongOperation(String opcode, long missing) {
+        int operand = findOperand(opcode);
+        if (operand < 0) {
+            return missing;
+        }
+        int end = operandEnd(operand);
+        boolean negative = operand < end && line.charAt(operand) == '-';
+        long value = 0;
+        int digits = 0;
+        for (int i = negative ? operand + 1 : operand; i < end && line.charAt(i) >= '0' && line.charAt(i) <= '9'; i++) {
+            value = value * 10 + line.charAt(i) - '0';
+            digits++;
+        }
+        if (digits == 0) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": operation " + opcode + " is not a number");
+        }
+        return negative ? -value : value;
+    }
+
+    // Index of the first operand character of opcode, or -1
+    private int findOperand(String opcode) {
+        int i = operationsStart;
+        int length = line.length();
+        while (i < length) {
+            while (i < length && (line.charAt(i) == ' ' || line.charAt(i) == '\t' || line.charAt(i) == ';')) {
+                i++;
+            }
+            int opcodeStart = i;
+            while (i < length && line.charAt(i) != ' ' && line.charAt(i) != '\t' && line.charAt(i) != ';') {
+                i++;
+            }
+            if (i - opcodeStart == opcode.length() && matches(opcodeStart, opcode)) {
+                while (i < length && (line.charAt(i) == ' ' || line.charAt(i) == '\t')) {
+                    i++;
+                }
+                return i;
+            }
+            i = operandEnd(i);
+        }
+        return -1;
+    }
+
+    private boolean matches(int start, String opcode) {
+        for (int i = 0; i < opcode.length(); i++) {
+            if (line.charAt(start + i) != opcode.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The ';' ending the operation, skipping any inside quoted operands, or the end of the line
+    private int operandEnd(int i) {
+        boolean quoted = false;
+        for (; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ';' && !quoted) {
+                return i;
+            }
+        }
+        return i;
+    }
+
+    private boolean readLine() throws IOException {
+        line.setLength(0);
+        while (true) {
+            if (bufferPosition == bufferLimit) {
+                bufferLimit = reader.read(buffer, 0, buffer.length);
+                bufferPosition = 0;
+                if (bufferLimit <= 0) {
+                    bufferLimit = 0;
+                    if (line.length() == 0) {
+                        return false;
+                    }
+                    lineNumber++;
+                    return true; // Last line without a line break
+                }
+            }
+            int start = bufferPosition;
+            while (bufferPosition < bufferLimit && buffer[bufferPosition] != '\n') {
+                bufferPosition++;
+            }
+            line.append(buffer, start, bufferPosition - start);
+            if (bufferPosition < bufferLimit) {
+                bufferPosition++; // Past the '\n'
+                if (line.length() > 0 && line.charAt(line.length() - 1) == '\r') {
+                    line.setLength(line.length() - 1);
+                }
+                lineNumber++;
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
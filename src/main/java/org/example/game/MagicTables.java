@@ -0,0 +1,183 @@
+package org.example.game;
+
+/**
+ * Magic bitboard attack tables for rooks and bishops, built once at class-load time.
+ * A sliding attack lookup is one mask, one multiply, one shift and one array read.
+ * The bundled multipliers were found offline with the search below; each one is verified while
+ * the table is filled, and a square whose multiplier collides is searched again with a fixed seed.
+ */
+final class MagicTables {
+    private static final int[][] ROOK_DIRECTIONS = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
+    private static final int[][] BISHOP_DIRECTIONS = { { 1, 1 }, { 1, -1 }, { -1, 1 }, { -1, -1 } };
+
+    private static final long[] ROOK_MAGIC_NUMBERS = {
+            0x008000908064C000L, 0x0040200040001000L, 0x0180100080A0010AL, 0x8880041000800800L,
+            0x1200100201200804L, 0x0200020004011008L, 0x2180010000800600L, 0x0200005088210204L,
+            0x0400800040008021L, 0x0400400020005000L, 0x8240801000200080L, 0x8611001004200900L,
+            0x008180800C001800L, 0x0100800200800400L, 0x0A02000102000408L, 0x8020802300104280L,
+            0x0080004000402000L, 0xE010104000402000L, 0x0800808010002000L, 0xA280210008100100L,
+            0x0001818014000800L, 0xA002010100080400L, 0x0080240001020870L, 0x0001020004048845L,
+            0x0081826280004004L, 0x2020810900284000L, 0x0200100080802000L, 0x0200080080100080L,
+            0x8083080100100500L, 0x4406000901000400L, 0x0005020080800100L, 0x0090204200008114L,
+            0x0010400094800420L, 0x0900804000802002L, 0x0201001841002000L, 0x4100080080801000L,
+            0x4540040080800800L, 0x0002001004040020L, 0x0281195814001002L, 0x1240800040800100L,
+            0x0880042000524004L, 0x02C080410206002CL, 0x0801200241050010L, 0x8400080010008080L,
+            0x0008000500090010L, 0x0082009084020008L, 0x4012000108020004L, 0x9000104D08860004L,
+            0x2004204114800100L, 0x0148802112400300L, 0x0202842000100880L, 0x001B080080900080L,
+            0x001A002008100600L, 0x0004008004020080L, 0x5181000600040300L, 0x0000044401128A00L,
+            0x8044110480002441L, 0x2008110084402202L, 0x90806005090010C1L, 0x000420310A004A42L,
+            0x0023001004020801L, 0x0882001008040102L, 0x000230088118020CL, 0x0000019025040042L
+    };
+
+    private static final long[] BISHOP_MAGIC_NUMBERS = {
+            0x0045010808008680L, 0x2002080204004898L, 0x0210009A10400006L, 0x0824050200810200L,
+            0x0006061105004090L, 0x00010108C0000000L, 0x0814040282104004L, 0x0012012201106800L,
+            0x10823014100C1040L, 0x0080C2088802808CL, 0x0281108410404000L, 0x0101212041826200L,
+            0x0020141028221058L, 0x2201020202200202L, 0x000082A801482000L, 0x0000008401411044L,
+            0x0007103014300404L, 0x0002091110010100L, 0x42140012040C0808L, 0x0800808802004020L,
+            0x90C4004210140000L, 0x0800200900A01000L, 0x00D0400201108810L, 0x80820183814412A0L,
+            0x00A01008202202B4L, 0x01C2021A09500402L, 0x0084440208042400L, 0x800400400C090100L,
+            0xBA10040010802100L, 0xD182009006005000L, 0x5011021001009004L, 0x0020420200510400L,
+            0x0292104000468800L, 0x00043009091C0500L, 0x0280441000020025L, 0x0042820080080080L,
+            0x0440101010010040L, 0x1000900100808080L, 0x0108108120089800L, 0x0044010200012682L,
+            0xC002500420900400L, 0x0040482210710800L, 0x0002060024000200L, 0x0281020A44000800L,
+            0xA0021200A4000200L, 0x0001301000840840L, 0x2868500108444220L, 0x0004111041000200L,
+            0x8044020842080200L, 0x0000220104210200L, 0x0000021201044000L, 0x0000280884040028L,
+            0x4012114010858003L, 0x0000081004082B88L, 0x3892700508208002L, 0x00220A041B060400L,
+            0x0812020284014881L, 0x010434A282103100L, 0x0490400824020800L, 0x4A20002C00208800L,
+            0x000000A011020200L, 0x4002940A02482202L, 0x5100100202140406L, 0x02102000840540C1L
+    };
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] ROOK_MAGICS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final int[] ROOK_OFFSETS = new int[64];
+    private static final long[] ROOK_ATTACKS;
+
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final long[] BISHOP_MAGICS = new long[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final int[] BISHOP_OFFSETS = new int[64];
+    private static final long[] BISHOP_ATTACKS;
+
+    private static long seed = 0x2545F4914F6CDD1DL;
+
+    static {
+        ROOK_ATTACKS = build(ROOK_DIRECTIONS, ROOK_MAGIC_NUMBERS, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_OFFSETS);
+        BISHOP_ATTACKS = build(BISHOP_DIRECTIONS, BISHOP_MAGIC_NUMBERS, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS,
+                BISHOP_OFFSETS);
+    }
+
+    private MagicTables() {
+    }
+
+    static long rookAttacks(int square, long occupied) {
+        int index = (int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square]);
+        return ROOK_ATTACKS[ROOK_OFFSETS[square] + index];
+    }
+
+    static long bishopAttacks(int square, long occupied) {
+        int index = (int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square]);
+        return BISHOP_ATTACKS[BISHOP_OFFSETS[square] + index];
+    }
+
+    private static long[] build(int[][] directions, long[] knownMagics, long[] masks, long[] magics, int[] shifts,
+                                int[] offsets) {
+        int size = 0;
+        for (int square = 0; square < 64; square++) {
+            masks[square] = relevantOccupancy(square, directions);
+            shifts[square] = 64 - Long.bitCount(masks[square]);
+            offsets[square] = size;
+            size += 1 << Long.bitCount(masks[square]);
+        }
+
+        long[] table = new long[size];
+        long[] occupancies = new long[4096];
+        long[] attacks = new long[4096];
+        int[] epoch = new int[4096];
+        int attempt = 0;
+        for (int square = 0; square < 64; square++) {
+            long mask = masks[square];
+            int subsets = 0;
+            long subset = 0L;
+            do {
+                occupancies[subsets] = subset;
+                attacks[subsets] = slidingAttacks(square, subset, directions);
+                subsets++;
+                subset = (subset - mask) & mask; // Carry-Rippler walk over every subset of the mask
+            } while (subset != 0);
+
+            long magic = knownMagics[square];
+            while (!tryFill(table, offsets[square], shifts[square], magic, occupancies, attacks, subsets, epoch,
+                    ++attempt)) {
+                do {
+                    magic = nextSparseRandom();
+                } while (Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6);
+            }
+            magics[square] = magic;
+        }
+        return table;
+    }
+
+    // Epoch stamps mark the slots written by this attempt, so the table never has to be cleared
+    private static boolean tryFill(long[] table, int offset, int shift, long magic, long[] occupancies,
+                                   long[] attacks, int subsets, int[] epoch, int attempt) {
+        for (int i = 0; i < subsets; i++) {
+            int index = (int) ((occupancies[i] * magic) >>> shift);
+            if (epoch[index] < attempt) {
+                epoch[index] = attempt;
+                table[offset + index] = attacks[i];
+            } else if (table[offset + index] != attacks[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Reference ray walk used to fill the tables: stops at the first blocker, which is included.
+    // Kept free of Bitboards so the two classes can be initialised in either order.
+    static long slidingAttacks(int square, long occupied, int[][] directions) {
+        long attacks = 0L;
+        for (int[] direction : directions) {
+            int rank = (square >>> 3) + direction[0];
+            int file = (square & 7) + direction[1];
+            while (rank >= 0 && rank < 8 && file >= 0 && file < 8) {
+                long target = 1L << (rank * 8 + file);
+                attacks |= target;
+                if ((occupied & target) != 0) {
+                    break;
+                }
+                rank += direction[0];
+                file += direction[1];
+            }
+        }
+        return attacks;
+    }
+
+    // Ray squares that can block, i.e. without the last square of each ray
+    private static long relevantOccupancy(int square, int[][] directions) {
+        long mask = 0L;
+        for (int[] direction : directions) {
+            int rank = (square >>> 3) + direction[0];
+            int file = (square & 7) + direction[1];
+            while (rank + direction[0] >= 0 && rank + direction[0] < 8
+                    && file + direction[1] >= 0 && file + direction[1] < 8) {
+                mask |= 1L << (rank * 8 + file);
+                rank += direction[0];
+                file += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    private static long nextRandom() {
+        seed ^= seed >>> 12;
+        seed ^= seed << 25;
+        seed ^= seed >>> 27;
+        return seed * 0x2545F4914F6CDD1DL;
+    }
+
+    private static long nextSparseRandom() {
+        return nextRandom() & nextRandom() & nextRandom();
+    }
+}
@@ -26,8 +26,16 @@ public class Move implements Serializable {
         this.pieceType = pieceType;
     }
 
+    /**
+     * GUI-side view of a packed move (see BitboardPosition.encodeMove). Only the squares are kept,
+     * so code that needs flags or the promotion piece should stay with the packed int.
+     */
+    public static Move fromPacked(int move) {
+        return new Move(Position.of(BitboardPosition.moveFrom(move)), Position.of(BitboardPosition.moveTo(move)));
+    }
+
     @Override
     public String toString() {
-        return pieceType + " from (" + from.getRow() + "," + from.getColumn() + ") to (" + to.getRow() + "," + to.getColumn() + ")";
+        return pieceType + " from " + from + " to " + to;
     }
 }
\ No newline at end of file
@@ -0,0 +1,106 @@
+package org.example.game;
+
+/**
+ * Reusable buffer of packed moves (see BitboardPosition.encodeMove) with an ordering score next to
+ * each move. The generators fill it in place, so a caller that keeps one list per ply, like the
+ * search, allocates nothing while generating. Convert to Move only where a Move is needed, at the
+ * GUI.
+ */
+public final class MoveList {
+    private final int[] moves;
+    private final int[] scores;
+    private int size;
+
+    public MoveList() {
+        this(BitboardPosition.MAX_MOVES);
+    }
+
+    public MoveList(int capacity) {
+        this.moves = new int[capacity];
+        this.scores = new int[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void add(int move) {
+        moves[size++] = move;
+    }
+
+    public int get(int index) {
+        return moves[index];
+    }
+
+    public void set(int index, int move) {
+        moves[index] = move;
+    }
+
+    // Drops every move from newSize on, e.g. after compacting the list in place
+    public void truncate(int newSize) {
+        size = newSize;
+    }
+
+    public int getScore(int index) {
+        return scores[index];
+    }
+
+    public void setScore(int index, int score) {
+        scores[index] = score;
+    }
+
+    public boolean contains(int move) {
+        for (int i = 0; i < size; i++) {
+            if (moves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Selection sort step: swaps the highest scored move from index on into index and returns it,
+     * so a search that cuts off early never pays for sorting the rest.
+     */
+    public int pickBest(int index) {
+        int best = index;
+        for (int i = index + 1; i < size; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        int move = moves[best];
+        moves[best] = moves[index];
+        moves[index] = move;
+        int score = scores[best];
+        scores[best] = scores[index];
+        scores[index] = score;
+        return move;
+    }
+
+    // Raw access for the generators in this package
+    int[] buffer() {
+        return moves;
+    }
+
+    void setSize(int size) {
+        this.size = size;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            text.append(i == 0 ? "" : ", ").append(BitboardPosition.moveToString(moves[i]));
+        }
+        return text.append(']').toString();
+    }
+}
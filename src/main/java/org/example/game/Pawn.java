@@ -7,7 +7,7 @@ public class Pawn extends Piece {
 
     @Override
     public boolean isValidMove(Position newPosition, Piece[][] board) {
-        int forwardDirection = color == PieceColor.WHITE ? -1 : 1;
+        int forwardDirection = color == PieceColor.WHITE ? 1 : -1; // Rows count ranks from White's side
         int rowDiff = (newPosition.getRow() - position.getRow()) * forwardDirection;
         int colDiff = newPosition.getColumn() - position.getColumn();
 
@@ -15,8 +15,8 @@ public class Pawn extends Piece {
             return true;
         }
 
-        boolean isStartingPosition = (color == PieceColor.WHITE && position.getRow() == 6) ||
-                (color == PieceColor.BLACK && position.getRow() == 1);
+        boolean isStartingPosition = (color == PieceColor.WHITE && position.getRow() == 1) ||
+                (color == PieceColor.BLACK && position.getRow() == 6);
         if (colDiff == 0 && rowDiff == 2 && isStartingPosition
                 && board[newPosition.getRow()][newPosition.getColumn()] == null) {
             int middleRow = position.getRow() + forwardDirection;
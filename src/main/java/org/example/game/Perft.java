@@ -0,0 +1,253 @@
+package org.example.game;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Move generator check and benchmark. Counts the leaf nodes of the legal move tree and compares
+ * them with the published reference numbers.
+ * <pre>
+ * Perft [--fen "&lt;fen&gt;"] [--divide] depth   count one position, optionally per root move
+ * Perft --suite [maxDepth]                   run all reference positions, exit 1 on a mismatch
+ * Perft --epd &lt;file&gt; [maxDepth]              check every ";D&lt;n&gt; &lt;nodes&gt;" operation of an EPD file
+ * </pre>
+ * The suite stops at depth 5 unless asked for more; --suite 6 also runs the depth-6 counts, which
+ * take minutes. With --game, single positions and the suite are counted through
+ * ChessGame.getLegalMovesForPieceAt and Piece.isValidMove instead of the bitboard generator alone,
+ * see perftGame.
+ */
+public class Perft {
+    private static final int DEFAULT_SUITE_DEPTH = 5;
+
+    // Reference positions with their node counts for depth 1, 2, 3, ...
+    private static final String[] SUITE_NAMES = {
+            "start position", "kiwipete", "position 3", "position 4", "position 5", "position 6",
+    };
+    private static final String[] SUITE_FENS = {
+            BitboardPosition.START_FEN,
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+    };
+    private static final long[][] SUITE_NODES = {
+            { 20, 400, 8902, 197281, 4865609, 119060324 },
+            { 48, 2039, 97862, 4085603, 193690690, 8031647685L },
+            { 14, 191, 2812, 43238, 674624, 11030083 },
+            { 6, 264, 9467, 422333, 15833292, 706045033 },
+            { 44, 1486, 62379, 2103487, 89941194 },
+            { 46, 2079, 89890, 3894594, 164075551, 6923051137L },
+    };
+
+    public static void main(String[] args) throws IOException {
+        String fen = BitboardPosition.START_FEN;
+        boolean divide = false;
+        boolean suite = false;
+        boolean throughGame = false;
+        String epdFile = null;
+        int depth = -1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--fen":
+                    fen = args[++i];
+                    break;
+                case "--divide":
+                    divide = true;
+                    break;
+                case "--suite":
+                    suite = true;
+                    break;
+                case "--game":
+                    throughGame = true;
+                    break;
+                case "--epd":
+                    epdFile = args[++i];
+                    break;
+                default:
+                    depth = Integer.parseInt(args[i]);
+            }
+        }
+
+        if (suite || epdFile != null) {
+            int maxDepth = depth > 0 ? depth : DEFAULT_SUITE_DEPTH;
+            boolean passed = suite ? runSuite(maxDepth, throughGame) : runEpd(Path.of(epdFile), maxDepth);
+            System.exit(passed ? 0 : 1);
+        }
+        if (depth < 1) {
+            System.out.println("Usage: Perft [--fen \"<fen>\"] [--divide | --game] depth | Perft --suite [maxDepth] [--game]"
+                    + " | Perft --epd <file> [maxDepth]");
+            System.exit(2);
+        }
+
+        BitboardPosition position = new BitboardPosition();
+        position.setFromFen(fen);
+        long start = System.nanoTime();
+        long nodes;
+        if (throughGame) {
+            ChessGame game = new ChessGame(true, null);
+            game.loadFen(fen);
+            nodes = perftGame(game, depth);
+        } else {
+            nodes = divide ? divide(position, depth) : position.perft(depth);
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.println();
+        System.out.println("Nodes: " + nodes);
+        System.out.println("Time: " + elapsed / 1_000_000 + " ms");
+        System.out.println("NPS: " + nodesPerSecond(nodes, elapsed));
+    }
+
+    /**
+     * Prints the node count below every root move, which pins a wrong total down to one move.
+     */
+    public static long divide(BitboardPosition position, int depth) {
+        MoveList moves = new MoveList();
+        position.generateLegalMoves(moves);
+        long total = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            position.makeMove(moves.get(i));
+            long nodes = position.perft(depth - 1);
+            position.unmakeMove();
+            System.out.println(BitboardPosition.moveToString(moves.get(i)) + ": " + nodes);
+            total += nodes;
+        }
+        return total;
+    }
+
+    /**
+     * Counts the same tree as BitboardPosition.perft through the game-level API. The moves of each
+     * node are the targets ChessGame.getLegalMovesForPieceAt lists for every piece of the side to
+     * move, a promotion counting once per piece. Each target must also pass the piece's own
+     * Piece.isValidMove, except castling and en passant, which the piece classes do not know.
+     * Throws IllegalStateException at the first node where the two disagree.
+     */
+    public static long perftGame(ChessGame game, int depth) {
+        if (depth <= 0) {
+            return 1;
+        }
+        MoveList[] moveLists = new MoveList[depth];
+        for (int i = 0; i < depth; i++) {
+            moveLists[i] = new MoveList();
+        }
+        return perftGame(game, depth, moveLists);
+    }
+
+    private static long perftGame(ChessGame game, int depth, MoveList[] moveLists) {
+        ChessBoard board = game.getBoard();
+        BitboardPosition position = board.getBitboardPosition();
+        MoveList moves = moveLists[depth - 1];
+        if (depth > 1) {
+            position.generateLegalMoves(moves); // Only to look up the packed moves to play
+        }
+        Piece[][] grid = board.getBoard();
+        long nodes = 0;
+        for (int from = 0; from < 64; from++) {
+            Piece piece = board.getPiece(from);
+            if (piece == null || ChessBoard.colorIndex(piece.getColor()) != position.getSideToMove()) {
+                continue;
+            }
+            for (Position target : game.getLegalMovesForPieceAt(Position.of(from))) {
+                int to = target.getSquare();
+                boolean fileChange = Bitboards.fileOf(from) != Bitboards.fileOf(to);
+                boolean castling = piece instanceof King && Math.abs(Bitboards.fileOf(from) - Bitboards.fileOf(to)) == 2;
+                boolean enPassant = piece instanceof Pawn && fileChange && board.getPiece(to) == null;
+                if (!castling && !enPassant && !piece.isValidMove(target, grid)) {
+                    throw new IllegalStateException(piece.getClass().getSimpleName() + ".isValidMove rejects legal move "
+                            + BitboardPosition.squareName(from) + BitboardPosition.squareName(to) + " in " + position.toFen());
+                }
+                if (depth == 1) {
+                    nodes += piece instanceof Pawn && (to < 8 || to >= 56) ? 4 : 1;
+                    continue;
+                }
+                for (int i = 0; i < moves.size(); i++) {
+                    int move = moves.get(i);
+                    if (BitboardPosition.moveFrom(move) == from && BitboardPosition.moveTo(move) == to) {
+                        board.makeMove(move);
+                        nodes += perftGame(game, depth - 1, moveLists);
+                        board.unmakeMove();
+                    }
+                }
+            }
+        }
+        return nodes;
+    }
+
+    public static boolean runSuite(int maxDepth) {
+        return runSuite(maxDepth, false);
+    }
+
+    /**
+     * Runs every reference position up to maxDepth and returns whether all counts matched. With
+     * throughGame the counts come from perftGame.
+     */
+    public static boolean runSuite(int maxDepth, boolean throughGame) {
+        BitboardPosition position = new BitboardPosition();
+        ChessGame game = new ChessGame(true, null);
+        boolean passed = true;
+        long totalNodes = 0;
+        long totalNanos = 0;
+        for (int i = 0; i < SUITE_FENS.length; i++) {
+            position.setFromFen(SUITE_FENS[i]);
+            game.loadFen(SUITE_FENS[i]);
+            int depthLimit = Math.min(maxDepth, SUITE_NODES[i].length);
+            for (int depth = 1; depth <= depthLimit; depth++) {
+                long expected = SUITE_NODES[i][depth - 1];
+                long start = System.nanoTime();
+                long nodes = throughGame ? perftGame(game, depth) : position.perft(depth);
+                long elapsed = System.nanoTime() - start;
+                totalNodes += nodes;
+                totalNanos += elapsed;
+                boolean ok = nodes == expected;
+                passed &= ok;
+                System.out.printf("%-15s depth %d %12d %s %10d nps%n", SUITE_NAMES[i], depth, nodes,
+                        ok ? "ok      " : "expected " + expected, nodesPerSecond(nodes, elapsed));
+            }
+        }
+        System.out.println((passed ? "All positions passed, " : "FAILED, ") + totalNodes + " nodes at "
+                + nodesPerSecond(totalNodes, totalNanos) + " nps");
+        return passed;
+    }
+
+    /**
+     * Runs the perft counts stored as "D1", "D2", ... operations in an EPD file up to maxDepth,
+     * printing only mismatches, and returns whether all of them matched.
+     */
+    public static boolean runEpd(Path file, int maxDepth) throws IOException {
+        BitboardPosition position = new BitboardPosition();
+        String[] opcodes = new String[maxDepth + 1];
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            opcodes[depth] = "D" + depth;
+        }
+        int records = 0;
+        int failures = 0;
+        long totalNodes = 0;
+        long start = System.nanoTime();
+        try (EpdReader reader = EpdReader.open(file)) {
+            while (reader.next(position)) {
+                records++;
+                for (int depth = 1; depth <= maxDepth; depth++) {
+                    long expected = reader.getLongOperation(opcodes[depth], -1);
+                    if (expected < 0) {
+                        continue;
+                    }
+                    long nodes = position.perft(depth);
+                    totalNodes += nodes;
+                    if (nodes != expected) {
+                        failures++;
+                        System.out.println("Line " + reader.getLineNumber() + " depth " + depth + ": " + nodes
+                                + " expected " + expected + "  " + position.toFen());
+                    }
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.println((failures == 0 ? "All " + records + " positions passed, " : failures + " mismatches in "
+                + records + " positions, ") + totalNodes + " nodes at " + nodesPerSecond(totalNodes, elapsed) + " nps");
+        return failures == 0;
+    }
+
+    private static long nodesPerSecond(long nodes, long nanos) {
+        return nanos == 0 ? 0 : nodes * 1_000_000_000L / nanos;
+    }
+}
@@ -22,4 +22,9 @@ public abstract class Piece {
     }
 
     public abstract boolean isValidMove(Position newPosition, Piece[][] board);
+
+    // Square index variant, see Position.getSquare
+    public boolean isValidMove(int square, Piece[][] board) {
+        return isValidMove(Position.of(square), board);
+    }
 }
\ No newline at end of file
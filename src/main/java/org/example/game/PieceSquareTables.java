@@ -0,0 +1,179 @@
+package org.example.game;
+
+/**
+ * Material and piece-square values for the middlegame and the endgame, packed into one int per
+ * piece on a square so that BitboardPosition can keep their sum up to date on every move, the
+ * same way it keeps its Zobrist key. Scores are in centipawns from White's point of view: black
+ * pieces count negative.
+ * <p>
+ * A packed score holds the middlegame value in the high 16 bits and the endgame value in the low
+ * 16 bits, so packed scores add and subtract like plain ints as long as each half stays within
+ * a short.
+ */
+public final class PieceSquareTables {
+    public static final int[] MIDDLEGAME_VALUES = { 100, 320, 330, 500, 900, 0 };
+    public static final int[] ENDGAME_VALUES = { 120, 300, 320, 530, 950, 0 };
+
+    // Tables are written from White's side with a8 first, so a white piece on square s reads index s ^ 56
+    private static final int[][] MIDDLEGAME_TABLES = {
+            { // Pawn
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    50, 50, 50, 50, 50, 50, 50, 50,
+                    10, 10, 20, 30, 30, 20, 10, 10,
+                    5, 5, 10, 25, 25, 10, 5, 5,
+                    0, 0, 0, 20, 20, 0, 0, 0,
+                    5, -5, -10, 0, 0, -10, -5, 5,
+                    5, 10, 10, -20, -20, 10, 10, 5,
+                    0, 0, 0, 0, 0, 0, 0, 0 },
+            { // Knight
+                    -50, -40, -30, -30, -30, -30, -40, -50,
+                    -40, -20, 0, 0, 0, 0, -20, -40,
+                    -30, 0, 10, 15, 15, 10, 0, -30,
+                    -30, 5, 15, 20, 20, 15, 5, -30,
+                    -30, 0, 15, 20, 20, 15, 0, -30,
+                    -30, 5, 10, 15, 15, 10, 5, -30,
+                    -40, -20, 0, 5, 5, 0, -20, -40,
+                    -50, -40, -30, -30, -30, -30, -40, -50 },
+            { // Bishop
+                    -20, -10, -10, -10, -10, -10, -10, -20,
+                    -10, 0, 0, 0, 0, 0, 0, -10,
+                    -10, 0, 5, 10, 10, 5, 0, -10,
+                    -10, 5, 5, 10, 10, 5, 5, -10,
+                    -10, 0, 10, 10, 10, 10, 0, -10,
+                    -10, 10, 10, 10, 10, 10, 10, -10,
+                    -10, 5, 0, 0, 0, 0, 5, -10,
+                    -20, -10, -10, -10, -10, -10, -10, -20 },
+            { // Rook
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    5, 10, 10, 10, 10, 10, 10, 5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    0, 0, 0, 5, 5, 0, 0, 0 },
+            { // Queen
+                    -20, -10, -10, -5, -5, -10, -10, -20,
+                    -10, 0, 0, 0, 0, 0, 0, -10,
+                    -10, 0, 5, 5, 5, 5, 0, -10,
+                    -5, 0, 5, 5, 5, 5, 0, -5,
+                    0, 0, 5, 5, 5, 5, 0, -5,
+                    -10, 5, 5, 5, 5, 5, 0, -10,
+                    -10, 0, 5, 0, 0, 0, 0, -10,
+                    -20, -10, -10, -5, -5, -10, -10, -20 },
+            { // King: behind its pawns
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -20, -30, -30, -40, -40, -30, -30, -20,
+                    -10, -20, -20, -20, -20, -20, -20, -10,
+                    20, 20, 0, 0, 0, 0, 20, 20,
+                    20, 30, 10, 0, 0, 10, 30, 20 }
+    };
+
+    private static final int[][] ENDGAME_TABLES = {
+            { // Pawn: worth more the closer it is to promoting
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    80, 80, 80, 80, 80, 80, 80, 80,
+                    50, 50, 50, 50, 50, 50, 50, 50,
+                    30, 30, 30, 30, 30, 30, 30, 30,
+                    15, 15, 15, 15, 15, 15, 15, 15,
+                    5, 5, 5, 5, 5, 5, 5, 5,
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    0, 0, 0, 0, 0, 0, 0, 0 },
+            { // Knight
+                    -50, -40, -30, -30, -30, -30, -40, -50,
+                    -40, -20, 0, 0, 0, 0, -20, -40,
+                    -30, 0, 10, 15, 15, 10, 0, -30,
+                    -30, 5, 15, 20, 20, 15, 5, -30,
+                    -30, 0, 15, 20, 20, 15, 0, -30,
+                    -30, 5, 10, 15, 15, 10, 5, -30,
+                    -40, -20, 0, 5, 5, 0, -20, -40,
+                    -50, -40, -30, -30, -30, -30, -40, -50 },
+            { // Bishop
+                    -20, -10, -10, -10, -10, -10, -10, -20,
+                    -10, 0, 0, 0, 0, 0, 0, -10,
+                    -10, 0, 5, 10, 10, 5, 0, -10,
+                    -10, 5, 5, 10, 10, 5, 5, -10,
+                    -10, 0, 10, 10, 10, 10, 0, -10,
+                    -10, 10, 10, 10, 10, 10, 10, -10,
+                    -10, 5, 0, 0, 0, 0, 5, -10,
+                    -20, -10, -10, -10, -10, -10, -10, -20 },
+            { // Rook
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    10, 10, 10, 10, 10, 10, 10, 10,
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    0, 0, 0, 0, 0, 0, 0, 0 },
+            { // Queen
+                    -20, -10, -10, -5, -5, -10, -10, -20,
+                    -10, 0, 5, 5, 5, 5, 0, -10,
+                    -10, 5, 10, 10, 10, 10, 5, -10,
+                    -5, 5, 10, 15, 15, 10, 5, -5,
+                    -5, 5, 10, 15, 15, 10, 5, -5,
+                    -10, 5, 10, 10, 10, 10, 5, -10,
+                    -10, 0, 5, 5, 5, 5, 0, -10,
+                    -20, -10, -10, -5, -5, -10, -10, -20 },
+            { // King: in the centre once the queens are gone
+                    -50, -40, -30, -20, -20, -30, -40, -50,
+                    -30, -20, -10, 0, 0, -10, -20, -30,
+                    -30, -10, 20, 30, 30, 20, -10, -30,
+                    -30, -10, 30, 40, 40, 30, -10, -30,
+                    -30, -10, 30, 40, 40, 30, -10, -30,
+                    -30, -10, 20, 30, 30, 20, -10, -30,
+                    -30, -30, 0, 0, 0, 0, -30, -30,
+                    -50, -30, -30, -30, -30, -30, -30, -50 }
+    };
+
+    // Indexed by piece code and square, material included
+    static final int[][] SCORES = new int[12][64];
+
+    static {
+        for (int type = BitboardPosition.PAWN; type <= BitboardPosition.KING; type++) {
+            for (int square = 0; square < 64; square++) {
+                int white = BitboardPosition.pieceCode(BitboardPosition.WHITE, type);
+                int black = BitboardPosition.pieceCode(BitboardPosition.BLACK, type);
+                SCORES[white][square] = materialScore(white) + squareScore(white, square);
+                SCORES[black][square] = materialScore(black) + squareScore(black, square);
+            }
+        }
+    }
+
+    private PieceSquareTables() {
+    }
+
+    public static int pack(int middlegame, int endgame) {
+        return (middlegame << 16) + endgame;
+    }
+
+    public static int middlegame(int score) {
+        return (score + 0x8000) >> 16;
+    }
+
+    public static int endgame(int score) {
+        return (short) score;
+    }
+
+    // Material and piece-square value together, as BitboardPosition sums them
+    public static int score(int pieceCode, int square) {
+        return SCORES[pieceCode][square];
+    }
+
+    public static int materialScore(int pieceCode) {
+        int type = BitboardPosition.typeOf(pieceCode);
+        int score = pack(MIDDLEGAME_VALUES[type], ENDGAME_VALUES[type]);
+        return BitboardPosition.colorOf(pieceCode) == BitboardPosition.WHITE ? score : -score;
+    }
+
+    public static int squareScore(int pieceCode, int square) {
+        int type = BitboardPosition.typeOf(pieceCode);
+        if (BitboardPosition.colorOf(pieceCode) == BitboardPosition.WHITE) {
+            return pack(MIDDLEGAME_TABLES[type][square ^ 56], ENDGAME_TABLES[type][square ^ 56]);
+        }
+        return -pack(MIDDLEGAME_TABLES[type][square], ENDGAME_TABLES[type][square]);
+    }
+}
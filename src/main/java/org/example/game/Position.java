@@ -1,21 +1,76 @@
 package org.example.game;
 
+import java.io.Serial;
 import java.io.Serializable;
 
-public class Position implements Serializable {
-    private int row;
-    private int column;
+/**
+ * A square in canonical coordinates, the same for both players: row is the rank counted from
+ * White's side (0 is rank 1) and column is the file (0 is the a-file).
+ * <p>
+ * Positions are immutable and interned: there is exactly one instance per square, taken from a
+ * 64-entry table by {@link #of(int)} or {@link #of(int, int)}, so handing them out allocates
+ * nothing and == works as well as equals. Code on hot paths can skip the objects entirely and use
+ * the int square index (a1 = 0, h8 = 63) that BitboardPosition uses.
+ */
+public final class Position implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
 
-    public Position(int row, int column) {
-        this.row = row;
-        this.column = column;
+    private static final Position[] SQUARES = new Position[64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            SQUARES[square] = new Position(square);
+        }
+    }
+
+    private final int square;
+
+    private Position(int square) {
+        this.square = square;
+    }
+
+    public static Position of(int square) {
+        return SQUARES[square];
+    }
+
+    public static Position of(int row, int column) {
+        if (row < 0 || row > 7 || column < 0 || column > 7) {
+            throw new IllegalArgumentException("No square at row " + row + ", column " + column);
+        }
+        return SQUARES[Bitboards.square(row, column)];
     }
 
     public int getRow() {
-        return row;
+        return Bitboards.rankOf(square);
     }
 
     public int getColumn() {
-        return column;
+        return Bitboards.fileOf(square);
+    }
+
+    public int getSquare() {
+        return square;
+    }
+
+    // Deserialized copies are swapped for the interned instance
+    @Serial
+    private Object readResolve() {
+        return of(square);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Position && ((Position) other).square == square;
+    }
+
+    @Override
+    public int hashCode() {
+        return square;
+    }
+
+    @Override
+    public String toString() {
+        return BitboardPosition.squareName(square);
     }
-}
\ No newline at end of file
+}
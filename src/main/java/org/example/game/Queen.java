@@ -12,33 +12,17 @@ public class Queen extends Piece {
             return false;
         }
 
-        int rowDiff = Math.abs(newPosition.getRow() - this.position.getRow());
-        int colDiff = Math.abs(newPosition.getColumn() - this.position.getColumn());
+        int from = Bitboards.square(this.position.getRow(), this.position.getColumn());
+        int to = Bitboards.square(newPosition.getRow(), newPosition.getColumn());
 
-        // Check for straight line movement
-        boolean straightLine = this.position.getRow() == newPosition.getRow()
-                || this.position.getColumn() == newPosition.getColumn();
-
-        // Check for diagonal movement
-        boolean diagonal = rowDiff == colDiff;
-
-        if (!straightLine && !diagonal) {
+        // Empty-board queen attacks cover every straight and diagonal line from the square
+        if ((Bitboards.queenAttacks(from, 0L) & Bitboards.bit(to)) == 0) {
             return false; // The move is neither straight nor diagonal
         }
 
-        // Calculate direction of movement
-        int rowDirection = Integer.compare(newPosition.getRow(), this.position.getRow());
-        int colDirection = Integer.compare(newPosition.getColumn(), this.position.getColumn());
-
         // Check for any pieces in the path
-        int currentRow = this.position.getRow() + rowDirection;
-        int currentCol = this.position.getColumn() + colDirection;
-        while (currentRow != newPosition.getRow() || currentCol != newPosition.getColumn()) {
-            if (board[currentRow][currentCol] != null) {
-                return false; // Path is blocked
-            }
-            currentRow += rowDirection;
-            currentCol += colDirection;
+        if (!Bitboards.isPathClear(from, to, board)) {
+            return false; // Path is blocked
         }
 
         // The move is valid if the destination is empty or contains an opponent's piece
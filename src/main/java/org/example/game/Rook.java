@@ -7,23 +7,14 @@ public class Rook extends Piece {
 
     @Override
     public boolean isValidMove(Position newPosition, Piece[][] board) {
-        if (position.getRow() == newPosition.getRow()) {
-            int columnStart = Math.min(position.getColumn(), newPosition.getColumn()) + 1;
-            int columnEnd = Math.max(position.getColumn(), newPosition.getColumn());
-            for (int column = columnStart; column < columnEnd; column++) {
-                if (board[position.getRow()][column] != null) {
-                    return false;
-                }
-            }
-        } else if (position.getColumn() == newPosition.getColumn()) {
-            int rowStart = Math.min(position.getRow(), newPosition.getRow()) + 1;
-            int rowEnd = Math.max(position.getRow(), newPosition.getRow());
-            for (int row = rowStart; row < rowEnd; row++) {
-                if (board[row][position.getColumn()] != null) {
-                    return false;
-                }
-            }
-        } else {
+        int from = Bitboards.square(position.getRow(), position.getColumn());
+        int to = Bitboards.square(newPosition.getRow(), newPosition.getColumn());
+
+        // Empty-board rook attacks cover exactly the squares on the same row or column
+        if ((Bitboards.rookAttacks(from, 0L) & Bitboards.bit(to)) == 0) {
+            return false;
+        }
+        if (!Bitboards.isPathClear(from, to, board)) {
             return false;
         }
 
@@ -36,4 +27,4 @@ public class Rook extends Piece {
 
         return false;
     }
-}
\ No newline at end of file
+}
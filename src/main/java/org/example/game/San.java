@@ -0,0 +1,237 @@
+package org.example.game;
+
+import static org.example.game.BitboardPosition.*;
+import static org.example.game.Bitboards.*;
+
+/**
+ * Standard Algebraic Notation ("Nf3", "exd5", "O-O", "e8=Q+") for packed moves. Parsing finds the
+ * origin square from the attack tables and checks the one candidate with isLegalMove, so neither
+ * direction generates the full move list except to tell checkmate from check.
+ */
+public final class San {
+    public static final int NO_MOVE = -1;
+
+    private static final String PIECE_LETTERS = "PNBRQK";
+
+    private San() {
+    }
+
+    /**
+     * The legal move of the side to move that san describes, or NO_MOVE if there is none or the
+     * notation is ambiguous. Check and annotation suffixes (+, #, !, ?) are ignored, and castling
+     * may be written with zeros.
+     */
+    public static int parse(BitboardPosition position, CharSequence text, int start, int end) {
+        while (end > start && "+#!?".indexOf(text.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        if (end - start < 2) {
+            return NO_MOVE;
+        }
+        int us = position.getSideToMove();
+        char first = text.charAt(start);
+        if (first == 'O' || first == '0') {
+            int king = position.kingSquare(us);
+            int move;
+            if (end - start == 3 && isCastling(text, start, end, first)) {
+                move = encodeMove(king, king + 2, KING_CASTLE);
+            } else if (end - start == 5 && isCastling(text, start, end, first)) {
+                move = encodeMove(king, king - 2, QUEEN_CASTLE);
+            } else {
+                return NO_MOVE;
+            }
+            return king != NO_SQUARE && position.isLegalMove(move) ? move : NO_MOVE;
+        }
+
+        int type = PAWN;
+        int i = start;
+        int letter = PIECE_LETTERS.indexOf(first);
+        if (letter >= 0) {
+            type = letter;
+            i++;
+        }
+        int promotion = NO_PIECE;
+        char last = text.charAt(end - 1);
+        if (type == PAWN && PIECE_LETTERS.indexOf(last) >= KNIGHT && PIECE_LETTERS.indexOf(last) <= QUEEN) {
+            promotion = PIECE_LETTERS.indexOf(last);
+            end -= text.charAt(end - 2) == '=' ? 2 : 1;
+        }
+        if (end - i < 2) {
+            return NO_MOVE;
+        }
+        int toFile = text.charAt(end - 2) - 'a';
+        int toRank = text.charAt(end - 1) - '1';
+        if (toFile < 0 || toFile > 7 || toRank < 0 || toRank > 7) {
+            return NO_MOVE;
+        }
+        int to = square(toRank, toFile);
+        end -= 2;
+
+        int fromFile = -1;
+        int fromRank = -1;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= 'a' && c <= 'h') {
+                fromFile = c - 'a';
+            } else if (c >= '1' && c <= '8') {
+                fromRank = c - '1';
+            } else if (c != 'x' && c != ':' && c != '-') {
+                return NO_MOVE;
+            }
+        }
+
+        if (type == PAWN) {
+            return parsePawnMove(position, us, to, fromFile, fromRank, promotion);
+        }
+        long candidates = attacksTo(type, to, position.occupied()) & position.pieces(us, type);
+        if (fromFile >= 0) {
+            candidates &= FILE_A << fromFile;
+        }
+        if (fromRank >= 0) {
+            candidates &= RANK_1 << (8 * fromRank);
+        }
+        int flags = position.pieceAt(to) != NO_PIECE ? CAPTURE : QUIET;
+        int found = NO_MOVE;
+        for (; candidates != 0; candidates &= candidates - 1) {
+            int move = encodeMove(lowestSquare(candidates), to, flags);
+            if (position.isLegalMove(move)) {
+                if (found != NO_MOVE) {
+                    return NO_MOVE; // Ambiguous
+                }
+                found = move;
+            }
+        }
+        return found;
+    }
+
+    public static int parse(BitboardPosition position, CharSequence san) {
+        return parse(position, san, 0, san.length());
+    }
+
+    /**
+     * Appends the SAN of a legal move of the side to move, including the check or mate suffix.
+     * The position is left as it was; scratch is only used to look for a reply after a check.
+     */
+    public static void append(BitboardPosition position, int move, StringBuilder out, MoveList scratch) {
+        int from = moveFrom(move);
+        int to = moveTo(move);
+        int flags = moveFlags(move);
+        if (flags == KING_CASTLE) {
+            out.append("O-O");
+        } else if (flags == QUEEN_CASTLE) {
+            out.append("O-O-O");
+        } else {
+            int type = typeOf(position.pieceAt(from));
+            boolean capture = isCapture(move);
+            if (type == PAWN) {
+                if (capture) {
+                    out.append((char) ('a' + fileOf(from)));
+                }
+            } else {
+                out.append(PIECE_LETTERS.charAt(type));
+                appendDisambiguation(position, move, type, out);
+            }
+            if (capture) {
+                out.append('x');
+            }
+            out.append((char) ('a' + fileOf(to))).append((char) ('1' + rankOf(to)));
+            if (isPromotion(move)) {
+                out.append('=').append(PIECE_LETTERS.charAt(promotionType(move)));
+            }
+        }
+
+        position.makeMove(move);
+        if (position.isInCheck(position.getSideToMove())) {
+            position.generateLegalMoves(scratch);
+            out.append(scratch.isEmpty() ? '#' : '+');
+        }
+        position.unmakeMove();
+    }
+
+    public static String toSan(BitboardPosition position, int move) {
+        StringBuilder san = new StringBuilder(8);
+        append(position, move, san, new MoveList());
+        return san.toString();
+    }
+
+    // File if that tells the pieces apart, else rank, else both
+    private static void appendDisambiguation(BitboardPosition position, int move, int type, StringBuilder out) {
+        int from = moveFrom(move);
+        int to = moveTo(move);
+        int us = position.getSideToMove();
+        long others = attacksTo(type, to, position.occupied()) & position.pieces(us, type) & ~bit(from);
+        long rivals = 0;
+        for (; others != 0; others &= others - 1) {
+            int other = lowestSquare(others);
+            if (position.isLegalMove(encodeMove(other, to, moveFlags(move)))) {
+                rivals |= bit(other);
+            }
+        }
+        if (rivals == 0) {
+            return;
+        }
+        if ((rivals & (FILE_A << fileOf(from))) == 0) {
+            out.append((char) ('a' + fileOf(from)));
+        } else if ((rivals & (RANK_1 << (8 * rankOf(from)))) == 0) {
+            out.append((char) ('1' + rankOf(from)));
+        } else {
+            out.append((char) ('a' + fileOf(from))).append((char) ('1' + rankOf(from)));
+        }
+    }
+
+    private static int parsePawnMove(BitboardPosition position, int us, int to, int fromFile, int fromRank, int promotion) {
+        int forward = us == WHITE ? 8 : -8;
+        int from;
+        int flags;
+        if (fromFile < 0 || fromFile == fileOf(to)) {
+            from = to - forward;
+            flags = QUIET;
+            if (from < 0 || from > 63) {
+                return NO_MOVE;
+            }
+            if (position.pieceAt(from) == NO_PIECE && rankOf(to) == (us == WHITE ? 3 : 4)) {
+                from -= forward;
+                flags = DOUBLE_PAWN_PUSH;
+            }
+        } else {
+            int fromSquareRank = rankOf(to) - (us == WHITE ? 1 : -1);
+            if (fromSquareRank < 0 || fromSquareRank > 7 || Math.abs(fromFile - fileOf(to)) != 1) {
+                return NO_MOVE;
+            }
+            from = square(fromSquareRank, fromFile);
+            flags = to == position.getEnPassantSquare() && position.pieceAt(to) == NO_PIECE ? EN_PASSANT : CAPTURE;
+        }
+        if (fromRank >= 0 && rankOf(from) != fromRank) {
+            return NO_MOVE;
+        }
+        if (promotion != NO_PIECE) {
+            flags = PROMOTION | (promotion - KNIGHT) | (flags == CAPTURE ? CAPTURE : QUIET);
+        }
+        int move = encodeMove(from, to, flags);
+        return position.isLegalMove(move) ? move : NO_MOVE;
+    }
+
+    private static boolean isCastling(CharSequence text, int start, int end, char o) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) != ((i - start) % 2 == 0 ? o : '-')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long attacksTo(int type, int square, long occupied) {
+        switch (type) {
+            case KNIGHT:
+                return knightAttacks(square);
+            case BISHOP:
+                return bishopAttacks(square, occupied);
+            case ROOK:
+                return rookAttacks(square, occupied);
+            case QUEEN:
+                return queenAttacks(square, occupied);
+            default:
+                return kingAttacks(square);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package org.example.game;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size hash table from Zobrist keys to search results, stored in a single long[].
+ * Each entry is two longs: (key ^ data) and data. A reader only accepts an entry whose halves
+ * XOR back to its key, so a torn write from another thread reads as a miss instead of garbage.
+ * No locks are taken, which lets several search threads share one table.
+ * <p>
+ * The data word packs move (16 bits), score (16), depth (8), bound (2) and generation (8).
+ */
+public class TranspositionTable {
+    public static final long NO_ENTRY = 0L;
+
+    public static final int UPPER_BOUND = 1;
+    public static final int LOWER_BOUND = 2;
+    public static final int EXACT = 3;
+
+    public enum ReplacementPolicy {
+        // Every store overwrites the slot
+        ALWAYS_REPLACE,
+        // Keep deeper results from the current search; stale or shallower entries are replaced
+        DEPTH_PREFERRED
+    }
+
+    private static final int ENTRY_BYTES = 16;
+
+    private final long[] table;
+    private final int indexMask;
+    private final ReplacementPolicy policy;
+    private int generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder collisions = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+    private final LongAdder overwrites = new LongAdder();
+
+    public TranspositionTable(int megabytes, ReplacementPolicy policy) {
+        long entries = Long.highestOneBit(Math.max(1L, (long) megabytes * 1024 * 1024 / ENTRY_BYTES));
+        if (entries > (1 << 29)) {
+            entries = 1 << 29; // Keeps the long[] within array limits
+        }
+        this.table = new long[(int) entries * 2];
+        this.indexMask = (int) entries - 1;
+        this.policy = policy;
+    }
+
+    public TranspositionTable(int megabytes) {
+        this(megabytes, ReplacementPolicy.DEPTH_PREFERRED);
+    }
+
+    /**
+     * Returns the packed data stored for the key, or NO_ENTRY.
+     */
+    public long probe(long key) {
+        int slot = slot(key);
+        long data = table[slot + 1];
+        long stored = table[slot] ^ data;
+        if (data != NO_ENTRY && stored == key) {
+            hits.increment();
+            return data;
+        }
+        if (data != NO_ENTRY) {
+            collisions.increment(); // Slot holds another position
+        }
+        misses.increment();
+        return NO_ENTRY;
+    }
+
+    public void store(long key, int move, int score, int depth, int bound) {
+        int slot = slot(key);
+        long oldData = table[slot + 1];
+        if (oldData != NO_ENTRY) {
+            boolean sameKey = (table[slot] ^ oldData) == key;
+            if (policy == ReplacementPolicy.DEPTH_PREFERRED && !sameKey
+                    && entryGeneration(oldData) == generation && entryDepth(oldData) > depth) {
+                return;
+            }
+            if (sameKey && move == 0) {
+                move = entryMove(oldData); // Keep the best move of an earlier visit
+            }
+            if (!sameKey) {
+                overwrites.increment();
+            }
+        }
+        long data = (move & 0xFFFFL)
+                | ((score & 0xFFFFL) << 16)
+                | ((long) (depth & 0xFF) << 32)
+                | ((long) bound << 40)
+                | ((long) (generation & 0xFF) << 42);
+        table[slot] = key ^ data;
+        table[slot + 1] = data;
+        stores.increment();
+    }
+
+    /**
+     * Marks the start of a new search so entries from earlier searches age out first.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    public void clear() {
+        java.util.Arrays.fill(table, 0L);
+        generation = 0;
+    }
+
+    public static int entryMove(long data) {
+        return (int) (data & 0xFFFF);
+    }
+
+    public static int entryScore(long data) {
+        return (short) (data >>> 16);
+    }
+
+    public static int entryDepth(long data) {
+        return (int) ((data >>> 32) & 0xFF);
+    }
+
+    public static int entryBound(long data) {
+        return (int) ((data >>> 40) & 3);
+    }
+
+    private static int entryGeneration(long data) {
+        return (int) ((data >>> 42) & 0xFF);
+    }
+
+    private int slot(long key) {
+        return ((int) (key ^ (key >>> 32)) & indexMask) << 1;
+    }
+
+    public int capacity() {
+        return indexMask + 1;
+    }
+
+    public ReplacementPolicy getPolicy() {
+        return policy;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getCollisions() {
+        return collisions.sum();
+    }
+
+    public long getStores() {
+        return stores.sum();
+    }
+
+    public long getOverwrites() {
+        return overwrites.sum();
+    }
+
+    public double getHitRate() {
+        long probes = getHits() + getMisses();
+        return probes == 0 ? 0.0 : (double) getHits() / probes;
+    }
+
+    /**
+     * Permille of the first thousand slots holding an entry from the current search.
+     */
+    public int hashfull() {
+        int sample = Math.min(1000, capacity());
+        int used = 0;
+        for (int i = 0; i < sample; i++) {
+            long data = table[(i << 1) + 1];
+            if (data != NO_ENTRY && entryGeneration(data) == generation) {
+                used++;
+            }
+        }
+        return used * 1000 / sample;
+    }
+
+    public void resetStatistics() {
+        hits.reset();
+        misses.reset();
+        collisions.reset();
+        stores.reset();
+        overwrites.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "TranspositionTable{entries=" + capacity() + ", policy=" + policy + ", hits=" + getHits()
+                + ", misses=" + getMisses() + ", collisions=" + getCollisions() + ", overwrites=" + getOverwrites()
+                + ", hitRate=" + String.format("%.3f", getHitRate()) + "}";
+    }
+}
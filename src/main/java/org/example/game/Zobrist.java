@@ -0,0 +1,57 @@
+package org.example.game;
+
+/**
+ * Random 64-bit keys for Zobrist hashing. A position key is the XOR of one key per piece on its
+ * square, the castling rights, the en passant file and the side to move. The keys come from a
+ * fixed seed, so hashes are stable across runs and can be stored in files.
+ */
+public final class Zobrist {
+    static final long[][] PIECE_SQUARE = new long[12][64];
+    static final long[] CASTLING = new long[16];
+    static final long[] EN_PASSANT_FILE = new long[8];
+    static final long BLACK_TO_MOVE;
+
+    static {
+        long[] state = { 0x9E3779B97F4A7C15L };
+        for (int piece = 0; piece < 12; piece++) {
+            for (int square = 0; square < 64; square++) {
+                PIECE_SQUARE[piece][square] = next(state);
+            }
+        }
+        for (int rights = 0; rights < 16; rights++) {
+            CASTLING[rights] = next(state);
+        }
+        CASTLING[0] = 0L; // No rights hash to nothing, so an empty board has key 0
+        for (int file = 0; file < 8; file++) {
+            EN_PASSANT_FILE[file] = next(state);
+        }
+        BLACK_TO_MOVE = next(state);
+    }
+
+    private Zobrist() {
+    }
+
+    public static long pieceKey(int pieceCode, int square) {
+        return PIECE_SQUARE[pieceCode][square];
+    }
+
+    public static long castlingKey(int castlingRights) {
+        return CASTLING[castlingRights];
+    }
+
+    public static long enPassantKey(int enPassantSquare) {
+        return enPassantSquare == BitboardPosition.NO_SQUARE ? 0L : EN_PASSANT_FILE[enPassantSquare & 7];
+    }
+
+    public static long sideKey(int sideToMove) {
+        return sideToMove == BitboardPosition.BLACK ? BLACK_TO_MOVE : 0L;
+    }
+
+    // SplitMix64
+    private static long next(long[] state) {
+        long z = (state[0] += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,155 @@
+package org.example.pgn;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Parses a PGN database on several threads in one pass. The calling thread only splits the input
+ * into batches of game texts; workers resolve the moves, which is where the time goes, and the
+ * games are handed to the listener on the calling thread in file order.
+ * <p>
+ * Memory stays bounded: at most two batches per worker are in flight and their buffers and
+ * PgnGame objects are recycled, however large the file. Games that fail to parse are skipped and
+ * counted rather than stopping the run.
+ */
+public class ParallelPgnReader implements AutoCloseable {
+    private static final int GAMES_PER_BATCH = 256;
+
+    private final ExecutorService workers;
+    private final int maxBatchesInFlight;
+    private final ThreadLocal<PgnParser> parsers = ThreadLocal.withInitial(PgnParser::new);
+    private final ArrayDeque<Batch> freeBatches = new ArrayDeque<>();
+    private long gamesRead;
+    private long gamesSkipped;
+    private String firstError;
+
+    public ParallelPgnReader(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1: " + threads);
+        }
+        this.maxBatchesInFlight = threads * 2;
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread workerThread = new Thread(runnable);
+            workerThread.setName("PgnParser");
+            workerThread.setDaemon(true);
+            return workerThread;
+        });
+    }
+
+    /**
+     * Reads every game of source and passes each parsed game to listener, in file order. Returns
+     * the number of games delivered. The source is not closed.
+     */
+    public long read(PgnReader source, PgnGameListener listener) throws IOException {
+        ArrayDeque<Future<Batch>> pending = new ArrayDeque<>();
+        long delivered = gamesRead;
+        boolean more = true;
+        while (more) {
+            Batch batch = freeBatches.isEmpty() ? new Batch() : freeBatches.poll();
+            more = batch.fill(source);
+            if (batch.count > 0) {
+                pending.add(workers.submit(() -> parse(batch)));
+            } else {
+                freeBatches.add(batch);
+            }
+            while (!pending.isEmpty() && (pending.size() >= maxBatchesInFlight || !more)) {
+                deliver(await(pending.poll()), listener);
+            }
+        }
+        return gamesRead - delivered;
+    }
+
+    public long getGamesRead() {
+        return gamesRead;
+    }
+
+    public long getGamesSkipped() {
+        return gamesSkipped;
+    }
+
+    // Reason the first skipped game was rejected, or null
+    public String getFirstError() {
+        return firstError;
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    private Batch parse(Batch batch) {
+        PgnParser parser = parsers.get();
+        int start = 0;
+        for (int i = 0; i < batch.count; i++) {
+            try {
+                parser.parse(batch.text, start, batch.ends[i], batch.games[i]);
+                batch.errors[i] = null;
+            } catch (IllegalArgumentException e) {
+                batch.errors[i] = "Game at line " + batch.startLines[i] + ": " + e.getMessage();
+            }
+            start = batch.ends[i];
+        }
+        return batch;
+    }
+
+    private void deliver(Batch batch, PgnGameListener listener) {
+        for (int i = 0; i < batch.count; i++) {
+            if (batch.errors[i] == null) {
+                gamesRead++;
+                listener.onGame(batch.games[i]);
+            } else {
+                gamesSkipped++;
+                if (firstError == null) {
+                    firstError = batch.errors[i];
+                }
+            }
+        }
+        freeBatches.add(batch);
+    }
+
+    private static Batch await(Future<Batch> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while parsing games");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("PGN worker failed", e.getCause());
+        }
+    }
+
+    // Up to GAMES_PER_BATCH game texts back to back in one buffer, and the games parsed from them
+    private static final class Batch {
+        private final StringBuilder text = new StringBuilder(GAMES_PER_BATCH * 1024);
+        private final int[] ends = new int[GAMES_PER_BATCH];
+        private final long[] startLines = new long[GAMES_PER_BATCH];
+        private final PgnGame[] games = new PgnGame[GAMES_PER_BATCH];
+        private final String[] errors = new String[GAMES_PER_BATCH];
+        private int count;
+
+        private Batch() {
+            for (int i = 0; i < GAMES_PER_BATCH; i++) {
+                games[i] = new PgnGame();
+            }
+        }
+
+        // Returns false once the source is exhausted
+        private boolean fill(PgnReader source) throws IOException {
+            text.setLength(0);
+            count = 0;
+            while (count < GAMES_PER_BATCH) {
+                if (!source.readGame(text)) {
+                    return false;
+                }
+                startLines[count] = source.getGameStartLine();
+                ends[count++] = text.length();
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.example.pgn;
+
+import org.example.game.BitboardPosition;
+import org.example.game.MoveList;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Measures PGN parsing throughput on one thread and on a pool.
+ * <pre>
+ * PgnBenchmark --generate &lt;file&gt; &lt;games&gt;   write random legal games to parse
+ * PgnBenchmark &lt;file&gt; [threads]              parse with PgnReader, then ParallelPgnReader
+ * </pre>
+ */
+public class PgnBenchmark {
+    private static final int MAX_PLIES = 160;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 3 && args[0].equals("--generate")) {
+            generate(Path.of(args[1]), Integer.parseInt(args[2]));
+            return;
+        }
+        if (args.length < 1) {
+            System.out.println("Usage: PgnBenchmark --generate <file> <games> | PgnBenchmark <file> [threads]");
+            System.exit(2);
+        }
+        Path file = Path.of(args[0]);
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        long[] plies = new long[1];
+        long start = System.nanoTime();
+        long games = 0;
+        long skipped = 0;
+        PgnGame game = new PgnGame();
+        try (PgnReader reader = PgnReader.open(file)) {
+            while (true) {
+                try {
+                    if (!reader.next(game)) {
+                        break;
+                    }
+                    games++;
+                    plies[0] += game.getMoveCount();
+                } catch (IllegalArgumentException e) {
+                    skipped++;
+                }
+            }
+        }
+        report("1 thread", games, skipped, plies[0], System.nanoTime() - start);
+
+        plies[0] = 0;
+        start = System.nanoTime();
+        try (PgnReader reader = PgnReader.open(file); ParallelPgnReader parallel = new ParallelPgnReader(threads)) {
+            parallel.read(reader, parsed -> plies[0] += parsed.getMoveCount());
+            report(threads + " threads", parallel.getGamesRead(), parallel.getGamesSkipped(), plies[0],
+                    System.nanoTime() - start);
+            if (parallel.getFirstError() != null) {
+                System.out.println("First skipped game: " + parallel.getFirstError());
+            }
+        }
+    }
+
+    private static void report(String label, long games, long skipped, long plies, long nanos) {
+        System.out.printf("%-10s %d games (%d skipped), %d plies in %d ms: %d games/s, %d plies/s%n", label, games,
+                skipped, plies, nanos / 1_000_000, games * 1_000_000_000L / nanos, plies * 1_000_000_000L / nanos);
+    }
+
+    // Random legal games of up to MAX_PLIES plies
+    private static void generate(Path file, int games) throws IOException {
+        Random random = new Random(1);
+        BitboardPosition position = new BitboardPosition();
+        MoveList moves = new MoveList();
+        PgnGame game = new PgnGame();
+        try (PgnWriter writer = new PgnWriter(Files.newOutputStream(file))) {
+            for (int i = 0; i < games; i++) {
+                game.clear();
+                game.setTag("Event", "Random games");
+                game.setTag("Site", "?");
+                game.setTag("Date", "2024.01.01");
+                game.setTag("Round", Integer.toString(i + 1));
+                game.setTag("White", "Player " + random.nextInt(1000));
+                game.setTag("Black", "Player " + random.nextInt(1000));
+                position.setupStartPosition();
+                int plies = 20 + random.nextInt(MAX_PLIES - 20);
+                for (int ply = 0; ply < plies; ply++) {
+                    position.generateLegalMoves(moves);
+                    if (moves.isEmpty()) {
+                        break;
+                    }
+                    int move = moves.get(random.nextInt(moves.size()));
+                    game.addMove(move);
+                    position.makeMove(move);
+                }
+                position.generateLegalMoves(moves);
+                boolean mated = moves.isEmpty() && position.isInCheck(position.getSideToMove());
+                game.setResult(!mated ? "1/2-1/2" : position.getSideToMove() == BitboardPosition.WHITE ? "0-1" : "1-0");
+                writer.write(game);
+            }
+        }
+        System.out.println("Wrote " + games + " games to " + file);
+    }
+}
@@ -0,0 +1,107 @@
+package org.example.pgn;
+
+import org.example.game.BitboardPosition;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One game of a PGN file: its tag pairs, the main line as packed moves (see
+ * BitboardPosition.encodeMove) and the result. Comments, NAGs and variations are not kept.
+ * Readers refill the same instance for every game, so copy what has to outlive the next call.
+ */
+public class PgnGame {
+    private final Map<String, String> tags = new LinkedHashMap<>();
+    private int[] moves = new int[256];
+    private int moveCount;
+    private String result = "*";
+
+    public void clear() {
+        tags.clear();
+        moveCount = 0;
+        result = "*";
+    }
+
+    public String getTag(String name) {
+        return tags.get(name);
+    }
+
+    public void setTag(String name, String value) {
+        tags.put(name, value);
+    }
+
+    public Map<String, String> getTags() {
+        return Collections.unmodifiableMap(tags);
+    }
+
+    // "1-0", "0-1", "1/2-1/2" or "*" for a game still in progress
+    public String getResult() {
+        return result;
+    }
+
+    public void setResult(String result) {
+        this.result = result;
+    }
+
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    public int getMove(int ply) {
+        return moves[ply];
+    }
+
+    public void addMove(int move) {
+        if (moveCount == moves.length) {
+            moves = Arrays.copyOf(moves, moves.length * 2);
+        }
+        moves[moveCount++] = move;
+    }
+
+    /**
+     * Puts the game's starting position on the board: the FEN tag if there is one, otherwise
+     * the standard setup.
+     */
+    public void setUp(BitboardPosition position) {
+        String fen = tags.get("FEN");
+        if (fen != null) {
+            position.setFromFen(fen);
+        } else {
+            position.setupStartPosition();
+        }
+    }
+
+    // Leaves the position after the last move
+    public void replay(BitboardPosition position) {
+        setUp(position);
+        for (int ply = 0; ply < moveCount; ply++) {
+            position.makeMove(moves[ply]);
+        }
+    }
+
+    /**
+     * Replaces the moves with the history of a played position, e.g. the authoritative board of a
+     * finished server game, and sets the FEN tag when it did not start from the standard setup.
+     */
+    public void setMoves(BitboardPosition played) {
+        BitboardPosition start = new BitboardPosition();
+        start.copyFrom(played);
+        while (start.getPly() > 0) {
+            start.unmakeMove();
+        }
+        String fen = start.toFen();
+        if (fen.equals(BitboardPosition.START_FEN)) {
+            tags.remove("SetUp");
+            tags.remove("FEN");
+        } else {
+            tags.put("SetUp", "1");
+            tags.put("FEN", fen);
+        }
+        moveCount = 0;
+        for (int ply = 0; ply < played.getPly(); ply++) {
+            addMove(played.getMove(ply));
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package org.example.pgn;
+
+@FunctionalInterface
+public interface PgnGameListener {
+    // The game is reused once this returns
+    void onGame(PgnGame game);
+}
@@ -0,0 +1,170 @@
+package org.example.pgn;
+
+import org.example.game.BitboardPosition;
+import org.example.game.San;
+
+/**
+ * Turns the text of one game into a PgnGame, resolving every SAN move of the main line on its own
+ * board. Comments, NAGs, variations and move numbers are skipped. Not thread-safe; the parallel
+ * reader gives each worker thread its own parser.
+ */
+final class PgnParser {
+    private final BitboardPosition position = new BitboardPosition();
+    private final StringBuilder tagValue = new StringBuilder(64);
+
+    /**
+     * Parses text[start, end) into game. Throws IllegalArgumentException for a move that is
+     * illegal or ambiguous, or for broken syntax.
+     */
+    void parse(CharSequence text, int start, int end, PgnGame game) {
+        game.clear();
+        boolean inMovetext = false;
+        int i = start;
+        while (i < end) {
+            char c = text.charAt(i);
+            if (c <= ' ') {
+                i++;
+            } else if (c == '[' && !inMovetext) {
+                i = parseTag(text, i + 1, end, game);
+            } else if (c == '{') {
+                i = skipPast(text, i + 1, end, '}');
+            } else if (c == ';' || (c == '%' && (i == start || text.charAt(i - 1) == '\n'))) {
+                i = skipPast(text, i + 1, end, '\n');
+            } else if (c == '(') {
+                i = skipVariation(text, i + 1, end);
+            } else if (c == ')') {
+                throw new IllegalArgumentException("Unbalanced ')' in movetext");
+            } else if (c == '$') {
+                i = skipToken(text, i + 1, end);
+            } else {
+                if (!inMovetext) {
+                    inMovetext = true;
+                    game.setUp(position);
+                }
+                int tokenEnd = skipToken(text, i, end);
+                i = parseMovetextToken(text, i, tokenEnd, game);
+            }
+        }
+        if (!inMovetext) {
+            game.setUp(position); // Validates a FEN tag even without moves
+        }
+    }
+
+    // The position after the last parsed move
+    BitboardPosition getPosition() {
+        return position;
+    }
+
+    // A move number, a result or a move; returns where the next token starts
+    private int parseMovetextToken(CharSequence text, int i, int end, PgnGame game) {
+        if (text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+            String result = resultAt(text, i, end);
+            if (result != null) {
+                game.setResult(result);
+                return end;
+            }
+            while (i < end && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+                i++;
+            }
+            while (i < end && text.charAt(i) == '.') {
+                i++;
+            }
+            if (i == end) {
+                return end; // Just a move number, "12." or "12..."
+            }
+        }
+        while (i < end && text.charAt(i) == '.') {
+            i++; // "..." written apart from its number
+        }
+        if (i == end) {
+            return end;
+        }
+        if (end - i == 1 && text.charAt(i) == '*') {
+            game.setResult("*");
+            return end;
+        }
+        int move = San.parse(position, text, i, end);
+        if (move == San.NO_MOVE) {
+            throw new IllegalArgumentException("Illegal or ambiguous move " + text.subSequence(i, end)
+                    + " at ply " + (game.getMoveCount() + 1) + " in position " + position.toFen());
+        }
+        game.addMove(move);
+        position.makeMove(move);
+        return end;
+    }
+
+    private static String resultAt(CharSequence text, int i, int end) {
+        int length = end - i;
+        if (length == 3 && text.charAt(i + 1) == '-') {
+            if (text.charAt(i) == '1' && text.charAt(i + 2) == '0') {
+                return "1-0";
+            }
+            if (text.charAt(i) == '0' && text.charAt(i + 2) == '1') {
+                return "0-1";
+            }
+        }
+        if (length == 7 && text.charAt(i) == '1' && text.charAt(i + 1) == '/' && text.charAt(i + 3) == '-') {
+            return "1/2-1/2";
+        }
+        return null;
+    }
+
+    // [Name "Value"] with \" and \\ escapes in the value
+    private int parseTag(CharSequence text, int i, int end, PgnGame game) {
+        int nameStart = i;
+        while (i < end && text.charAt(i) > ' ' && text.charAt(i) != '"') {
+            i++;
+        }
+        String name = text.subSequence(nameStart, i).toString();
+        while (i < end && text.charAt(i) != '"') {
+            i++;
+        }
+        if (i == end) {
+            throw new IllegalArgumentException("Tag " + name + " has no value");
+        }
+        tagValue.setLength(0);
+        for (i++; i < end && text.charAt(i) != '"'; i++) {
+            char c = text.charAt(i);
+            if (c == '\\' && i + 1 < end) {
+                c = text.charAt(++i);
+            }
+            tagValue.append(c);
+        }
+        game.setTag(name, tagValue.toString());
+        return skipPast(text, i, end, ']');
+    }
+
+    private static int skipPast(CharSequence text, int i, int end, char terminator) {
+        while (i < end && text.charAt(i) != terminator) {
+            i++;
+        }
+        return Math.min(i + 1, end);
+    }
+
+    // Variations may nest and may contain comments with parentheses in them
+    private static int skipVariation(CharSequence text, int i, int end) {
+        int depth = 1;
+        while (i < end && depth > 0) {
+            char c = text.charAt(i++);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '{') {
+                i = skipPast(text, i, end, '}');
+            }
+        }
+        return i;
+    }
+
+    private static int skipToken(CharSequence text, int i, int end) {
+        while (i < end) {
+            char c = text.charAt(i);
+            if (c <= ' ' || c == '{' || c == '(' || c == ')' || c == ';' || c == '$') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+}
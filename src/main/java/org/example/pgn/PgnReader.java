@@ -0,0 +1,141 @@
+package org.example.pgn;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads the games of a PGN file one at a time in a single pass. Only the text of the current game
+ * is held in memory, so databases of any size stream through a few buffers. A game ends where a
+ * tag line follows movetext, or at the end of the input.
+ * <p>
+ * For large databases see ParallelPgnReader, which splits the input the same way and resolves
+ * the moves of many games on several threads.
+ */
+public class PgnReader implements Closeable {
+    private final Reader reader;
+    private final char[] buffer = new char[1 << 16];
+    private int bufferPosition;
+    private int bufferLimit;
+    private final StringBuilder line = new StringBuilder(256);
+    private final StringBuilder nextGameLine = new StringBuilder(256); // Tag line that ended the last game
+    private final StringBuilder gameText = new StringBuilder(4096);
+    private final PgnParser parser = new PgnParser();
+    private long lineNumber;
+    private long gameStartLine;
+
+    public PgnReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    public PgnReader(InputStream in) {
+        this(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    public static PgnReader open(Path file) throws IOException {
+        return new PgnReader(Files.newInputStream(file));
+    }
+
+    /**
+     * Reads the next game into game and returns false at the end of the input. A game with an
+     * illegal move or broken syntax throws IllegalArgumentException naming its first line; the
+     * reader has already moved past it, so the caller may skip it and carry on.
+     */
+    public boolean next(PgnGame game) throws IOException {
+        gameText.setLength(0);
+        if (!readGame(gameText)) {
+            return false;
+        }
+        try {
+            parser.parse(gameText, 0, gameText.length(), game);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Game at line " + gameStartLine + ": " + e.getMessage(), e);
+        }
+        return true;
+    }
+
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    long getGameStartLine() {
+        return gameStartLine;
+    }
+
+    /**
+     * Appends the raw text of the next game to out, one '\n' after each line. Returns false once
+     * the input holds nothing but blank lines.
+     */
+    boolean readGame(StringBuilder out) throws IOException {
+        int begin = out.length();
+        boolean sawMovetext = false;
+        if (nextGameLine.length() > 0) {
+            out.append(nextGameLine).append('\n');
+            nextGameLine.setLength(0);
+            gameStartLine = lineNumber;
+        }
+        while (readLine()) {
+            int first = 0;
+            while (first < line.length() && line.charAt(first) <= ' ') {
+                first++;
+            }
+            if (first == line.length()) {
+                continue;
+            }
+            if (out.length() == begin) {
+                gameStartLine = lineNumber;
+            }
+            if (line.charAt(first) == '[') {
+                if (sawMovetext) {
+                    nextGameLine.append(line);
+                    return true;
+                }
+            } else if (line.charAt(first) != '%') {
+                sawMovetext = true;
+            }
+            out.append(line).append('\n');
+        }
+        return out.length() > begin;
+    }
+
+    private boolean readLine() throws IOException {
+        line.setLength(0);
+        while (true) {
+            if (bufferPosition == bufferLimit) {
+                bufferLimit = reader.read(buffer, 0, buffer.length);
+                bufferPosition = 0;
+                if (bufferLimit <= 0) {
+                    bufferLimit = 0;
+                    if (line.length() == 0) {
+                        return false;
+                    }
+                    lineNumber++;
+                    return true; // Last line without a line break
+                }
+            }
+            int start = bufferPosition;
+            while (bufferPosition < bufferLimit && buffer[bufferPosition] != '\n') {
+                bufferPosition++;
+            }
+            line.append(buffer, start, bufferPosition - start);
+            if (bufferPosition < bufferLimit) {
+                bufferPosition++; // Past the '\n'
+                if (line.length() > 0 && line.charAt(line.length() - 1) == '\r') {
+                    line.setLength(line.length() - 1);
+                }
+                lineNumber++;
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,116 @@
+package org.example.pgn;
+
+import org.example.game.BitboardPosition;
+import org.example.game.MoveList;
+import org.example.game.San;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Writes games in export format: the seven tag roster first (with "?" for missing values), the
+ * other tags after it, then the moves in SAN with move numbers, wrapped before 80 columns.
+ */
+public class PgnWriter implements Closeable, Flushable {
+    private static final String[] SEVEN_TAG_ROSTER = { "Event", "Site", "Date", "Round", "White", "Black", "Result" };
+    private static final int LINE_LENGTH = 79;
+
+    private final Writer out;
+    private final BitboardPosition position = new BitboardPosition();
+    private final MoveList scratch = new MoveList();
+    private final StringBuilder text = new StringBuilder(4096);
+    private final StringBuilder token = new StringBuilder(16);
+
+    public PgnWriter(Writer out) {
+        this.out = out;
+    }
+
+    public PgnWriter(OutputStream out) {
+        this(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16));
+    }
+
+    public void write(PgnGame game) throws IOException {
+        text.setLength(0);
+        for (String name : SEVEN_TAG_ROSTER) {
+            String value = name.equals("Result") ? game.getResult() : game.getTag(name);
+            appendTag(name, value != null ? value : "?");
+        }
+        for (Map.Entry<String, String> tag : game.getTags().entrySet()) {
+            if (!isRosterTag(tag.getKey())) {
+                appendTag(tag.getKey(), tag.getValue());
+            }
+        }
+        text.append('\n');
+
+        game.setUp(position);
+        int lineStart = text.length();
+        for (int ply = 0; ply < game.getMoveCount(); ply++) {
+            int move = game.getMove(ply);
+            token.setLength(0);
+            if (position.getSideToMove() == BitboardPosition.WHITE || ply == 0) {
+                token.append(position.getFullmoveNumber())
+                        .append(position.getSideToMove() == BitboardPosition.WHITE ? ". " : "... ");
+            }
+            San.append(position, move, token, scratch);
+            lineStart = appendToken(lineStart);
+            position.makeMove(move);
+        }
+        token.setLength(0);
+        token.append(game.getResult());
+        appendToken(lineStart);
+        text.append("\n\n");
+        out.append(text);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    // Adds token to the movetext, breaking the line first if it would get too long
+    private int appendToken(int lineStart) {
+        if (text.length() > lineStart) {
+            if (text.length() - lineStart + 1 + token.length() > LINE_LENGTH) {
+                text.append('\n');
+                lineStart = text.length();
+            } else {
+                text.append(' ');
+            }
+        }
+        text.append(token);
+        return lineStart;
+    }
+
+    private void appendTag(String name, String value) {
+        text.append('[').append(name).append(" \"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                text.append('\\');
+            }
+            text.append(c);
+        }
+        text.append("\"]\n");
+    }
+
+    private static boolean isRosterTag(String name) {
+        for (String rosterTag : SEVEN_TAG_ROSTER) {
+            if (rosterTag.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,135 @@
+package org.example.protocol;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One peer-to-peer game connection. run() is the receive loop: it blocks on the socket and hands
+ * every decoded message to the listener as soon as it arrives, with no polling. Pings are answered
+ * here, and heartbeats find peers that vanished without closing the socket. Each connection sends
+ * its heartbeats from its own virtual thread, so a peer that stops reading stalls only its own pings.
+ * <p>
+ * Every sent move is followed by a ping. Frames are handled in order, so the pong comes back only
+ * after the peer has handled the move, and its round trip is recorded as the move latency.
+ */
+public class Connection implements MessageSender {
+    public static final long HEARTBEAT_MILLIS = 1000;
+    public static final long TIMEOUT_MILLIS = 5000;
+
+    private final Socket socket;
+    private final MessageWriter writer;
+    private final MessageReader reader;
+    private final MessageListener listener;
+    private final LatencyStats moveLatency = new LatencyStats();
+    private final LatencyStats heartbeatLatency = new LatencyStats();
+    private volatile long pendingMovePing = -1; // Timestamp of the ping sent after the last move
+    private volatile long lastReceivedNanos;
+    private volatile String closeReason;
+
+    public Connection(Socket socket, MessageListener listener) throws IOException {
+        this.socket = socket;
+        this.listener = listener;
+        socket.setTcpNoDelay(true); // Frames are tiny, waiting to batch them only adds latency
+        this.writer = new MessageWriter(socket.getOutputStream());
+        this.reader = new MessageReader(socket.getInputStream());
+    }
+
+    @Override
+    public void send(Message message) throws IOException {
+        writer.send(message);
+        if (message.getType() == MessageType.MOVE) {
+            long timestamp = System.nanoTime();
+            pendingMovePing = timestamp;
+            writer.send(Message.ping(timestamp));
+        }
+    }
+
+    /**
+     * Receives until the connection ends, then closes it and returns why it ended.
+     */
+    public String run() {
+        lastReceivedNanos = System.nanoTime();
+        Thread heartbeats = Thread.ofVirtual().name("ChessHeartbeatThread").start(this::sendHeartbeats);
+        try {
+            while (true) {
+                Message message = reader.read();
+                long now = System.nanoTime();
+                lastReceivedNanos = now;
+                switch (message.getType()) {
+                    case PING:
+                        writer.send(Message.pong(message.getTimestamp()));
+                        break;
+                    case PONG:
+                        LatencyStats stats = message.getTimestamp() == pendingMovePing ? moveLatency : heartbeatLatency;
+                        stats.record(now - message.getTimestamp());
+                        break;
+                    default:
+                        listener.onMessage(message);
+                }
+            }
+        } catch (EOFException e) {
+            closeWith("peer closed the connection");
+        } catch (IOException e) {
+            closeWith(e.getMessage());
+        } catch (RuntimeException e) {
+            closeWith("listener failed: " + e);
+        } finally {
+            heartbeats.interrupt();
+        }
+        return closeReason;
+    }
+
+    // A ping is a few bytes, so a peer that stopped reading is closed by the timeout long before
+    // its socket buffer is full enough to block the write
+    private void sendHeartbeats() {
+        try {
+            while (isOpen()) {
+                Thread.sleep(HEARTBEAT_MILLIS);
+                if (System.nanoTime() - lastReceivedNanos > TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS)) {
+                    closeWith("no message for " + TIMEOUT_MILLIS + " ms");
+                    return;
+                }
+                writer.send(Message.ping(System.nanoTime()));
+            }
+        } catch (InterruptedException e) {
+            // run() returned, the connection is closed
+        } catch (IOException e) {
+            closeWith(e.getMessage());
+        }
+    }
+
+    public void close() {
+        closeWith("closed locally");
+    }
+
+    // The first reason wins; closing the socket also ends a blocked run()
+    private void closeWith(String reason) {
+        synchronized (this) {
+            if (closeReason == null) {
+                closeReason = reason;
+            }
+        }
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // Already closing, nothing left to release
+        }
+    }
+
+    public boolean isOpen() {
+        return closeReason == null;
+    }
+
+    /**
+     * Round trips from sending a move until the peer had handled it.
+     */
+    public LatencyStats getMoveLatency() {
+        return moveLatency;
+    }
+
+    public LatencyStats getHeartbeatLatency() {
+        return heartbeatLatency;
+    }
+}
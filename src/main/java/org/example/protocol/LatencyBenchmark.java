@@ -0,0 +1,71 @@
+package org.example.protocol;
+
+import org.example.game.BitboardPosition;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends moves over loopback to a peer that plays each one straight back, and reports the time
+ * from sending a move until the reply has been dispatched.
+ * Usage: LatencyBenchmark [moves]
+ */
+public class LatencyBenchmark {
+    public static void main(String[] args) throws Exception {
+        int moves = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        try (ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            Thread peer = new Thread(() -> runEchoPeer(serverSocket));
+            peer.setDaemon(true);
+            peer.start();
+
+            BlockingQueue<Message> replies = new ArrayBlockingQueue<>(16);
+            Connection connection = new Connection(new Socket(serverSocket.getInetAddress(), serverSocket.getLocalPort()),
+                    replies::add);
+            Thread receiver = new Thread(connection::run);
+            receiver.setDaemon(true);
+            receiver.start();
+
+            LatencyStats latency = new LatencyStats(moves);
+            int warmup = Math.min(moves, 5_000);
+            for (int i = 0; i < warmup + moves; i++) {
+                int move = BitboardPosition.encodeMove(i % 64, (i + 8) % 64, BitboardPosition.QUIET);
+                long start = System.nanoTime();
+                connection.send(Message.move(move));
+                Message reply = replies.poll(Connection.TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                long elapsed = System.nanoTime() - start;
+                if (reply == null || reply.getMove() != move) {
+                    throw new IllegalStateException("Move " + i + " was not echoed: " + reply);
+                }
+                if (i >= warmup) {
+                    latency.record(elapsed);
+                }
+            }
+            connection.close();
+            System.out.println("Move round trip over loopback: " + latency);
+            System.out.println("One way (half the round trip), p99: "
+                    + String.format("%.1f us", latency.percentileNanos(0.99) / 2000.0));
+        }
+    }
+
+    private static void runEchoPeer(ServerSocket serverSocket) {
+        try {
+            Connection[] self = new Connection[1];
+            self[0] = new Connection(serverSocket.accept(), message -> {
+                try {
+                    self[0].send(message);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            self[0].run();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package org.example.protocol;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the most recent latency samples and reports percentiles over them.
+ */
+public class LatencyStats {
+    private final long[] samples;
+    private long count;
+
+    public LatencyStats(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    public LatencyStats() {
+        this(4096);
+    }
+
+    public synchronized void record(long nanos) {
+        samples[(int) (count++ % samples.length)] = nanos;
+    }
+
+    // Drops every sample, e.g. after a warm-up
+    public synchronized void reset() {
+        count = 0;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * Latency below which the given fraction (0..1) of the kept samples fall, or 0 without samples.
+     */
+    public synchronized long percentileNanos(double fraction) {
+        int size = (int) Math.min(count, samples.length);
+        if (size == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(fraction * size) - 1;
+        return sorted[Math.max(0, Math.min(size - 1, rank))];
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d samples, p50 %.1f us, p99 %.1f us, max %.1f us", getCount(),
+                percentileNanos(0.50) / 1000.0, percentileNanos(0.99) / 1000.0, percentileNanos(1.0) / 1000.0);
+    }
+}
@@ -0,0 +1,108 @@
+package org.example.protocol;
+
+import org.example.game.BitboardPosition;
+
+/**
+ * One decoded frame. Moves travel as the 16-bit packed move of BitboardPosition, with squares
+ * counted from a1 so both players read them the same way regardless of board orientation.
+ * PING and PONG carry the sender's System.nanoTime, which only the sender interprets.
+ * GAME_START is sent by a game server when it pairs two players, REJECT when it refuses a move.
+ */
+public final class Message {
+    // Messages without payload are shared, so sending or receiving them allocates nothing
+    public static final Message RESIGN = new Message(MessageType.RESIGN, 0, 0L, 0);
+    public static final Message DRAW_OFFER = new Message(MessageType.DRAW_OFFER, 0, 0L, 0);
+    public static final Message RESET = new Message(MessageType.RESET, 0, 0L, 0);
+
+    private final MessageType type;
+    private final int move;
+    private final long timestamp;
+    private final int color;
+    private final int gameId;
+
+    private Message(MessageType type, int move, long timestamp, int color) {
+        this(type, move, timestamp, color, 0);
+    }
+
+    private Message(MessageType type, int move, long timestamp, int color, int gameId) {
+        this.type = type;
+        this.move = move;
+        this.timestamp = timestamp;
+        this.color = color;
+        this.gameId = gameId;
+    }
+
+    public static Message move(int move) {
+        return new Message(MessageType.MOVE, move & 0xFFFF, 0L, 0);
+    }
+
+    public static Message ping(long timestamp) {
+        return new Message(MessageType.PING, 0, timestamp, 0);
+    }
+
+    // Answers a ping by echoing its timestamp
+    public static Message pong(long timestamp) {
+        return new Message(MessageType.PONG, 0, timestamp, 0);
+    }
+
+    /**
+     * Tells a player which colour (BitboardPosition.WHITE or BLACK) they have in which game.
+     */
+    public static Message gameStart(int color, int gameId) {
+        return new Message(MessageType.GAME_START, 0, 0L, color, gameId);
+    }
+
+    /**
+     * Tells a player that the server refused their move, so they can take it back.
+     */
+    public static Message reject(int move) {
+        return new Message(MessageType.REJECT, move & 0xFFFF, 0L, 0);
+    }
+
+    static Message withoutPayload(MessageType type) {
+        switch (type) {
+            case RESIGN:
+                return RESIGN;
+            case DRAW_OFFER:
+                return DRAW_OFFER;
+            default:
+                return RESET;
+        }
+    }
+
+    public MessageType getType() {
+        return type;
+    }
+
+    public int getMove() {
+        return move;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getColor() {
+        return color;
+    }
+
+    public int getGameId() {
+        return gameId;
+    }
+
+    @Override
+    public String toString() {
+        switch (type) {
+            case MOVE:
+            case REJECT:
+                return type + " " + BitboardPosition.moveToString(move);
+            case PING:
+            case PONG:
+                return type + " " + timestamp;
+            case GAME_START:
+                return "GAME_START " + (color == BitboardPosition.WHITE ? "white" : "black") + " game " + gameId;
+            default:
+                return type.toString();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.example.protocol;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Frame layout, all big-endian:
+ * <pre>
+ * length  u16  bytes that follow, so a reader can always find the next frame
+ * version u8   PROTOCOL_VERSION
+ * type    u8   MessageType code
+ * payload      MOVE and REJECT: u16 packed move, PING and PONG: u64 timestamp,
+ *              GAME_START: u8 colour and u32 game id, other types: empty
+ * </pre>
+ * A move is 6 bytes on the wire.
+ */
+public final class MessageCodec {
+    public static final int PROTOCOL_VERSION = 1;
+    public static final int LENGTH_BYTES = 2;
+    public static final int MAX_FRAME_BYTES = LENGTH_BYTES + 2 + 8;
+
+    private MessageCodec() {
+    }
+
+    public static int frameSize(Message message) {
+        return LENGTH_BYTES + 2 + payloadSize(message.getType());
+    }
+
+    /**
+     * Writes one complete frame. The buffer must have frameSize(message) bytes remaining.
+     */
+    public static void encode(Message message, ByteBuffer out) {
+        MessageType type = message.getType();
+        out.putShort((short) (2 + payloadSize(type)));
+        out.put((byte) PROTOCOL_VERSION);
+        out.put((byte) type.getCode());
+        if (type == MessageType.MOVE || type == MessageType.REJECT) {
+            out.putShort((short) message.getMove());
+        } else if (type == MessageType.PING || type == MessageType.PONG) {
+            out.putLong(message.getTimestamp());
+        } else if (type == MessageType.GAME_START) {
+            out.put((byte) message.getColor());
+            out.putInt(message.getGameId());
+        }
+    }
+
+    /**
+     * Reads one frame if the buffer holds all of it, otherwise returns null and leaves the
+     * buffer position where it was, so the caller can read more bytes and try again.
+     */
+    public static Message decode(ByteBuffer in) throws ProtocolException {
+        if (in.remaining() < LENGTH_BYTES) {
+            return null;
+        }
+        int start = in.position();
+        int length = in.getShort(start) & 0xFFFF;
+        if (length < 2 || length > MAX_FRAME_BYTES - LENGTH_BYTES) {
+            throw new ProtocolException("Bad frame length " + length);
+        }
+        if (in.remaining() < LENGTH_BYTES + length) {
+            return null;
+        }
+        int version = in.get(start + 2) & 0xFF;
+        if (version != PROTOCOL_VERSION) {
+            throw new ProtocolException("Unsupported protocol version " + version);
+        }
+        int code = in.get(start + 3) & 0xFF;
+        MessageType type = MessageType.fromCode(code);
+        if (type == null) {
+            throw new ProtocolException("Unknown message type " + code);
+        }
+        if (length != 2 + payloadSize(type)) {
+            throw new ProtocolException("Bad length " + length + " for " + type);
+        }
+        in.position(start + LENGTH_BYTES + length);
+        switch (type) {
+            case MOVE:
+                return Message.move(in.getShort(start + 4));
+            case REJECT:
+                return Message.reject(in.getShort(start + 4));
+            case PING:
+                return Message.ping(in.getLong(start + 4));
+            case PONG:
+                return Message.pong(in.getLong(start + 4));
+            case GAME_START:
+                return Message.gameStart(in.get(start + 4) & 1, in.getInt(start + 5));
+            default:
+                return Message.withoutPayload(type);
+        }
+    }
+
+    private static int payloadSize(MessageType type) {
+        switch (type) {
+            case MOVE:
+            case REJECT:
+                return 2;
+            case PING:
+            case PONG:
+                return 8;
+            case GAME_START:
+                return 5;
+            default:
+                return 0;
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package org.example.protocol;
+
+@FunctionalInterface
+public interface MessageListener {
+    void onMessage(Message message);
+}
@@ -0,0 +1,41 @@
+package org.example.protocol;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads messages from a stream. read blocks until a whole frame has arrived and throws
+ * EOFException when the peer closed the connection cleanly between frames.
+ */
+public class MessageReader {
+    private final DataInputStream in;
+    private final ByteBuffer frame = ByteBuffer.allocate(MessageCodec.MAX_FRAME_BYTES);
+
+    public MessageReader(InputStream in) {
+        this.in = new DataInputStream(in);
+    }
+
+    public Message read() throws IOException {
+        int length = in.readUnsignedShort();
+        if (length > MessageCodec.MAX_FRAME_BYTES - MessageCodec.LENGTH_BYTES) {
+            throw new ProtocolException("Bad frame length " + length);
+        }
+        byte[] bytes = frame.array();
+        bytes[0] = (byte) (length >>> 8);
+        bytes[1] = (byte) length;
+        try {
+            in.readFully(bytes, MessageCodec.LENGTH_BYTES, length);
+        } catch (EOFException e) {
+            throw new ProtocolException("Connection closed inside a frame");
+        }
+        frame.clear().limit(MessageCodec.LENGTH_BYTES + length);
+        return MessageCodec.decode(frame);
+    }
+
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,8 @@
+package org.example.protocol;
+
+import java.io.IOException;
+
+@FunctionalInterface
+public interface MessageSender {
+    void send(Message message) throws IOException;
+}
@@ -0,0 +1,39 @@
+package org.example.protocol;
+
+/**
+ * Kinds of frame on the wire. The code is the byte sent after the version, so existing codes
+ * must never change.
+ */
+public enum MessageType {
+    MOVE(1),
+    RESIGN(2),
+    DRAW_OFFER(3),
+    RESET(4),
+    PING(5),
+    PONG(6),
+    GAME_START(7),
+    REJECT(8);
+
+    private static final MessageType[] BY_CODE = new MessageType[256];
+
+    static {
+        for (MessageType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    private final int code;
+
+    MessageType(int code) {
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    // Null for codes this version does not know
+    public static MessageType fromCode(int code) {
+        return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+    }
+}
@@ -0,0 +1,39 @@
+package org.example.protocol;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sends messages over a stream, one write and flush per message. Safe to call from several
+ * threads, for example the GUI thread sending moves while another thread sends other messages.
+ * The lock is a ReentrantLock rather than synchronized so a virtual thread blocked in the write
+ * does not hold on to its carrier thread.
+ */
+public class MessageWriter implements MessageSender {
+    private final OutputStream out;
+    private final ByteBuffer frame = ByteBuffer.allocate(MessageCodec.MAX_FRAME_BYTES);
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public MessageWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void send(Message message) throws IOException {
+        lock.lock();
+        try {
+            frame.clear();
+            MessageCodec.encode(message, frame);
+            out.write(frame.array(), 0, frame.position());
+            out.flush();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void close() throws IOException {
+        out.close();
+    }
+}
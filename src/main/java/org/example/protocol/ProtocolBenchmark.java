@@ -0,0 +1,92 @@
+package org.example.protocol;
+
+import org.example.game.BitboardPosition;
+import org.example.game.Move;
+import org.example.game.Position;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Compares the binary frames with the Java serialization of Move they replaced: bytes per move
+ * on a long-lived stream, and the time to encode and decode one move.
+ * Usage: ProtocolBenchmark [moves]
+ */
+public class ProtocolBenchmark {
+    public static void main(String[] args) throws Exception {
+        int moves = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int[] packed = new int[moves];
+        Move[] objects = new Move[moves];
+        for (int i = 0; i < moves; i++) {
+            int from = i % 64;
+            int to = (i * 7 + 13) % 64;
+            packed[i] = BitboardPosition.encodeMove(from, to, BitboardPosition.QUIET);
+            objects[i] = new Move(Position.of(from), Position.of(to), "PAWN");
+        }
+
+        // Warm both paths up before timing them
+        for (int round = 0; round < 3; round++) {
+            serialization(objects);
+            binary(packed);
+        }
+
+        long start = System.nanoTime();
+        long serializedBytes = serialization(objects);
+        long serializationNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        long binaryBytes = binary(packed);
+        long binaryNanos = System.nanoTime() - start;
+
+        System.out.printf("%-22s %14s %16s%n", "", "bytes/move", "ns/move (enc+dec)");
+        System.out.printf("%-22s %14.1f %16.1f%n", "Java serialization",
+                (double) serializedBytes / moves, (double) serializationNanos / moves);
+        System.out.printf("%-22s %14.1f %16.1f%n", "binary frames",
+                (double) binaryBytes / moves, (double) binaryNanos / moves);
+        System.out.println("First move alone: " + serializedSize(objects[0]) + " bytes serialized, "
+                + MessageCodec.frameSize(Message.move(packed[0])) + " bytes framed");
+    }
+
+    // Returns the bytes written; every move is read back so both directions are timed
+    private static long serialization(Move[] moves) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        for (Move move : moves) {
+            out.writeObject(move);
+        }
+        out.flush();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        for (int i = 0; i < moves.length; i++) {
+            if (((Move) in.readObject()).to == null) {
+                throw new IllegalStateException("Move lost its target");
+            }
+        }
+        return bytes.size();
+    }
+
+    private static long binary(int[] moves) throws ProtocolException {
+        ByteBuffer buffer = ByteBuffer.allocate(moves.length * MessageCodec.MAX_FRAME_BYTES);
+        for (int move : moves) {
+            MessageCodec.encode(Message.move(move), buffer);
+        }
+        long written = buffer.position();
+        buffer.flip();
+        for (int move : moves) {
+            if (MessageCodec.decode(buffer).getMove() != move) {
+                throw new IllegalStateException("Move changed on the wire");
+            }
+        }
+        return written;
+    }
+
+    private static int serializedSize(Move move) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(move);
+        }
+        return bytes.size();
+    }
+}
@@ -0,0 +1,14 @@
+package org.example.protocol;
+
+import java.io.IOException;
+
+/**
+ * The peer sent bytes that are not a valid frame for this protocol version.
+ */
+public class ProtocolException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public ProtocolException(String message) {
+        super(message);
+    }
+}
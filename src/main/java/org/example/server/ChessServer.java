@@ -1,93 +1,343 @@
 package org.example.server;
 
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import org.example.game.ChessGame;
+import org.example.protocol.Message;
+import org.example.protocol.MessageReader;
+import org.example.protocol.MessageWriter;
+
+import java.io.EOFException;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Blocking-socket server with one handler thread per connection. Connections are paired into game
+ * sessions in arrival order. Every session keeps the authoritative board: a move is passed on to
+ * the opponent only if it is the sender's turn and the move is legal there, otherwise the sender
+ * gets it back as REJECT.
+ * <p>
+ * By default handlers run on virtual threads: a handler blocked in read parks without holding a
+ * platform thread, so idle connections cost only their socket and a small stack on the heap. Locks
+ * are ReentrantLocks rather than synchronized, because a virtual thread blocking in a write while
+ * holding a monitor would pin its carrier thread. All threads are owned by one executor, and
+ * close() shuts down in order: stop accepting, close every connection, then wait until every
+ * handler has returned.
+ * <p>
+ * A game ends when a player resigns or leaves: the opponent is told and both players still
+ * connected go back into matchmaking. A failed accept, e.g. when the process is out of file
+ * descriptors, is logged and retried after a pause rather than ending the accept loop.
+ */
+public class ChessServer implements AutoCloseable {
+    private static final long ACCEPT_RETRY_MILLIS = 100;
 
-public class ChessServer {
+    private final ExecutorService executor;
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
     private ServerSocket serverSocket;
-    private Socket clientSocket;
-    private ObjectOutputStream out;
-    private ObjectInputStream in;
+    private volatile boolean closed;
+    private final ReentrantLock matchmaking = new ReentrantLock();
+    private ClientHandler waitingPlayer; // Guarded by matchmaking
+    private int nextGameId = 1; // Guarded by matchmaking
 
-    public void start(int port) {
-        try {
-            serverSocket = new ServerSocket(port);
-            System.out.println("Server started. Waiting for client on port " + port);
-            clientSocket = serverSocket.accept(); // This will block until a client connects
-            System.out.println("Client connected: " + clientSocket.getInetAddress().getHostAddress());
+    public ChessServer() {
+        this(true);
+    }
+
+    // Platform threads are kept for comparison, e.g. when profiling the soak test
+    public ChessServer(boolean virtualThreads) {
+        this.executor = virtualThreads ? Executors.newVirtualThreadPerTaskExecutor() : Executors.newCachedThreadPool();
+    }
 
-            // Initialize output and input streams
-            // IMPORTANT: Initialize ObjectOutputStream first on both client and server
-            out = new ObjectOutputStream(clientSocket.getOutputStream());
-            in = new ObjectInputStream(clientSocket.getInputStream());
+    public void start(int port) throws IOException {
+        serverSocket = new ServerSocket(port, 1024);
+        System.out.println("Server started. Waiting for clients on port " + serverSocket.getLocalPort());
+        executor.execute(this::acceptClients);
+    }
 
-            // Start a new thread to listen for incoming messages from the client
-            new Thread(new ClientHandler(in)).start();
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getConnectionCount() {
+        return sockets.size();
+    }
 
-            // TODO: You'll need to integrate this with your game logic
-            // e.g., disable local input for the opponent's color until a move is received
+    private void acceptClients() {
+        while (!closed) {
+            Socket clientSocket;
+            try {
+                clientSocket = serverSocket.accept(); // Blocks until a client connects
+            } catch (IOException e) {
+                if (closed) {
+                    return;
+                }
+                System.err.println("Error accepting client: " + e.getMessage());
+                try {
+                    Thread.sleep(ACCEPT_RETRY_MILLIS); // Running out of descriptors rarely clears at once
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                continue;
+            }
+            sockets.add(clientSocket);
+            if (closed) {
+                closeQuietly(clientSocket); // Accepted while close() was sweeping the connections
+                return;
+            }
+            executor.execute(new ClientHandler(clientSocket));
+        }
+    }
 
+    /**
+     * Stops accepting, disconnects every client and returns once all handler threads have ended.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            if (serverSocket != null) serverSocket.close();
         } catch (IOException e) {
-            System.err.println("Error starting server or accepting client: " + e.getMessage());
-            // Handle error (e.g., show an error message in the GUI)
+            System.err.println("Error closing server socket: " + e.getMessage());
+        }
+        for (Socket socket : sockets) {
+            closeQuietly(socket); // Unblocks the handler's read
         }
+        executor.close(); // Waits for the accept loop and every handler
     }
 
-    public void sendMove(Object moveData) { // moveData could be a custom class
+    private static void closeQuietly(Socket socket) {
         try {
-            if (out != null) {
-                out.writeObject(moveData);
-                out.flush(); // Ensure data is sent immediately
+            socket.close();
+        } catch (IOException ignored) {
+            // The connection is gone either way
+        }
+    }
+
+    // Pairs the player with the one waiting, or makes it wait for the next connection. Sockets are
+    // written only after unlocking, so a client that stopped reading cannot stall matchmaking
+    private void matchOrWait(ClientHandler player) {
+        GameSession session;
+        matchmaking.lock();
+        try {
+            if (player.left) {
+                return;
             }
-        } catch (IOException e) {
-            System.err.println("Error sending move: " + e.getMessage());
+            if (waitingPlayer == null) {
+                waitingPlayer = player;
+                return;
+            }
+            session = new GameSession(nextGameId++, waitingPlayer, player);
+            waitingPlayer = null;
+            session.seat();
+        } finally {
+            matchmaking.unlock();
         }
+        session.start();
     }
 
-    // Method to close connections (call this when the game ends or server stops)
-    public void stop() {
+    private void leave(ClientHandler player) {
+        GameSession session;
+        matchmaking.lock();
         try {
-            if (in != null) in.close();
-            if (out != null) out.close();
-            if (clientSocket != null) clientSocket.close();
-            if (serverSocket != null) serverSocket.close();
-        } catch (IOException e) {
-            System.err.println("Error closing server resources: " + e.getMessage());
+            player.left = true;
+            if (waitingPlayer == player) {
+                waitingPlayer = null;
+            }
+            session = unseat(player);
+        } finally {
+            matchmaking.unlock();
+        }
+        if (session != null) {
+            finish(session, player, Message.RESIGN);
+        }
+    }
+
+    private void resign(ClientHandler player, Message message) {
+        GameSession session;
+        matchmaking.lock();
+        try {
+            session = unseat(player);
+        } finally {
+            matchmaking.unlock();
+        }
+        if (session != null) {
+            finish(session, player, message);
+            matchOrWait(player);
+        }
+    }
+
+    // Takes both players out of the player's game, if any. Called holding the matchmaking lock
+    private static GameSession unseat(ClientHandler player) {
+        GameSession session = player.session;
+        if (session != null) {
+            session.opponentOf(player).session = null;
+            player.session = null;
+        }
+        return session;
+    }
+
+    // Tells the opponent of the losing player that the game is over and re-queues it
+    private void finish(GameSession session, ClientHandler loser, Message notice) {
+        ClientHandler opponent = session.opponentOf(loser);
+        if (session.sendIfStarted(opponent, notice)) {
+            matchOrWait(opponent);
         }
     }
 
-    // Inner class to handle messages from the client
+    private static final class GameSession {
+        private final int id;
+        private final ClientHandler[] players;
+        private final ChessGame game = new ChessGame(true, null);
+        private final ReentrantLock lock = new ReentrantLock(); // Guards game and keeps relays in order
+        private boolean started; // Guarded by lock
+
+        private GameSession(int id, ClientHandler white, ClientHandler black) {
+            this.id = id;
+            this.players = new ClientHandler[] { white, black };
+        }
+
+        // Called holding the matchmaking lock
+        private void seat() {
+            for (int color = 0; color < players.length; color++) {
+                players[color].color = color;
+                players[color].session = this;
+            }
+        }
+
+        // Under the session lock, so no move or notice of this game reaches a player before its start
+        private void start() {
+            lock.lock();
+            try {
+                for (ClientHandler player : players) {
+                    if (player.session == this) { // Not if the game has already ended
+                        player.send(Message.gameStart(player.color, id));
+                    }
+                }
+                started = true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Returns false if the message could not be delivered; a game that never started needs none
+        private boolean sendIfStarted(ClientHandler player, Message message) {
+            lock.lock();
+            try {
+                return !started || player.send(message);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private ClientHandler opponentOf(ClientHandler player) {
+            return players[player.color ^ 1];
+        }
+
+        // Plays the move if it is the sender's turn and legal, and passes only accepted moves on
+        private void move(ClientHandler player, Message message) {
+            lock.lock();
+            try {
+                if (player.session == this && game.getBoard().getBitboardPosition().getSideToMove() == player.color
+                        && game.makeMove(message.getMove())) {
+                    opponentOf(player).send(message);
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            player.send(Message.reject(message.getMove()));
+        }
+
+        private void reset(ClientHandler player, Message message) {
+            lock.lock();
+            try {
+                if (player.session != this) {
+                    return; // The game ended meanwhile
+                }
+                game.resetGame();
+                opponentOf(player).send(message);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Inner class to handle messages from one client
     private class ClientHandler implements Runnable {
-        private ObjectInputStream clientIn;
+        private final Socket socket;
+        private MessageWriter out;
+        private volatile GameSession session;
+        private volatile int color;
+        private boolean left; // Guarded by matchmaking
 
-        public ClientHandler(ObjectInputStream in) {
-            this.clientIn = in;
+        public ClientHandler(Socket socket) {
+            this.socket = socket;
+        }
+
+        // Returns false if the message could not be delivered
+        private boolean send(Message message) {
+            try {
+                out.send(message);
+                return true;
+            } catch (IOException e) {
+                closeQuietly(socket); // The handler's read fails and cleans up
+                return false;
+            }
         }
 
         @Override
         public void run() {
             try {
-                Object receivedData;
-                while ((receivedData = clientIn.readObject()) != null) {
-                    // TODO: Process the received move data from the client
-                    // This will likely involve:
-                    // 1. Deserializing receivedData to your Move object/data structure
-                    // 2. Validating the move
-                    // 3. Updating your local game board
-                    // 4. Refreshing the GUI
-                    // 5. Enabling local input for your turn
-                    System.out.println("Server received move: " + receivedData);
-                    // Example: ((ChessGame) yourGameInstance).processOpponentMove(receivedData);
+                socket.setTcpNoDelay(true);
+                out = new MessageWriter(socket.getOutputStream());
+                MessageReader in = new MessageReader(socket.getInputStream());
+                matchOrWait(this);
+                while (true) {
+                    Message receivedData = in.read();
+                    GameSession current = session;
+                    switch (receivedData.getType()) {
+                        case PING:
+                            send(Message.pong(receivedData.getTimestamp()));
+                            break;
+                        case MOVE:
+                            if (current != null) {
+                                current.move(this, receivedData);
+                            } else {
+                                send(Message.reject(receivedData.getMove()));
+                            }
+                            break;
+                        case RESET:
+                            if (current != null) {
+                                current.reset(this, receivedData);
+                            }
+                            break;
+                        case RESIGN:
+                            resign(this, receivedData);
+                            break;
+                        case DRAW_OFFER:
+                            if (current != null) {
+                                current.opponentOf(this).send(receivedData);
+                            }
+                            break;
+                        default:
+                            break; // Server-to-client messages are ignored
+                    }
+                }
+            } catch (EOFException e) {
+                // Client disconnected
+            } catch (IOException e) {
+                if (!closed) {
+                    System.err.println("Error receiving data from client or client disconnected: " + e.getMessage());
                 }
-            } catch (IOException | ClassNotFoundException e) {
-                System.err.println("Error receiving data from client or client disconnected: " + e.getMessage());
-                // Handle client disconnection (e.g., show a message, end the game)
             } finally {
                 // Clean up when client disconnects
-                stop();
+                sockets.remove(socket);
+                closeQuietly(socket);
+                leave(this);
             }
         }
     }
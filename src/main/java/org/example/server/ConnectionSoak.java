@@ -0,0 +1,77 @@
+package org.example.server;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Soak test for ChessServer: opens many idle connections, holds them and reports the heap and
+ * platform threads they cost, then checks that close() shuts everything down.
+ * <p>
+ * Usage: {@code ConnectionSoak [connections] [holdSeconds] [platform]}, for example
+ * {@code java -Xmx512m -cp target/classes org.example.server.ConnectionSoak 50000 60}. Both ends of
+ * every connection live in this process, so it needs about two file descriptors per connection
+ * ({@code ulimit -n 110000} for 50k). Clients connect to 127.0.0.1, 127.0.0.2, ... so that no
+ * loopback address runs out of ephemeral ports. Passing "platform" runs the server's handlers on
+ * platform threads for comparison. The heap figure covers both ends of every connection.
+ */
+public class ConnectionSoak {
+    private static final int CONNECTIONS_PER_ADDRESS = 20_000;
+    private static final long ACCEPT_TIMEOUT_MILLIS = 60_000;
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        long holdSeconds = args.length > 1 ? Long.parseLong(args[1]) : 30;
+        boolean virtualThreads = args.length <= 2 || !args[2].equals("platform");
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long baseHeap = usedHeapAfterGc(memory);
+        int baseThreads = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        List<Socket> clients = new ArrayList<>(connections);
+        long start = System.nanoTime();
+        try (ChessServer server = new ChessServer(virtualThreads)) {
+            server.start(0);
+            for (int i = 0; i < connections; i++) {
+                String host = "127.0.0." + (1 + i / CONNECTIONS_PER_ADDRESS);
+                Socket socket = new Socket();
+                socket.connect(new InetSocketAddress(host, server.getPort()));
+                clients.add(socket);
+            }
+            long acceptDeadline = System.currentTimeMillis() + ACCEPT_TIMEOUT_MILLIS;
+            while (server.getConnectionCount() < connections && System.currentTimeMillis() < acceptDeadline) {
+                Thread.sleep(10);
+            }
+            if (server.getConnectionCount() < connections) {
+                System.out.printf("Only %d of %d connections accepted after %d s, is the file descriptor limit too low?%n",
+                        server.getConnectionCount(), connections, ACCEPT_TIMEOUT_MILLIS / 1000);
+                return;
+            }
+            System.out.printf("%d connections open in %d ms (%s threads)%n", connections,
+                    (System.nanoTime() - start) / 1_000_000, virtualThreads ? "virtual" : "platform");
+
+            long deadline = System.currentTimeMillis() + holdSeconds * 1000;
+            while (System.currentTimeMillis() < deadline) {
+                long heap = usedHeapAfterGc(memory) - baseHeap;
+                int threads = ManagementFactory.getThreadMXBean().getThreadCount() - baseThreads;
+                System.out.printf("%d connections, heap +%d MB (%d bytes per connection), +%d platform threads%n",
+                        server.getConnectionCount(), heap >> 20, heap / connections, threads);
+                Thread.sleep(Math.min(5000, Math.max(1, deadline - System.currentTimeMillis())));
+            }
+
+            start = System.nanoTime();
+        } // close() disconnects every client and waits for all handlers
+        System.out.printf("Server shut down in %d ms%n", (System.nanoTime() - start) / 1_000_000);
+        for (Socket socket : clients) {
+            socket.close();
+        }
+    }
+
+    private static long usedHeapAfterGc(MemoryMXBean memory) {
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,424 @@
+package org.example.server;
+
+import org.example.game.BitboardPosition;
+import org.example.game.ChessGame;
+import org.example.game.PieceColor;
+import org.example.pgn.PgnGame;
+import org.example.protocol.Message;
+import org.example.protocol.MessageCodec;
+import org.example.store.GameStore;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Headless server hosting many games at once. Players are paired in arrival order and every game
+ * keeps an authoritative ChessGame: a move is passed on to the opponent only if it is the sender's
+ * turn and the move is legal there.
+ * <p>
+ * One selector thread does all socket I/O and owns every game, so games need no locking. A move
+ * costs a few microseconds to check and relay, which is what lets one thread carry thousands of games.
+ * <p>
+ * With an archive set, every game is appended to it when it ends: on RESET, or when a player
+ * resigns or leaves. Games without a move are not kept. The selector thread only copies the game
+ * into a record and queues it; a separate archiver thread appends it, since an append may have to
+ * grow the position index. When the archiver falls that far behind, records are dropped and
+ * counted rather than stalling every game.
+ */
+public class GameServer implements Runnable {
+    private static final int READ_BUFFER_BYTES = 512;
+    private static final int WRITE_BUFFER_BYTES = 4096;
+    private static final DateTimeFormatter PGN_DATE = DateTimeFormatter.ofPattern("yyyy.MM.dd");
+    private static final int ARCHIVE_QUEUE_GAMES = 4096;
+    private static final PgnGame END_OF_ARCHIVE = new PgnGame(); // Queued last when the server stops
+
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private volatile boolean running;
+    private Player waitingPlayer;
+    private int nextGameId = 1;
+    private volatile GameStore archive;
+    private final BlockingQueue<PgnGame> archiveQueue = new ArrayBlockingQueue<>(ARCHIVE_QUEUE_GAMES);
+
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger activeGames = new AtomicInteger();
+    private final AtomicLong movesPlayed = new AtomicLong();
+    private final AtomicLong rejectedMoves = new AtomicLong();
+    private final AtomicLong archivedGames = new AtomicLong();
+    private final AtomicLong droppedArchives = new AtomicLong();
+
+    public GameServer(int port) throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public int getConnections() {
+        return connections.get();
+    }
+
+    public int getActiveGames() {
+        return activeGames.get();
+    }
+
+    public long getMovesPlayed() {
+        return movesPlayed.get();
+    }
+
+    public long getRejectedMoves() {
+        return rejectedMoves.get();
+    }
+
+    public long getArchivedGames() {
+        return archivedGames.get();
+    }
+
+    // Finished games not archived because the archiver was too far behind
+    public long getDroppedArchives() {
+        return droppedArchives.get();
+    }
+
+    // Set before run(); the server does not close the store, but run() returns only once every
+    // queued game is in it
+    public void setArchive(GameStore archive) {
+        this.archive = archive;
+    }
+
+    public void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        running = true;
+        Thread archiver = null;
+        if (archive != null) {
+            archiver = new Thread(this::appendArchivedGames, "GameServerArchiver");
+            archiver.start();
+        }
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Player player = (Player) key.attachment();
+                        if (key.isReadable()) {
+                            read(player);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            flush(player);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Game server stopped: " + e.getMessage());
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                try {
+                    key.channel().close();
+                } catch (IOException ignored) {
+                    // Shutting down anyway
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+                // Shutting down anyway
+            }
+            if (archiver != null) {
+                finishArchive(archiver);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Player player = new Player(channel);
+            player.key = channel.register(selector, SelectionKey.OP_READ, player);
+            connections.incrementAndGet();
+            matchOrWait(player);
+        }
+    }
+
+    private void matchOrWait(Player player) {
+        if (waitingPlayer == null) {
+            waitingPlayer = player;
+            return;
+        }
+        Game game = new Game(nextGameId++, waitingPlayer, player);
+        waitingPlayer = null;
+        activeGames.incrementAndGet();
+        for (int color = BitboardPosition.WHITE; color <= BitboardPosition.BLACK; color++) {
+            game.players[color].game = game;
+            game.players[color].color = color;
+        }
+        for (Player seated : game.players) {
+            send(seated, Message.gameStart(seated.color, game.id));
+            // A failed send disconnects that player, which has already ended the game
+            if (!game.players[0].key.isValid() || !game.players[1].key.isValid()) {
+                return;
+            }
+        }
+    }
+
+    private void read(Player player) {
+        try {
+            if (player.channel.read(player.in) < 0) {
+                disconnect(player);
+                return;
+            }
+            player.in.flip();
+            Message message;
+            while (player.key.isValid() && (message = MessageCodec.decode(player.in)) != null) {
+                handle(player, message);
+            }
+            player.in.compact();
+        } catch (IOException e) {
+            disconnect(player); // Includes malformed frames
+        }
+    }
+
+    private void handle(Player player, Message message) {
+        Game game = player.game;
+        switch (message.getType()) {
+            case PING:
+                send(player, Message.pong(message.getTimestamp()));
+                break;
+            case MOVE:
+                // Only moves the authoritative board accepted reach the opponent
+                if (game != null && game.sideToMove() == player.color && game.state.makeMove(message.getMove())) {
+                    movesPlayed.incrementAndGet();
+                    send(game.opponentOf(player), message);
+                } else {
+                    rejectedMoves.incrementAndGet();
+                    send(player, Message.reject(message.getMove()));
+                }
+                break;
+            case RESET:
+                if (game != null) {
+                    archive(game);
+                    game.state.resetGame();
+                    game.result = "*";
+                    send(game.opponentOf(player), message);
+                }
+                break;
+            case RESIGN:
+                if (game != null) {
+                    game.result = player.color == BitboardPosition.WHITE ? "0-1" : "1-0";
+                    endGame(game, player, message);
+                }
+                break;
+            case DRAW_OFFER:
+                if (game != null) {
+                    send(game.opponentOf(player), message);
+                }
+                break;
+            default:
+                break; // Server-to-client messages are ignored
+        }
+    }
+
+    // Queues a frame and writes as much as the socket takes now; the rest goes out on OP_WRITE
+    private void send(Player player, Message message) {
+        if (!player.key.isValid()) {
+            return;
+        }
+        if (player.out.remaining() < MessageCodec.frameSize(message)) {
+            disconnect(player); // The client stopped reading
+            return;
+        }
+        MessageCodec.encode(message, player.out);
+        flush(player);
+    }
+
+    private void flush(Player player) {
+        try {
+            player.out.flip();
+            player.channel.write(player.out);
+            boolean pending = player.out.hasRemaining();
+            player.out.compact();
+            player.key.interestOps(pending ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        } catch (IOException e) {
+            disconnect(player);
+        }
+    }
+
+    // The opponent of a leaving player wins and goes back into matchmaking
+    private void disconnect(Player player) {
+        if (!player.key.isValid()) {
+            return;
+        }
+        player.key.cancel();
+        try {
+            player.channel.close();
+        } catch (IOException ignored) {
+            // The connection is gone either way
+        }
+        connections.decrementAndGet();
+        if (waitingPlayer == player) {
+            waitingPlayer = null;
+        }
+        Game game = player.game;
+        if (game != null) {
+            if (game.result.equals("*")) {
+                game.result = player.color == BitboardPosition.WHITE ? "0-1" : "1-0"; // Left the game
+            }
+            endGame(game, player, Message.RESIGN);
+        }
+    }
+
+    // Archives a game the resigning or leaving player lost, tells the opponent, and puts both
+    // players back into matchmaking if they are still connected
+    private void endGame(Game game, Player loser, Message notice) {
+        activeGames.decrementAndGet();
+        archive(game);
+        for (Player seated : game.players) {
+            seated.game = null;
+        }
+        send(game.opponentOf(loser), notice); // May disconnect the opponent in turn
+        for (Player seated : game.players) {
+            if (seated.key.isValid()) {
+                matchOrWait(seated);
+            }
+        }
+    }
+
+    // Copies the game into a record for the archiver; the game itself may be reset right after
+    private void archive(Game game) {
+        BitboardPosition board = game.state.getBoard().getBitboardPosition();
+        if (archive == null || board.getPly() == 0) {
+            return;
+        }
+        PgnGame record = new PgnGame();
+        record.setTag("Event", "GameServer");
+        record.setTag("Date", LocalDate.now().format(PGN_DATE));
+        record.setTag("Round", Integer.toString(game.id));
+        record.setResult(game.result.equals("*") ? game.outcome() : game.result);
+        record.setMoves(board);
+        if (!archiveQueue.offer(record)) {
+            droppedArchives.incrementAndGet();
+        }
+    }
+
+    // The archiver thread: appends queued games until END_OF_ARCHIVE
+    private void appendArchivedGames() {
+        GameStore store = archive;
+        try {
+            PgnGame record;
+            while ((record = archiveQueue.take()) != END_OF_ARCHIVE) {
+                try {
+                    store.append(record);
+                    archivedGames.incrementAndGet();
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Could not archive game " + record.getTag("Round") + ": " + e.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void finishArchive(Thread archiver) {
+        try {
+            archiveQueue.put(END_OF_ARCHIVE); // Behind every game still queued
+            archiver.join();
+        } catch (InterruptedException e) {
+            archiver.interrupt();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Player {
+        private final SocketChannel channel;
+        private final ByteBuffer in = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        private final ByteBuffer out = ByteBuffer.allocate(WRITE_BUFFER_BYTES);
+        private SelectionKey key;
+        private Game game;
+        private int color;
+
+        private Player(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private static final class Game {
+        private final int id;
+        private final Player[] players;
+        private final ChessGame state = new ChessGame(true, null);
+        private String result = "*"; // Set once a player resigns or leaves
+
+        private Game(int id, Player white, Player black) {
+            this.id = id;
+            this.players = new Player[] { white, black };
+        }
+
+        private int sideToMove() {
+            return state.getBoard().getBitboardPosition().getSideToMove();
+        }
+
+        private Player opponentOf(Player player) {
+            return players[player.color ^ 1];
+        }
+
+        // The result the board itself shows: mate, stalemate, or "*" if play could go on
+        private String outcome() {
+            PieceColor toMove = state.getSideToMove();
+            if (state.isCheckmate(toMove)) {
+                return toMove == PieceColor.WHITE ? "0-1" : "1-0";
+            }
+            return state.isStalemate(toMove) ? "1/2-1/2" : "*";
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        GameServer server = new GameServer(port);
+        if (args.length > 1) {
+            server.setArchive(GameStore.open(Path.of(args[1])));
+        }
+        Thread selectorThread = new Thread(server, "GameServerSelector");
+        selectorThread.start();
+        System.out.println("Game server listening on port " + server.getPort());
+        long lastMoves = 0;
+        while (selectorThread.isAlive()) {
+            Thread.sleep(5000);
+            long moves = server.getMovesPlayed();
+            System.out.println(server.getConnections() + " connections, " + server.getActiveGames() + " games, "
+                    + (moves - lastMoves) / 5 + " moves/s, " + server.getArchivedGames() + " archived, "
+                    + server.getDroppedArchives() + " not archived");
+            lastMoves = moves;
+        }
+    }
+}
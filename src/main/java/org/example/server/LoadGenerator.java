@@ -0,0 +1,224 @@
+package org.example.server;
+
+import org.example.game.BitboardPosition;
+import org.example.game.MoveList;
+import org.example.protocol.LatencyStats;
+import org.example.protocol.Message;
+import org.example.protocol.MessageCodec;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Plays many simulated games against a GameServer and reports how many games one server node
+ * carries and the move latency seen by the players.
+ * <p>
+ * Usage: {@code LoadGenerator <host|local> <port> <games> <seconds> <thinkMillis>}. With "local"
+ * an in-process server is started on the given port (0 picks a free one). Both players of every
+ * game are simulated here; each plays a random legal move after a random think time of up to
+ * thinkMillis. Latency is the time from writing a move until the opponent has read it, so it
+ * includes the server's legality check and relay.
+ */
+public class LoadGenerator {
+    private static final int MAX_PLIES = 200; // Games are restarted after this many moves
+    private static final int WRITE_BUFFER_BYTES = 1024;
+
+    private final Selector selector;
+    private final List<Client> clients = new ArrayList<>();
+    private final PriorityQueue<Client> thinking =
+            new PriorityQueue<>((a, b) -> Long.compare(a.moveAtNanos, b.moveAtNanos));
+    private final Map<Integer, long[]> lastMoveSent = new HashMap<>(); // gameId -> nanoTime of the last move
+    private final LatencyStats moveLatency = new LatencyStats(1 << 20);
+    private final long thinkNanos;
+    private int gamesStarted;
+    private long movesPlayed;
+    private long resets;
+
+    public LoadGenerator(long thinkMillis) throws IOException {
+        this.selector = Selector.open();
+        this.thinkNanos = thinkMillis * 1_000_000L;
+    }
+
+    public void connect(String host, int port, int games) throws IOException {
+        for (int i = 0; i < games * 2; i++) {
+            SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port));
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Client client = new Client(channel);
+            client.key = channel.register(selector, SelectionKey.OP_READ, client);
+            clients.add(client);
+        }
+    }
+
+    public void run(long seconds) throws IOException {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        long now;
+        while ((now = System.nanoTime()) < deadline) {
+            while (!thinking.isEmpty() && thinking.peek().moveAtNanos <= now) {
+                playMove(thinking.poll());
+            }
+            long waitNanos = thinking.isEmpty() ? deadline - now : thinking.peek().moveAtNanos - now;
+            selector.select(Math.max(1, waitNanos / 1_000_000L));
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                Client client = (Client) key.attachment();
+                if (key.isValid() && key.isReadable()) {
+                    read(client);
+                }
+                if (key.isValid() && key.isWritable()) {
+                    flush(client);
+                }
+            }
+        }
+    }
+
+    public void close() throws IOException {
+        for (Client client : clients) {
+            client.channel.close();
+        }
+        selector.close();
+    }
+
+    private void read(Client client) throws IOException {
+        if (client.channel.read(client.in) < 0) {
+            throw new IOException("Server closed a player connection");
+        }
+        client.in.flip();
+        Message message;
+        while ((message = MessageCodec.decode(client.in)) != null) {
+            handle(client, message);
+        }
+        client.in.compact();
+    }
+
+    private void handle(Client client, Message message) throws IOException {
+        switch (message.getType()) {
+            case GAME_START:
+                client.color = message.getColor();
+                client.gameId = message.getGameId();
+                client.position.setupStartPosition();
+                lastMoveSent.computeIfAbsent(client.gameId, id -> new long[1]);
+                if (client.color == BitboardPosition.WHITE) {
+                    gamesStarted++;
+                    think(client);
+                }
+                break;
+            case MOVE:
+                moveLatency.record(System.nanoTime() - lastMoveSent.get(client.gameId)[0]);
+                client.position.makeMove(message.getMove());
+                think(client);
+                break;
+            case RESET:
+                client.position.setupStartPosition();
+                if (client.color == BitboardPosition.WHITE) {
+                    think(client);
+                }
+                break;
+            case RESIGN:
+                client.gameId = 0; // The opponent left; the server pairs us again
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void think(Client client) {
+        client.moveAtNanos = System.nanoTime() + (thinkNanos == 0 ? 0 : ThreadLocalRandom.current().nextLong(thinkNanos));
+        thinking.add(client);
+    }
+
+    private void playMove(Client client) throws IOException {
+        BitboardPosition position = client.position;
+        position.generateLegalMoves(client.moves);
+        if (client.moves.isEmpty() || position.getPly() >= MAX_PLIES) {
+            resets++;
+            send(client, Message.RESET);
+            position.setupStartPosition();
+            if (client.color == BitboardPosition.WHITE) {
+                think(client);
+            }
+            return;
+        }
+        int move = client.moves.get(ThreadLocalRandom.current().nextInt(client.moves.size()));
+        position.makeMove(move);
+        movesPlayed++;
+        lastMoveSent.get(client.gameId)[0] = System.nanoTime();
+        send(client, Message.move(move));
+    }
+
+    private void send(Client client, Message message) throws IOException {
+        MessageCodec.encode(message, client.out);
+        flush(client);
+    }
+
+    private void flush(Client client) throws IOException {
+        client.out.flip();
+        client.channel.write(client.out);
+        boolean pending = client.out.hasRemaining();
+        client.out.compact();
+        client.key.interestOps(pending ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+
+    private static final class Client {
+        private final SocketChannel channel;
+        private final ByteBuffer in = ByteBuffer.allocate(512);
+        private final ByteBuffer out = ByteBuffer.allocate(WRITE_BUFFER_BYTES);
+        private final BitboardPosition position = new BitboardPosition();
+        private final MoveList moves = new MoveList();
+        private SelectionKey key;
+        private int color;
+        private int gameId;
+        private long moveAtNanos;
+
+        private Client(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String host = args.length > 0 ? args[0] : "local";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+        int games = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        long seconds = args.length > 3 ? Long.parseLong(args[3]) : 30;
+        long thinkMillis = args.length > 4 ? Long.parseLong(args[4]) : 100;
+
+        GameServer server = null;
+        if (host.equals("local")) {
+            server = new GameServer(port);
+            Thread selectorThread = new Thread(server, "GameServerSelector");
+            selectorThread.setDaemon(true);
+            selectorThread.start();
+            host = "127.0.0.1";
+            port = server.getPort();
+        }
+
+        LoadGenerator generator = new LoadGenerator(thinkMillis);
+        long start = System.nanoTime();
+        generator.connect(host, port, games);
+        System.out.println("Connected " + games * 2 + " players in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        generator.run(seconds);
+        generator.close();
+
+        System.out.println("Games: " + generator.gamesStarted + " on one server node"
+                + (server != null ? " (server saw " + server.getMovesPlayed() + " accepted moves)" : ""));
+        System.out.println("Moves: " + generator.movesPlayed + " (" + generator.movesPlayed / seconds + "/s), "
+                + generator.resets + " restarts");
+        System.out.println("Move latency: " + generator.moveLatency);
+        if (server != null) {
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package org.example.store;
+
+import org.example.game.BitboardPosition;
+import org.example.game.ChessBoard;
+import org.example.pgn.PgnGame;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Append-only archive of finished games in memory-mapped segment files, with a PositionIndex that
+ * answers which games reached a position.
+ * <p>
+ * A game is one record in a 256 MB segment: its length, the result, the tags as UTF-8 name/value
+ * pairs and the moves as packed 16-bit moves. That is roughly 200 bytes for a typical game, and
+ * none of it lives on the heap. A game's id is the position of its record across all segments, so
+ * reading a game back is a single lookup.
+ * <p>
+ * The length is written last and acts as the commit mark: after a crash, reopening keeps every
+ * game whose length made it to the file, though the index may lack the positions of the last one.
+ * Appends are serialised; queries may run concurrently with each other.
+ */
+public class GameStore implements AutoCloseable {
+    private static final int SEGMENT_SHIFT = 28;
+    private static final long SEGMENT_BYTES = 1L << SEGMENT_SHIFT;
+    private static final int SEGMENT_MAGIC = 0x43485347; // "CHSG"
+    private static final int SEGMENT_HEADER_BYTES = 16; // magic, game count, end of the last record
+    private static final String[] RESULTS = { "*", "1-0", "0-1", "1/2-1/2" };
+
+    private final Path directory;
+    private final List<MappedFile> segments = new ArrayList<>();
+    private final PositionIndex index;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final BitboardPosition replay = new BitboardPosition(); // Guarded by the write lock
+    private long writePosition; // Within the last segment
+    private long gameCount;
+
+    private GameStore(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        for (int segment = 0; Files.exists(segmentFile(segment)); segment++) {
+            MappedFile file = new MappedFile(segmentFile(segment), SEGMENT_BYTES);
+            if (file.getInt(0) != SEGMENT_MAGIC) {
+                throw new IOException("Not a game segment: " + segmentFile(segment));
+            }
+            segments.add(file);
+            gameCount += file.getInt(4);
+        }
+        if (segments.isEmpty()) {
+            addSegment();
+        } else {
+            recoverLastSegment();
+        }
+        this.index = new PositionIndex(directory);
+    }
+
+    public static GameStore open(Path directory) throws IOException {
+        return new GameStore(directory);
+    }
+
+    /**
+     * Archives a game and indexes every position it reached. Returns the game's id.
+     */
+    public long append(PgnGame game) throws IOException {
+        byte[] tags = encodeTags(game);
+        int moveCount = game.getMoveCount();
+        int bodyBytes = 1 + 2 + tags.length + 2 + 2 * moveCount;
+        long recordBytes = (4 + bodyBytes + 3) & ~3L; // Keeps the next length int-aligned
+        if (recordBytes > SEGMENT_BYTES - SEGMENT_HEADER_BYTES || tags.length > 0xFFFF || moveCount > 0xFFFF) {
+            throw new IllegalArgumentException("Game too large to archive");
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (writePosition + recordBytes + 4 > SEGMENT_BYTES) {
+                addSegment();
+            }
+            int segmentIndex = segments.size() - 1;
+            MappedFile segment = segments.get(segmentIndex);
+            long start = writePosition;
+            long position = start + 4;
+            segment.put(position++, (byte) resultCode(game.getResult()));
+            segment.putShort(position, (short) tags.length);
+            position += 2;
+            for (byte b : tags) {
+                segment.put(position++, b);
+            }
+            segment.putShort(position, (short) moveCount);
+            position += 2;
+            for (int ply = 0; ply < moveCount; ply++) {
+                segment.putShort(position, (short) game.getMove(ply));
+                position += 2;
+            }
+            segment.putInt(start, bodyBytes); // Commits the record
+
+            writePosition = start + recordBytes;
+            segment.putInt(4, segment.getInt(4) + 1);
+            segment.putLong(8, writePosition);
+            gameCount++;
+
+            long gameId = ((long) segmentIndex << SEGMENT_SHIFT) | start;
+            game.setUp(replay);
+            index.add(replay.getZobristKey(), gameId);
+            for (int ply = 0; ply < moveCount; ply++) {
+                replay.makeMove(game.getMove(ply));
+                index.add(replay.getZobristKey(), gameId);
+            }
+            return gameId;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reads an archived game into game. Returns false if gameId does not name a stored game.
+     */
+    public boolean read(long gameId, PgnGame game) {
+        lock.readLock().lock();
+        try {
+            int segmentIndex = (int) (gameId >>> SEGMENT_SHIFT);
+            long start = gameId & (SEGMENT_BYTES - 1);
+            if (segmentIndex >= segments.size() || start < SEGMENT_HEADER_BYTES || (start & 3) != 0) {
+                return false;
+            }
+            MappedFile segment = segments.get(segmentIndex);
+            if (segment.getInt(start) <= 0) {
+                return false;
+            }
+            game.clear();
+            long position = start + 4;
+            game.setResult(RESULTS[segment.get(position++) & 3]);
+            int tagBytes = segment.getShort(position) & 0xFFFF;
+            position += 2;
+            byte[] tags = new byte[tagBytes];
+            for (int i = 0; i < tagBytes; i++) {
+                tags[i] = segment.get(position++);
+            }
+            decodeTags(tags, game);
+            int moveCount = segment.getShort(position) & 0xFFFF;
+            position += 2;
+            for (int ply = 0; ply < moveCount; ply++) {
+                game.addMove(segment.getShort(position) & 0xFFFF);
+                position += 2;
+            }
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of up to limit games that reached the position, most recently archived first.
+     */
+    public long[] findGames(long zobristKey, int limit) {
+        lock.readLock().lock();
+        try {
+            long[] gameIds = new long[limit];
+            int found = index.find(zobristKey, gameIds, limit);
+            return found == limit ? gameIds : Arrays.copyOf(gameIds, found);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long[] findGames(BitboardPosition position, int limit) {
+        return findGames(position.getZobristKey(), limit);
+    }
+
+    public long[] findGames(ChessBoard board, int limit) {
+        return findGames(board.getBitboardPosition(), limit);
+    }
+
+    public long getGameCount() {
+        lock.readLock().lock();
+        try {
+            return gameCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getPositionCount() {
+        lock.readLock().lock();
+        try {
+            return index.getPositionCount();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Writes everything appended so far through to disk
+    public void flush() {
+        lock.writeLock().lock();
+        try {
+            for (MappedFile segment : segments) {
+                segment.force();
+            }
+            index.force();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (MappedFile segment : segments) {
+                segment.close();
+            }
+            index.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Path segmentFile(int segment) {
+        return directory.resolve(String.format("games-%05d.seg", segment));
+    }
+
+    private void addSegment() throws IOException {
+        MappedFile segment = new MappedFile(segmentFile(segments.size()), SEGMENT_BYTES);
+        segment.putInt(0, SEGMENT_MAGIC);
+        segment.putLong(8, SEGMENT_HEADER_BYTES);
+        segments.add(segment);
+        writePosition = SEGMENT_HEADER_BYTES;
+    }
+
+    // Picks up records committed after the header was last updated, e.g. before a crash
+    private void recoverLastSegment() {
+        MappedFile segment = segments.get(segments.size() - 1);
+        writePosition = segment.getLong(8);
+        int length;
+        while (writePosition + 4 <= SEGMENT_BYTES && (length = segment.getInt(writePosition)) > 0) {
+            writePosition += (4 + length + 3) & ~3L;
+            segment.putInt(4, segment.getInt(4) + 1);
+            gameCount++;
+        }
+        segment.putLong(8, writePosition);
+    }
+
+    private static int resultCode(String result) {
+        for (int code = 0; code < RESULTS.length; code++) {
+            if (RESULTS[code].equals(result)) {
+                return code;
+            }
+        }
+        return 0;
+    }
+
+    // name \0 value \0 for every tag
+    private static byte[] encodeTags(PgnGame game) {
+        StringBuilder text = new StringBuilder(128);
+        for (Map.Entry<String, String> tag : game.getTags().entrySet()) {
+            text.append(tag.getKey()).append('\0').append(tag.getValue()).append('\0');
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void decodeTags(byte[] tags, PgnGame game) {
+        String text = new String(tags, StandardCharsets.UTF_8);
+        int start = 0;
+        while (start < text.length()) {
+            int nameEnd = text.indexOf('\0', start);
+            int valueEnd = text.indexOf('\0', nameEnd + 1);
+            game.setTag(text.substring(start, nameEnd), text.substring(nameEnd + 1, valueEnd));
+            start = valueEnd + 1;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.store;
+
+import org.example.game.BitboardPosition;
+import org.example.pgn.ParallelPgnReader;
+import org.example.pgn.PgnGame;
+import org.example.pgn.PgnReader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+/**
+ * Operator commands for a game archive.
+ * <pre>
+ * GameStoreTool &lt;dir&gt; import &lt;file.pgn&gt; [threads]   archive every game of a PGN file
+ * GameStoreTool &lt;dir&gt; find "&lt;fen&gt;" [limit]          list the games that reached a position
+ * GameStoreTool &lt;dir&gt; stats                         count games and indexed positions
+ * </pre>
+ */
+public class GameStoreTool {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: GameStoreTool <dir> import <file.pgn> [threads] | find \"<fen>\" [limit] | stats");
+            System.exit(2);
+        }
+        try (GameStore store = GameStore.open(Path.of(args[0]))) {
+            switch (args[1]) {
+                case "import":
+                    int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+                    importPgn(store, Path.of(args[2]), threads);
+                    break;
+                case "find":
+                    find(store, args[2], args.length > 3 ? Integer.parseInt(args[3]) : 20);
+                    break;
+                default:
+                    break;
+            }
+            System.out.println(store.getGameCount() + " games, " + store.getPositionCount() + " distinct positions");
+        }
+    }
+
+    private static void importPgn(GameStore store, Path file, int threads) throws IOException {
+        long start = System.nanoTime();
+        try (PgnReader reader = PgnReader.open(file); ParallelPgnReader parallel = new ParallelPgnReader(threads)) {
+            parallel.read(reader, game -> {
+                try {
+                    store.append(game);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            long elapsed = Math.max(1, System.nanoTime() - start);
+            System.out.println("Imported " + parallel.getGamesRead() + " games (" + parallel.getGamesSkipped()
+                    + " skipped) in " + elapsed / 1_000_000 + " ms, "
+                    + parallel.getGamesRead() * 1_000_000_000L / elapsed + " games/s");
+        }
+        store.flush();
+    }
+
+    private static void find(GameStore store, String fen, int limit) {
+        BitboardPosition position = new BitboardPosition();
+        position.setFromFen(fen);
+        long start = System.nanoTime();
+        long[] gameIds = store.findGames(position, limit);
+        long elapsed = System.nanoTime() - start;
+        PgnGame game = new PgnGame();
+        for (long gameId : gameIds) {
+            store.read(gameId, game);
+            System.out.printf("%12d  %s - %s  %s  %s  %d plies%n", gameId, game.getTag("White"), game.getTag("Black"),
+                    game.getTag("Date"), game.getResult(), game.getMoveCount());
+        }
+        System.out.printf("%d games found in %.3f ms%n", gameIds.length, elapsed / 1e6);
+    }
+}
@@ -0,0 +1,105 @@
+package org.example.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A file of any size mapped into memory in 1 GB chunks, since one MappedByteBuffer stops at 2 GB.
+ * Values are read and written at absolute offsets and must not straddle a chunk boundary, which
+ * holds for any aligned long, int or short. Growing the file maps further chunks; nothing is ever
+ * copied onto the heap.
+ */
+final class MappedFile implements AutoCloseable {
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_BYTES = 1L << CHUNK_SHIFT;
+    private static final long CHUNK_MASK = CHUNK_BYTES - 1;
+
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> chunks = new ArrayList<>();
+    private long size;
+
+    MappedFile(Path file, long minimumSize) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        ensureSize(Math.max(minimumSize, channel.size()));
+    }
+
+    long size() {
+        return size;
+    }
+
+    // Extends the file to at least newSize bytes; the new bytes read as zero
+    void ensureSize(long newSize) throws IOException {
+        if (newSize <= size) {
+            return;
+        }
+        if (channel.size() < newSize) {
+            channel.write(ByteBuffer.allocate(1), newSize - 1); // Extends the file, sparse where supported
+        }
+        // Remap the last, partial chunk and add the new ones
+        int firstChunk = chunks.isEmpty() ? 0 : chunks.size() - 1;
+        while (chunks.size() > firstChunk) {
+            chunks.remove(chunks.size() - 1);
+        }
+        for (long start = (long) firstChunk << CHUNK_SHIFT; start < newSize; start += CHUNK_BYTES) {
+            chunks.add(channel.map(FileChannel.MapMode.READ_WRITE, start, Math.min(CHUNK_BYTES, newSize - start)));
+        }
+        size = newSize;
+    }
+
+    long getLong(long position) {
+        return chunk(position).getLong((int) (position & CHUNK_MASK));
+    }
+
+    void putLong(long position, long value) {
+        chunk(position).putLong((int) (position & CHUNK_MASK), value);
+    }
+
+    int getInt(long position) {
+        return chunk(position).getInt((int) (position & CHUNK_MASK));
+    }
+
+    void putInt(long position, int value) {
+        chunk(position).putInt((int) (position & CHUNK_MASK), value);
+    }
+
+    short getShort(long position) {
+        return chunk(position).getShort((int) (position & CHUNK_MASK));
+    }
+
+    void putShort(long position, short value) {
+        chunk(position).putShort((int) (position & CHUNK_MASK), value);
+    }
+
+    byte get(long position) {
+        return chunk(position).get((int) (position & CHUNK_MASK));
+    }
+
+    void put(long position, byte value) {
+        chunk(position).put((int) (position & CHUNK_MASK), value);
+    }
+
+    // Writes dirty pages back to the file
+    void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        chunks.clear(); // The mappings go away once the buffers are collected
+        channel.close();
+    }
+
+    private MappedByteBuffer chunk(long position) {
+        return chunks.get((int) (position >>> CHUNK_SHIFT));
+    }
+}
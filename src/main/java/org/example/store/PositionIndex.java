@@ -0,0 +1,177 @@
+package org.example.store;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Off-heap multimap from Zobrist key to the games that reached the position, kept in two mapped
+ * files so it costs no heap however many games are archived.
+ * <ul>
+ * <li>positions.idx: an open-addressing hash table of (key, newest posting) pairs, 16 bytes each,
+ * grown by rebuilding at twice the size when it gets 70% full.</li>
+ * <li>postings.dat: an append-only list of (game id, previous posting of the same key) pairs. The
+ * postings of one key form a chain from newest to oldest, so adding a game is O(1) per position
+ * and a lookup reads exactly one chain.</li>
+ * </ul>
+ * Not thread-safe; GameStore serialises access.
+ */
+final class PositionIndex implements AutoCloseable {
+    private static final long TABLE_MAGIC = 0x43485349445831L; // "CHSIDX1"
+    private static final long POSTINGS_MAGIC = 0x43485350535431L; // "CHSPST1"
+    private static final int HEADER_BYTES = 64;
+    private static final int ENTRY_BYTES = 16;
+    private static final long INITIAL_CAPACITY = 1 << 20;
+    private static final long POSTINGS_GROWTH_BYTES = 64L << 20;
+
+    private final Path tableFile;
+    private final Path postingsFile;
+    private MappedFile table;
+    private final MappedFile postings;
+    private long capacity;
+    private long mask;
+    private long keyCount;
+    private long postingCount;
+
+    PositionIndex(Path directory) throws IOException {
+        this.tableFile = directory.resolve("positions.idx");
+        this.postingsFile = directory.resolve("postings.dat");
+        this.postings = new MappedFile(postingsFile, HEADER_BYTES + POSTINGS_GROWTH_BYTES);
+        if (postings.getLong(0) == 0) {
+            postings.putLong(0, POSTINGS_MAGIC);
+        } else if (postings.getLong(0) != POSTINGS_MAGIC) {
+            throw new IOException("Not a postings file: " + postingsFile);
+        }
+        postingCount = postings.getLong(8);
+        openTable(INITIAL_CAPACITY);
+    }
+
+    long getPositionCount() {
+        return keyCount;
+    }
+
+    long getPostingCount() {
+        return postingCount;
+    }
+
+    /**
+     * Records that gameId reached the position. A position repeated within one game is only
+     * recorded once, as long as the game's positions are added one after another.
+     */
+    void add(long key, long gameId) throws IOException {
+        long slot = findSlot(key);
+        long head = table.getLong(slot + 8);
+        if (head != 0 && postings.getLong(postingOffset(head - 1)) == gameId) {
+            return;
+        }
+        if (head == 0) {
+            if (keyCount + 1 > capacity / 10 * 7) {
+                grow();
+                slot = findSlot(key);
+            }
+            table.putLong(slot, key);
+            table.putLong(16, ++keyCount);
+        }
+
+        long posting = postingCount;
+        long offset = postingOffset(posting);
+        if (offset + ENTRY_BYTES > postings.size()) {
+            postings.ensureSize(postings.size() + POSTINGS_GROWTH_BYTES);
+        }
+        postings.putLong(offset, gameId);
+        postings.putLong(offset + 8, head);
+        postings.putLong(8, ++postingCount);
+        table.putLong(slot + 8, posting + 1); // Published last, so the chain is complete when visible
+    }
+
+    /**
+     * Copies up to limit ids of games that reached the position into gameIds, newest first, and
+     * returns how many were found.
+     */
+    int find(long key, long[] gameIds, int limit) {
+        long head = table.getLong(findSlot(key) + 8);
+        int count = 0;
+        while (head != 0 && count < limit) {
+            long offset = postingOffset(head - 1);
+            gameIds[count++] = postings.getLong(offset);
+            head = postings.getLong(offset + 8);
+        }
+        return count;
+    }
+
+    void force() {
+        table.force();
+        postings.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        table.close();
+        postings.close();
+    }
+
+    // The entry holding key, or the empty entry where it belongs
+    private long findSlot(long key) {
+        long index = mix(key) & mask;
+        while (true) {
+            long offset = HEADER_BYTES + index * ENTRY_BYTES;
+            if (table.getLong(offset + 8) == 0 || table.getLong(offset) == key) {
+                return offset;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    private void openTable(long initialCapacity) throws IOException {
+        table = new MappedFile(tableFile, HEADER_BYTES + initialCapacity * ENTRY_BYTES);
+        if (table.getLong(0) == 0) {
+            table.putLong(0, TABLE_MAGIC);
+            table.putLong(8, initialCapacity);
+        } else if (table.getLong(0) != TABLE_MAGIC) {
+            throw new IOException("Not a position index: " + tableFile);
+        }
+        capacity = table.getLong(8);
+        mask = capacity - 1;
+        keyCount = table.getLong(16);
+    }
+
+    // Rehashes every key into a table of twice the size, then swaps the files
+    private void grow() throws IOException {
+        Path grownFile = tableFile.resolveSibling("positions.idx.tmp");
+        Files.deleteIfExists(grownFile);
+        long grownCapacity = capacity * 2;
+        try (MappedFile grown = new MappedFile(grownFile, HEADER_BYTES + grownCapacity * ENTRY_BYTES)) {
+            grown.putLong(0, TABLE_MAGIC);
+            grown.putLong(8, grownCapacity);
+            grown.putLong(16, keyCount);
+            for (long index = 0; index < capacity; index++) {
+                long offset = HEADER_BYTES + index * ENTRY_BYTES;
+                long head = table.getLong(offset + 8);
+                if (head == 0) {
+                    continue;
+                }
+                long key = table.getLong(offset);
+                long target = mix(key) & (grownCapacity - 1);
+                while (grown.getLong(HEADER_BYTES + target * ENTRY_BYTES + 8) != 0) {
+                    target = (target + 1) & (grownCapacity - 1);
+                }
+                grown.putLong(HEADER_BYTES + target * ENTRY_BYTES, key);
+                grown.putLong(HEADER_BYTES + target * ENTRY_BYTES + 8, head);
+            }
+        }
+        table.close();
+        Files.move(grownFile, tableFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        openTable(grownCapacity);
+    }
+
+    private static long postingOffset(long posting) {
+        return HEADER_BYTES + posting * ENTRY_BYTES;
+    }
+
+    // Zobrist keys are already random; the high bits are folded in so the slot does not share
+    // its bits with the transposition table index
+    private static long mix(long key) {
+        return key ^ (key >>> 32);
+    }
+}
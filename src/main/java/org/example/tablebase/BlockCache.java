@@ -0,0 +1,162 @@
+package org.example.tablebase;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.Inflater;
+
+/**
+ * Bounded least-recently-used cache of inflated table blocks, shared by every table of a
+ * Tablebases. Slots are kept in primitive arrays and a doubly linked list, each table records
+ * which slot holds each of its blocks, and a block's buffer is reused when it is evicted, so a
+ * hit allocates nothing and the cache never grows past its capacity.
+ * <p>
+ * Lookups take one lock; a miss inflates the block while holding it.
+ */
+final class BlockCache {
+    private static final int NONE = -1;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Inflater inflater = new Inflater();
+    private final byte[][] blocks;
+    private final Tablebase[] owners;
+    private final int[] ownerBlocks;
+    private final int[] previous; // Towards the most recently used slot
+    private final int[] next; // Towards the least recently used slot
+    private int head = NONE;
+    private int tail = NONE;
+    private int used;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    BlockCache(int megabytes) {
+        int capacity = (int) Math.max(1, Math.min(1 << 20, (long) megabytes * 1024 * 1024 / Tablebase.BLOCK_POSITIONS));
+        this.blocks = new byte[capacity][];
+        this.owners = new Tablebase[capacity];
+        this.ownerBlocks = new int[capacity];
+        this.previous = new int[capacity];
+        this.next = new int[capacity];
+    }
+
+    /**
+     * The value stored at an index slot of a table.
+     */
+    int get(Tablebase table, long index) {
+        int block = (int) (index / Tablebase.BLOCK_POSITIONS);
+        int offset = (int) (index % Tablebase.BLOCK_POSITIONS);
+        lock.lock();
+        try {
+            int slot = table.cacheSlots[block];
+            if (slot != NONE) {
+                hits++;
+                if (slot != head) {
+                    unlink(slot);
+                    pushFront(slot);
+                }
+            } else {
+                misses++;
+                slot = freeSlot();
+                table.readBlock(block, blocks[slot], inflater);
+                owners[slot] = table;
+                ownerBlocks[slot] = block;
+                table.cacheSlots[block] = slot;
+                pushFront(slot);
+            }
+            return blocks[slot][offset] & 0xFF;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int capacity() {
+        return blocks.length;
+    }
+
+    long getHits() {
+        lock.lock();
+        try {
+            return hits;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getMisses() {
+        lock.lock();
+        try {
+            return misses;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getEvictions() {
+        lock.lock();
+        try {
+            return evictions;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void resetStatistics() {
+        lock.lock();
+        try {
+            hits = 0;
+            misses = 0;
+            evictions = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void close() {
+        lock.lock();
+        try {
+            inflater.end();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // An unused slot, or the least recently used one after detaching it from its table
+    private int freeSlot() {
+        if (used < blocks.length) {
+            blocks[used] = new byte[Tablebase.BLOCK_POSITIONS];
+            return used++;
+        }
+        int slot = tail;
+        unlink(slot);
+        if (owners[slot] != null) {
+            owners[slot].cacheSlots[ownerBlocks[slot]] = NONE;
+            owners[slot] = null;
+            evictions++;
+        }
+        return slot;
+    }
+
+    private void unlink(int slot) {
+        if (previous[slot] != NONE) {
+            next[previous[slot]] = next[slot];
+        } else {
+            head = next[slot];
+        }
+        if (next[slot] != NONE) {
+            previous[next[slot]] = previous[slot];
+        } else {
+            tail = previous[slot];
+        }
+    }
+
+    private void pushFront(int slot) {
+        previous[slot] = NONE;
+        next[slot] = head;
+        if (head != NONE) {
+            previous[head] = slot;
+        }
+        head = slot;
+        if (tail == NONE) {
+            tail = slot;
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package org.example.tablebase;
+
+import org.example.game.BitboardPosition;
+import org.example.game.Bitboards;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A material signature such as KQvK or KRPvKR, and the index of its positions in a table.
+ * <p>
+ * The stronger side is always White; a position where Black holds the extra material is probed
+ * with its colours swapped and the board turned upside down. Positions are indexed by the white
+ * king's square, reduced by symmetry, then one square per other piece and the side to move:
+ * without pawns the white king is folded into the a1-d1-d4 triangle (10 squares), with pawns
+ * only left-right mirroring applies and it stays on files a-d (32 squares). Castling rights and
+ * en passant squares are not part of the index.
+ */
+public final class Material {
+    public static final int MAX_PIECES = 5;
+
+    private static final String LETTERS = "PNBRQK";
+    private static final int[] TRIANGLE = { 0, 1, 2, 3, 9, 10, 11, 18, 19, 27 }; // a1 b1 c1 d1 b2 c2 d2 c3 d3 d4
+    private static final int[] TRIANGLE_SLOT = new int[64];
+    private static final long BARE_KINGS = signatureOf(counts(1, 1));
+
+    static {
+        Arrays.fill(TRIANGLE_SLOT, -1);
+        for (int slot = 0; slot < TRIANGLE.length; slot++) {
+            TRIANGLE_SLOT[TRIANGLE[slot]] = slot;
+        }
+    }
+
+    private final int[] pieceCodes; // White king, black king, then White's and Black's other pieces, strongest first
+    private final boolean hasPawns;
+    private final long signature;
+    private final long size;
+    private final String name;
+
+    private Material(int[] counts) {
+        int pieceCount = 0;
+        for (int count : counts) {
+            pieceCount += count;
+        }
+        this.pieceCodes = new int[pieceCount];
+        pieceCodes[0] = BitboardPosition.pieceCode(BitboardPosition.WHITE, BitboardPosition.KING);
+        pieceCodes[1] = BitboardPosition.pieceCode(BitboardPosition.BLACK, BitboardPosition.KING);
+        int next = 2;
+        for (int color = BitboardPosition.WHITE; color <= BitboardPosition.BLACK; color++) {
+            for (int type = BitboardPosition.QUEEN; type >= BitboardPosition.PAWN; type--) {
+                int code = BitboardPosition.pieceCode(color, type);
+                for (int i = 0; i < counts[code]; i++) {
+                    pieceCodes[next++] = code;
+                }
+            }
+        }
+        this.hasPawns = counts[BitboardPosition.pieceCode(BitboardPosition.WHITE, BitboardPosition.PAWN)]
+                + counts[BitboardPosition.pieceCode(BitboardPosition.BLACK, BitboardPosition.PAWN)] > 0;
+        this.signature = signatureOf(counts);
+        this.size = 2L * (hasPawns ? 32 : TRIANGLE.length) << (6 * (pieceCount - 1));
+
+        StringBuilder text = new StringBuilder("K");
+        for (int i = 2; i < pieceCount; i++) {
+            if (BitboardPosition.colorOf(pieceCodes[i]) == BitboardPosition.WHITE) {
+                text.append(LETTERS.charAt(BitboardPosition.typeOf(pieceCodes[i])));
+            }
+        }
+        text.append("vK");
+        for (int i = 2; i < pieceCount; i++) {
+            if (BitboardPosition.colorOf(pieceCodes[i]) == BitboardPosition.BLACK) {
+                text.append(LETTERS.charAt(BitboardPosition.typeOf(pieceCodes[i])));
+            }
+        }
+        this.name = text.toString();
+    }
+
+    /**
+     * Parses a signature such as "KQvK" or "KRPvKR". The sides may be given in either order.
+     */
+    public static Material of(String name) {
+        int separator = name.indexOf('v');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Material needs a 'v' between the sides: " + name);
+        }
+        int[] counts = new int[12];
+        for (int i = 0; i < name.length(); i++) {
+            if (i == separator) {
+                continue;
+            }
+            int type = LETTERS.indexOf(Character.toUpperCase(name.charAt(i)));
+            if (type < 0) {
+                throw new IllegalArgumentException("Unknown piece '" + name.charAt(i) + "' in " + name);
+            }
+            counts[BitboardPosition.pieceCode(i < separator ? BitboardPosition.WHITE : BitboardPosition.BLACK, type)]++;
+        }
+        return fromCounts(counts);
+    }
+
+    // The table a position belongs to, whichever side is stronger, or null if it has too many pieces
+    public static Material of(BitboardPosition position) {
+        return Long.bitCount(position.occupied()) > MAX_PIECES ? null : fromSignature(signature(position));
+    }
+
+    static Material fromSignature(long signature) {
+        int[] counts = new int[12];
+        for (int code = 0; code < 12; code++) {
+            counts[code] = (int) (signature >>> (4 * code)) & 15;
+        }
+        return fromCounts(counts);
+    }
+
+    private static Material fromCounts(int[] counts) {
+        int pieceCount = 0;
+        for (int count : counts) {
+            pieceCount += count;
+        }
+        int whiteKing = BitboardPosition.pieceCode(BitboardPosition.WHITE, BitboardPosition.KING);
+        int blackKing = BitboardPosition.pieceCode(BitboardPosition.BLACK, BitboardPosition.KING);
+        if (counts[whiteKing] != 1 || counts[blackKing] != 1) {
+            throw new IllegalArgumentException("Each side needs exactly one king");
+        }
+        if (pieceCount > MAX_PIECES) {
+            throw new IllegalArgumentException("Tables hold at most " + MAX_PIECES + " pieces");
+        }
+        return new Material(blackIsStronger(counts) ? swapColors(counts) : counts);
+    }
+
+    /**
+     * Packs the piece counts of a position into a long, four bits per piece code. Two positions
+     * have the same material exactly when their signatures are equal.
+     */
+    public static long signature(BitboardPosition position) {
+        long signature = 0;
+        for (int code = 0; code < 12; code++) {
+            long pieces = position.pieces(BitboardPosition.colorOf(code), BitboardPosition.typeOf(code));
+            signature |= (long) Long.bitCount(pieces) << (4 * code);
+        }
+        return signature;
+    }
+
+    static long flip(long signature) {
+        return (signature >>> 24) | ((signature & 0xFFFFFFL) << 24);
+    }
+
+    static boolean isBareKings(long signature) {
+        return signature == BARE_KINGS;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getPieceCount() {
+        return pieceCodes.length;
+    }
+
+    public boolean hasPawns() {
+        return hasPawns;
+    }
+
+    public long getSignature() {
+        return signature;
+    }
+
+    // Number of index slots, including the ones that hold no legal position
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Index of a position with this material. flipped says the position has the material with
+     * colours swapped, see signature and flip.
+     */
+    long index(BitboardPosition position, boolean flipped) {
+        int flipColor = flipped ? 1 : 0;
+
+        // Pick the symmetry that brings the white king into its reduced set of squares
+        int king = position.kingSquare(BitboardPosition.WHITE ^ flipColor) ^ (flipped ? 56 : 0);
+        boolean mirrorFiles = Bitboards.fileOf(king) > 3;
+        boolean mirrorRanks = !hasPawns && Bitboards.rankOf(king) > 3;
+        king ^= (mirrorFiles ? 7 : 0) | (mirrorRanks ? 56 : 0);
+        boolean transpose = false;
+        if (!hasPawns && Bitboards.rankOf(king) > Bitboards.fileOf(king)) {
+            transpose = true;
+        } else if (!hasPawns && Bitboards.rankOf(king) == Bitboards.fileOf(king)) {
+            // On the diagonal both halves are possible: the first set of pieces that is not
+            // symmetric about it decides, so a position and its mirror image share one index
+            for (int i = 1; i < pieceCodes.length; i++) {
+                if (pieceCodes[i] == pieceCodes[i - 1]) {
+                    continue;
+                }
+                long pieces = transform(pieces(position, i, flipColor), flipped, mirrorFiles, mirrorRanks, false);
+                long mirrored = flipDiagonal(pieces);
+                if (mirrored != pieces) {
+                    transpose = Long.compareUnsigned(mirrored, pieces) < 0;
+                    break;
+                }
+            }
+        }
+        if (transpose) {
+            king = (king >>> 3) | ((king & 7) << 3);
+        }
+        long index = hasPawns ? (king >>> 3) * 4 + (king & 3) : TRIANGLE_SLOT[king];
+
+        long remaining = 0;
+        for (int i = 1; i < pieceCodes.length; i++) {
+            if (pieceCodes[i] != pieceCodes[i - 1]) {
+                remaining = transform(pieces(position, i, flipColor), flipped, mirrorFiles, mirrorRanks, transpose);
+            }
+            index = (index << 6) | Long.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+        }
+        return (index << 1) | (position.getSideToMove() ^ flipColor);
+    }
+
+    private long pieces(BitboardPosition position, int i, int flipColor) {
+        return position.pieces(BitboardPosition.colorOf(pieceCodes[i]) ^ flipColor, BitboardPosition.typeOf(pieceCodes[i]));
+    }
+
+    private static long transform(long pieces, boolean flipRanks, boolean mirrorFiles, boolean mirrorRanks, boolean transpose) {
+        if (flipRanks != mirrorRanks) {
+            pieces = Long.reverseBytes(pieces);
+        }
+        if (mirrorFiles) {
+            pieces = ((pieces >>> 1) & 0x5555555555555555L) | ((pieces & 0x5555555555555555L) << 1);
+            pieces = ((pieces >>> 2) & 0x3333333333333333L) | ((pieces & 0x3333333333333333L) << 2);
+            pieces = ((pieces >>> 4) & 0x0F0F0F0F0F0F0F0FL) | ((pieces & 0x0F0F0F0F0F0F0F0FL) << 4);
+        }
+        return transpose ? flipDiagonal(pieces) : pieces;
+    }
+
+    // Mirrors a bitboard about the a1-h8 diagonal
+    private static long flipDiagonal(long pieces) {
+        long swap = 0x0F0F0F0F00000000L & (pieces ^ (pieces << 28));
+        pieces ^= swap ^ (swap >>> 28);
+        swap = 0x3333000033330000L & (pieces ^ (pieces << 14));
+        pieces ^= swap ^ (swap >>> 14);
+        swap = 0x5500550055005500L & (pieces ^ (pieces << 7));
+        return pieces ^ swap ^ (swap >>> 7);
+    }
+
+    /**
+     * Sets up the position at an index. Returns false, leaving the position undefined, if the
+     * index holds no legal position: pieces on one square, pawns on the back ranks, the side not
+     * to move in check, or a position whose index is another slot (a mirror image, or identical
+     * pieces listed in another order).
+     */
+    boolean decode(long index, BitboardPosition position, int[] squares) {
+        int sideToMove = (int) (index & 1);
+        long rest = index >>> 1;
+        for (int i = pieceCodes.length - 1; i > 0; i--) {
+            squares[i] = (int) (rest & 63);
+            rest >>>= 6;
+        }
+        int slot = (int) rest;
+        squares[0] = hasPawns ? (slot >>> 2) * 8 + (slot & 3) : TRIANGLE[slot];
+
+        long occupied = 0;
+        for (int i = 0; i < pieceCodes.length; i++) {
+            long bit = Bitboards.bit(squares[i]);
+            if ((occupied & bit) != 0) {
+                return false;
+            }
+            if (BitboardPosition.typeOf(pieceCodes[i]) == BitboardPosition.PAWN
+                    && (bit & (Bitboards.RANK_1 | Bitboards.RANK_8)) != 0) {
+                return false;
+            }
+            occupied |= bit;
+        }
+        position.clear();
+        for (int i = 0; i < pieceCodes.length; i++) {
+            position.setPiece(squares[i], pieceCodes[i]);
+        }
+        position.setSideToMove(sideToMove);
+        return !position.isInCheck(sideToMove ^ 1) && index(position, false) == index;
+    }
+
+    /**
+     * The tables a move can lead into from this one: one piece captured, a pawn promoted, or
+     * both. Bare kings are left out since they are always a draw.
+     */
+    List<Material> successors() {
+        int[] counts = new int[12];
+        for (int code : pieceCodes) {
+            counts[code]++;
+        }
+        List<Material> successors = new ArrayList<>();
+        for (int captured = 0; captured < 12; captured++) {
+            if (counts[captured] == 0 || BitboardPosition.typeOf(captured) == BitboardPosition.KING) {
+                continue;
+            }
+            counts[captured]--;
+            addSuccessor(successors, counts);
+            addPromotions(successors, counts, BitboardPosition.colorOf(captured) ^ 1);
+            counts[captured]++;
+        }
+        addPromotions(successors, counts, BitboardPosition.WHITE);
+        addPromotions(successors, counts, BitboardPosition.BLACK);
+        return successors;
+    }
+
+    private static void addPromotions(List<Material> successors, int[] counts, int color) {
+        int pawn = BitboardPosition.pieceCode(color, BitboardPosition.PAWN);
+        if (counts[pawn] == 0) {
+            return;
+        }
+        counts[pawn]--;
+        for (int type = BitboardPosition.KNIGHT; type <= BitboardPosition.QUEEN; type++) {
+            counts[BitboardPosition.pieceCode(color, type)]++;
+            addSuccessor(successors, counts);
+            counts[BitboardPosition.pieceCode(color, type)]--;
+        }
+        counts[pawn]++;
+    }
+
+    private static void addSuccessor(List<Material> successors, int[] counts) {
+        long signature = signatureOf(counts);
+        if (isBareKings(signature)) {
+            return;
+        }
+        Material successor = fromSignature(signature);
+        for (Material known : successors) {
+            if (known.signature == successor.signature) {
+                return;
+            }
+        }
+        successors.add(successor);
+    }
+
+    // Compares the sides queen first, then rook, bishop, knight and pawn
+    private static boolean blackIsStronger(int[] counts) {
+        for (int type = BitboardPosition.QUEEN; type >= BitboardPosition.PAWN; type--) {
+            int white = counts[BitboardPosition.pieceCode(BitboardPosition.WHITE, type)];
+            int black = counts[BitboardPosition.pieceCode(BitboardPosition.BLACK, type)];
+            if (white != black) {
+                return black > white;
+            }
+        }
+        return false;
+    }
+
+    private static int[] swapColors(int[] counts) {
+        int[] swapped = new int[12];
+        for (int code = 0; code < 12; code++) {
+            swapped[code] = counts[(code + 6) % 12];
+        }
+        return swapped;
+    }
+
+    private static int[] counts(int whiteKings, int blackKings) {
+        int[] counts = new int[12];
+        counts[BitboardPosition.pieceCode(BitboardPosition.WHITE, BitboardPosition.KING)] = whiteKings;
+        counts[BitboardPosition.pieceCode(BitboardPosition.BLACK, BitboardPosition.KING)] = blackKings;
+        return counts;
+    }
+
+    private static long signatureOf(int[] counts) {
+        long signature = 0;
+        for (int code = 0; code < 12; code++) {
+            signature |= (long) counts[code] << (4 * code);
+        }
+        return signature;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
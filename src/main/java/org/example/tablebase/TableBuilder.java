@@ -0,0 +1,365 @@
+package org.example.tablebase;
+
+import org.example.game.BitboardPosition;
+import org.example.game.Bitboards;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Computes the values of one table by retrograde analysis on a fork/join pool. Moves are
+ * generated by BitboardPosition, so the tables agree with the rules the game itself enforces.
+ * <p>
+ * First every slot is set up once: slots without a legal position are marked, checkmates get
+ * their value, and moves that capture or promote into an already built table are looked up.
+ * Then pass p settles the positions that are mated or mate in exactly p plies, in two parallel
+ * phases: moves are taken back from every position settled in pass p - 1 to mark its
+ * predecessors as candidates, then each candidate, and each position waiting on a longer value
+ * from another table, is examined by generating its moves.
+ * <p>
+ * Apart from the values themselves, the working state is bit arrays with one bit per slot.
+ * Tasks cover whole 64-slot words, so a task writes only its own words of values, pending and
+ * the plain bit arrays; only candidates, which any task may mark, needs atomic updates. A task
+ * may read a value another task settles in the same pass, but such a value is always one ply
+ * longer than the pass and can only make a position wait for a later pass, so the result does
+ * not depend on the timing.
+ */
+final class TableBuilder {
+    private static final int MAX_VALUE = 0xFE; // 253 plies
+    private static final int LEAF_WORDS = 256; // 16384 slots per task
+
+    private final Material material;
+    private final ForkJoinPool pool;
+    private final int size;
+    private final int words;
+    private final byte[] values; // Tablebase values
+    private final byte[] pending; // A value some move reaches outside this table, settled in its pass
+    private final long[] invalid; // Slots without a legal position
+    private final long[] enPassantParents; // Positions with a move after which en passant is possible
+    private long[] frontier; // Settled in the previous pass
+    private long[] nextFrontier;
+    private final AtomicLongArray candidates;
+    private final AtomicInteger maxPending = new AtomicInteger();
+    private final boolean bothSidesHavePawns;
+    private final long[] otherSignatures;
+    private final Material[] otherMaterials;
+    private final byte[][] otherValues;
+    private int passes;
+
+    // Scratch for one task
+    private static final class Worker {
+        final BitboardPosition position = new BitboardPosition();
+        final BitboardPosition candidate = new BitboardPosition();
+        final int[] squares = new int[Material.MAX_PIECES];
+        final int[] candidateSquares = new int[Material.MAX_PIECES];
+        final int[][] moves = new int[4][256]; // One buffer per en passant look-ahead level
+    }
+
+    @FunctionalInterface
+    private interface RangeAction {
+        int run(Worker worker, int fromWord, int toWord);
+    }
+
+    // Splits a range of words in halves down to LEAF_WORDS and sums what the leaves return
+    private static final class RangeTask extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient RangeAction action; // Tasks never leave the pool they run in
+        private final int fromWord;
+        private final int toWord;
+
+        RangeTask(RangeAction action, int fromWord, int toWord) {
+            this.action = action;
+            this.fromWord = fromWord;
+            this.toWord = toWord;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (toWord - fromWord <= LEAF_WORDS) {
+                return action.run(new Worker(), fromWord, toWord);
+            }
+            int middle = (fromWord + toWord) >>> 1;
+            RangeTask low = new RangeTask(action, fromWord, middle);
+            low.fork();
+            int high = new RangeTask(action, middle, toWord).compute();
+            return low.join() + high;
+        }
+    }
+
+    /**
+     * @param others the values of every table listed by material.successors(), in that order
+     */
+    TableBuilder(Material material, List<Material> successors, List<byte[]> others, ForkJoinPool pool) {
+        this.material = material;
+        this.pool = pool;
+        this.size = Math.toIntExact(material.size());
+        this.words = (size + 63) >>> 6;
+        this.values = new byte[size];
+        this.pending = new byte[size];
+        this.invalid = new long[words];
+        this.enPassantParents = new long[words];
+        this.frontier = new long[words];
+        this.nextFrontier = new long[words];
+        this.candidates = new AtomicLongArray(words);
+        this.bothSidesHavePawns = hasPawns(material.getSignature(), BitboardPosition.WHITE)
+                && hasPawns(material.getSignature(), BitboardPosition.BLACK);
+        this.otherMaterials = successors.toArray(new Material[0]);
+        this.otherValues = others.toArray(new byte[0][]);
+        this.otherSignatures = new long[otherMaterials.length];
+        for (int i = 0; i < otherMaterials.length; i++) {
+            otherSignatures[i] = otherMaterials[i].getSignature();
+        }
+    }
+
+    /**
+     * Builds the table and returns its values, ready for Tablebase.write.
+     */
+    byte[] build() {
+        pool.invoke(new RangeTask(this::initialize, 0, words));
+        for (int pass = 1; ; pass++) {
+            pool.invoke(new RangeTask(this::markPredecessors, 0, words));
+            int finalPass = pass;
+            int settled = pool.invoke(new RangeTask((worker, from, to) -> settleCandidates(worker, from, to, finalPass), 0, words));
+            long[] settledNow = nextFrontier;
+            nextFrontier = frontier;
+            frontier = settledNow;
+            Arrays.fill(nextFrontier, 0);
+            passes = pass;
+            if (settled == 0 && maxPending.get() <= pass + 1) {
+                break;
+            }
+        }
+        return values;
+    }
+
+    int getPasses() {
+        return passes;
+    }
+
+    private int initialize(Worker worker, int fromWord, int toWord) {
+        int mates = 0;
+        for (int word = fromWord; word < toWord; word++) {
+            int end = Math.min(size, (word + 1) << 6);
+            for (int index = word << 6; index < end; index++) {
+                long bit = 1L << (index & 63);
+                if (!material.decode(index, worker.position, worker.squares)) {
+                    invalid[word] |= bit;
+                    continue;
+                }
+                int value = evaluate(worker, worker.position, 0);
+                if (value == 1) {
+                    values[index] = 1; // Checkmated
+                    frontier[word] |= bit;
+                    mates++;
+                } else if (value > 1) {
+                    setPending(index, value);
+                }
+                if (bothSidesHavePawns && hasEnPassantChild(worker, worker.position)) {
+                    enPassantParents[word] |= bit;
+                }
+            }
+        }
+        return mates;
+    }
+
+    // Takes back every move of the side that just moved, from each position of the frontier
+    private int markPredecessors(Worker worker, int fromWord, int toWord) {
+        BitboardPosition position = worker.position;
+        int[] squares = worker.squares;
+        for (int word = fromWord; word < toWord; word++) {
+            for (long bits = frontier[word]; bits != 0; bits &= bits - 1) {
+                int index = (word << 6) | Long.numberOfTrailingZeros(bits);
+                material.decode(index, position, squares);
+                int sideToMove = position.getSideToMove();
+                int mover = sideToMove ^ 1;
+                long occupied = position.occupied();
+                for (int i = 0; i < material.getPieceCount(); i++) {
+                    int square = squares[i];
+                    int piece = position.pieceAt(square);
+                    if (BitboardPosition.colorOf(piece) != mover) {
+                        continue;
+                    }
+                    for (long origins = origins(piece, square, occupied); origins != 0; origins &= origins - 1) {
+                        int origin = Long.numberOfTrailingZeros(origins);
+                        position.setPiece(square, BitboardPosition.NO_PIECE);
+                        position.setPiece(origin, piece);
+                        position.setSideToMove(mover);
+                        markCandidate((int) material.index(position, false));
+                        position.setPiece(origin, BitboardPosition.NO_PIECE);
+                        position.setPiece(square, piece);
+                        position.setSideToMove(sideToMove);
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+
+    private void markCandidate(int index) {
+        int word = index >>> 6;
+        long bit = 1L << (index & 63);
+        if ((candidates.get(word) & bit) == 0) {
+            candidates.getAndAccumulate(word, bit, (current, add) -> current | add);
+        }
+    }
+
+    private int settleCandidates(Worker worker, int fromWord, int toWord, int pass) {
+        int settled = 0;
+        for (int word = fromWord; word < toWord; word++) {
+            // Their value depends on a position the index cannot hold, so nothing marks them
+            long bits = candidates.get(word) | enPassantParents[word];
+            candidates.set(word, 0);
+            int end = Math.min(size, (word + 1) << 6);
+            for (int index = word << 6; index < end; index++) {
+                if ((pending[index] & 0xFF) == pass + 1) {
+                    bits |= 1L << (index & 63);
+                }
+            }
+            for (bits &= ~invalid[word]; bits != 0; bits &= bits - 1) {
+                int index = (word << 6) | Long.numberOfTrailingZeros(bits);
+                if (settle(worker, index, pass)) {
+                    nextFrontier[word] |= bits & -bits;
+                    settled++;
+                }
+            }
+        }
+        return settled;
+    }
+
+    // Squares a piece can have come from without capturing or promoting
+    private static long origins(int piece, int square, long occupied) {
+        int color = BitboardPosition.colorOf(piece);
+        switch (BitboardPosition.typeOf(piece)) {
+            case BitboardPosition.PAWN:
+                int back = color == BitboardPosition.WHITE ? -8 : 8;
+                int single = square + back;
+                if (single < 8 || single >= 56 || (occupied & Bitboards.bit(single)) != 0) {
+                    return 0;
+                }
+                long origins = Bitboards.bit(single);
+                int doubleRank = color == BitboardPosition.WHITE ? 3 : 4;
+                if (Bitboards.rankOf(square) == doubleRank && (occupied & Bitboards.bit(single + back)) == 0) {
+                    origins |= Bitboards.bit(single + back);
+                }
+                return origins;
+            case BitboardPosition.KNIGHT:
+                return Bitboards.knightAttacks(square) & ~occupied;
+            case BitboardPosition.BISHOP:
+                return Bitboards.bishopAttacks(square, occupied) & ~occupied;
+            case BitboardPosition.ROOK:
+                return Bitboards.rookAttacks(square, occupied) & ~occupied;
+            case BitboardPosition.QUEEN:
+                return Bitboards.queenAttacks(square, occupied) & ~occupied;
+            default:
+                return Bitboards.kingAttacks(square) & ~occupied;
+        }
+    }
+
+    // Gives an unsettled position its value if that is pass plies
+    private boolean settle(Worker worker, int index, int pass) {
+        if (values[index] != 0) {
+            return false;
+        }
+        material.decode(index, worker.candidate, worker.candidateSquares);
+        int value = evaluate(worker, worker.candidate, 0);
+        if (value == pass + 1) {
+            values[index] = (byte) value;
+            return true;
+        }
+        if (value > pass + 1) {
+            setPending(index, value);
+        }
+        return false;
+    }
+
+    private void setPending(int index, int value) {
+        int current = pending[index] & 0xFF;
+        if (current == 0 || value < current) {
+            pending[index] = (byte) value;
+            maxPending.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * The value of a position from what is known of its moves so far, where unknown counts as a
+     * draw. depth selects the move buffer.
+     */
+    private int evaluate(Worker worker, BitboardPosition position, int depth) {
+        int[] buffer = worker.moves[depth];
+        int count = position.generateLegalMoves(buffer, 0);
+        if (count == 0) {
+            return position.isInCheck(position.getSideToMove()) ? 1 : 0;
+        }
+        int best = 0;
+        int bestRank = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            position.makeMove(buffer[i]);
+            int value = Tablebase.fromChild(lookup(worker, position, depth));
+            position.unmakeMove();
+            int rank = Tablebase.rank(value);
+            if (rank > bestRank) {
+                best = value;
+                bestRank = rank;
+            }
+        }
+        if (best > MAX_VALUE) {
+            throw new IllegalStateException("Distance to mate in " + material + " exceeds " + (MAX_VALUE - 1) + " plies");
+        }
+        return best;
+    }
+
+    // The value of a position reached by a move, from this table or the one it moved into
+    private int lookup(Worker worker, BitboardPosition position, int depth) {
+        if (canCaptureEnPassant(position)) {
+            return evaluate(worker, position, depth + 1);
+        }
+        long signature = Material.signature(position);
+        if (signature == material.getSignature()) {
+            return values[(int) material.index(position, false)] & 0xFF;
+        }
+        if (Material.isBareKings(signature)) {
+            return 0;
+        }
+        for (int i = 0; i < otherSignatures.length; i++) {
+            if (otherSignatures[i] == signature) {
+                return otherValues[i][(int) otherMaterials[i].index(position, false)] & 0xFF;
+            }
+            if (otherSignatures[i] == Material.flip(signature)) {
+                return otherValues[i][(int) otherMaterials[i].index(position, true)] & 0xFF;
+            }
+        }
+        throw new IllegalStateException("No table for the position " + position.toFen());
+    }
+
+    private boolean hasEnPassantChild(Worker worker, BitboardPosition position) {
+        int[] buffer = worker.moves[0];
+        int count = position.generateLegalMoves(buffer, 0);
+        for (int i = 0; i < count; i++) {
+            if (BitboardPosition.moveFlags(buffer[i]) == BitboardPosition.DOUBLE_PAWN_PUSH) {
+                position.makeMove(buffer[i]);
+                boolean capturable = canCaptureEnPassant(position);
+                position.unmakeMove();
+                if (capturable) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasPawns(long signature, int color) {
+        return (signature >>> (4 * BitboardPosition.pieceCode(color, BitboardPosition.PAWN)) & 15) != 0;
+    }
+
+    private static boolean canCaptureEnPassant(BitboardPosition position) {
+        int enPassant = position.getEnPassantSquare();
+        int sideToMove = position.getSideToMove();
+        return enPassant != BitboardPosition.NO_SQUARE && (Bitboards.pawnAttacks(sideToMove ^ 1, enPassant)
+                & position.pieces(sideToMove, BitboardPosition.PAWN)) != 0;
+    }
+}
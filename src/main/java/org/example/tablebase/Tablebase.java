@@ -0,0 +1,175 @@
+package org.example.tablebase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * One table file, memory-mapped. The file holds a value byte per index slot of its Material,
+ * split into blocks of BLOCK_POSITIONS slots that are deflated separately, and a table of block
+ * offsets after the header, so any slot is found by one offset lookup and one block inflate.
+ * <p>
+ * A value is 0 for a draw (or a slot with no legal position), otherwise the distance to mate in
+ * plies plus one: odd plies mean the side to move wins, even plies that it is mated.
+ * <pre>
+ * header   magic, material signature, slot count (longs), positions per block, block count (ints)
+ * offsets  block count + 1 longs, from the start of the file
+ * blocks   deflated values
+ * </pre>
+ */
+final class Tablebase implements AutoCloseable {
+    static final long MAGIC = 0x43485354424C31L; // "CHSTBL1"
+    static final int HEADER_BYTES = 32;
+    static final int BLOCK_POSITIONS = 1 << 12;
+
+    private final Material material;
+    private final FileChannel channel;
+    private final MappedByteBuffer data;
+    private final int blockCount;
+    final int[] cacheSlots; // Owned by BlockCache: the cache slot holding each block, or -1
+
+    private Tablebase(FileChannel channel, Path file) throws IOException {
+        this.channel = channel;
+        if (channel.size() > Integer.MAX_VALUE) {
+            throw new IOException("Table larger than 2 GB: " + file);
+        }
+        this.data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        if (channel.size() < HEADER_BYTES || data.getLong(0) != MAGIC) {
+            throw new IOException("Not a tablebase: " + file);
+        }
+        this.material = Material.fromSignature(data.getLong(8));
+        this.blockCount = data.getInt(28);
+        if (data.getLong(16) != material.size() || data.getInt(24) != BLOCK_POSITIONS
+                || (material.size() + BLOCK_POSITIONS - 1) / BLOCK_POSITIONS != blockCount
+                || data.getLong(HEADER_BYTES + 8 * blockCount) > channel.size()) {
+            throw new IOException("Tablebase header does not match its contents: " + file);
+        }
+        this.cacheSlots = new int[blockCount];
+        Arrays.fill(cacheSlots, -1);
+    }
+
+    static Tablebase open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new Tablebase(channel, file);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // The value of a position that has a move into a position with the given value
+    static int fromChild(int childValue) {
+        return childValue == 0 ? 0 : childValue + 1;
+    }
+
+    // Orders values for the side to move: quicker wins first, then draws, then slower losses
+    static int rank(int value) {
+        return value == 0 ? 0 : (value & 1) == 0 ? 512 - value : value - 512;
+    }
+
+    Material getMaterial() {
+        return material;
+    }
+
+    /**
+     * Inflates a block into out, which must hold BLOCK_POSITIONS bytes.
+     */
+    void readBlock(int block, byte[] out, Inflater inflater) {
+        long start = data.getLong(HEADER_BYTES + 8 * block);
+        long end = data.getLong(HEADER_BYTES + 8 * (block + 1));
+        inflater.reset();
+        inflater.setInput(data.slice((int) start, (int) (end - start)));
+        try {
+            inflater.inflate(out, 0, blockLength(block));
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt block " + block + " in table " + material, e);
+        }
+    }
+
+    // Every value of the table, for building tables that capture or promote into this one
+    byte[] readAll() {
+        byte[] values = new byte[Math.toIntExact(material.size())];
+        byte[] block = new byte[BLOCK_POSITIONS];
+        Inflater inflater = new Inflater();
+        try {
+            for (int b = 0; b < blockCount; b++) {
+                readBlock(b, block, inflater);
+                System.arraycopy(block, 0, values, b * BLOCK_POSITIONS, blockLength(b));
+            }
+        } finally {
+            inflater.end();
+        }
+        return values;
+    }
+
+    private int blockLength(int block) {
+        return (int) Math.min(BLOCK_POSITIONS, material.size() - (long) block * BLOCK_POSITIONS);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Writes the values of a table, one per index slot, to a file. The file only appears once it
+     * is complete.
+     */
+    static void write(Path file, Material material, byte[] values) throws IOException {
+        int blockCount = (int) ((material.size() + BLOCK_POSITIONS - 1) / BLOCK_POSITIONS);
+        long[] offsets = new long[blockCount + 1];
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer compressed = ByteBuffer.allocate(BLOCK_POSITIONS + 1024);
+            long position = HEADER_BYTES + 8L * offsets.length;
+            for (int block = 0; block < blockCount; block++) {
+                offsets[block] = position;
+                int start = block * BLOCK_POSITIONS;
+                deflater.reset();
+                deflater.setInput(values, start, Math.min(BLOCK_POSITIONS, values.length - start));
+                deflater.finish();
+                compressed.clear();
+                while (!deflater.finished()) {
+                    if (!compressed.hasRemaining()) {
+                        compressed = ByteBuffer.allocate(compressed.capacity() * 2).put(compressed.flip());
+                    }
+                    deflater.deflate(compressed);
+                }
+                compressed.flip();
+                while (compressed.hasRemaining()) {
+                    position += out.write(compressed, position);
+                }
+            }
+            offsets[blockCount] = position;
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + 8 * offsets.length).order(ByteOrder.BIG_ENDIAN);
+            header.putLong(MAGIC).putLong(material.getSignature()).putLong(material.size())
+                    .putInt(BLOCK_POSITIONS).putInt(blockCount);
+            for (long offset : offsets) {
+                header.putLong(offset);
+            }
+            header.flip();
+            long headerPosition = 0;
+            while (header.hasRemaining()) {
+                headerPosition += out.write(header, headerPosition);
+            }
+            out.force(true);
+        } finally {
+            deflater.end();
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.tablebase;
+
+import org.example.game.BitboardPosition;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures probe latency and block cache hit rate, first for positions drawn at random from
+ * every table, then along random games inside the tables, where consecutive probes are close
+ * like they are in a search.
+ * <pre>
+ * TablebaseBenchmark &lt;dir&gt; [cacheMegabytes] [probes]
+ * </pre>
+ */
+public class TablebaseBenchmark {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: TablebaseBenchmark <dir> [cacheMegabytes] [probes]");
+            System.exit(2);
+        }
+        int cacheMegabytes = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int probes = args.length > 2 ? Integer.parseInt(args[2]) : 1_000_000;
+        try (Tablebases tablebases = Tablebases.open(Path.of(args[0]), cacheMegabytes)) {
+            List<Material> materials = tablebases.getMaterials();
+            if (materials.isEmpty()) {
+                System.out.println("No tables in " + args[0]);
+                return;
+            }
+            Random random = new Random(42);
+            BitboardPosition position = new BitboardPosition();
+            int[] squares = new int[Material.MAX_PIECES];
+
+            long start = System.nanoTime();
+            for (int i = 0; i < probes; i++) {
+                randomPosition(materials, random, position, squares);
+                tablebases.probe(position);
+            }
+            report("Random positions", tablebases, probes, System.nanoTime() - start);
+
+            tablebases.resetStatistics();
+            int[] moves = new int[256];
+            start = System.nanoTime();
+            for (int i = 0; i < probes; ) {
+                randomPosition(materials, random, position, squares);
+                for (int ply = 0; ply < 50 && i < probes; ply++, i++) {
+                    if (tablebases.probe(position) == Tablebases.NOT_FOUND) {
+                        break;
+                    }
+                    int count = position.generateLegalMoves(moves, 0);
+                    if (count == 0) {
+                        break;
+                    }
+                    position.makeMove(moves[random.nextInt(count)]);
+                }
+            }
+            report("Random games", tablebases, probes, System.nanoTime() - start);
+        }
+    }
+
+    private static void randomPosition(List<Material> materials, Random random, BitboardPosition position, int[] squares) {
+        Material material = materials.get(random.nextInt(materials.size()));
+        while (!material.decode((long) (random.nextDouble() * material.size()), position, squares)) {
+            // Draw again until the slot holds a legal position
+        }
+    }
+
+    private static void report(String name, Tablebases tablebases, int probes, long elapsed) {
+        System.out.printf("%s: %d probes in %d ms, cache hit rate %.3f, %d evictions, latency %s%n", name,
+                tablebases.getProbes(), elapsed / 1_000_000, tablebases.getCacheHitRate(),
+                tablebases.getCacheEvictions(), tablebases.getProbeLatency());
+    }
+}
@@ -0,0 +1,83 @@
+package org.example.tablebase;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Builds table files into a directory, together with every smaller table they capture or
+ * promote into. Tables already in the directory are reused. Each table is built by all threads
+ * of the generator's fork/join pool.
+ * <pre>
+ * TablebaseGenerator [--threads n] &lt;dir&gt; &lt;material&gt;...     e.g. KQvK KRvK KPvK
+ * </pre>
+ */
+public class TablebaseGenerator implements AutoCloseable {
+    private final Path directory;
+    private final ForkJoinPool pool;
+
+    public TablebaseGenerator(Path directory) throws IOException {
+        this(directory, Runtime.getRuntime().availableProcessors());
+    }
+
+    public TablebaseGenerator(Path directory, int threads) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        this.directory = directory;
+        Files.createDirectories(directory);
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    /**
+     * Makes sure the table for material and all it depends on exist, building what is missing.
+     */
+    public void generate(Material material) throws IOException {
+        Path file = Tablebases.file(directory, material);
+        if (Files.exists(file)) {
+            return;
+        }
+        List<Material> successors = material.successors();
+        List<byte[]> successorValues = new ArrayList<>();
+        for (Material successor : successors) {
+            generate(successor);
+            try (Tablebase table = Tablebase.open(Tablebases.file(directory, successor))) {
+                successorValues.add(table.readAll());
+            }
+        }
+
+        long start = System.nanoTime();
+        TableBuilder builder = new TableBuilder(material, successors, successorValues, pool);
+        byte[] values = builder.build();
+        Tablebase.write(file, material, values);
+        System.out.println("Built " + material + ": " + material.size() + " positions, " + builder.getPasses()
+                + " passes on " + pool.getParallelism() + " threads in " + (System.nanoTime() - start) / 1_000_000
+                + " ms, " + Files.size(file) + " bytes");
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int first = 0;
+        if (args.length > 1 && args[0].equals("--threads")) {
+            threads = Integer.parseInt(args[1]);
+            first = 2;
+        }
+        if (args.length - first < 2) {
+            System.out.println("Usage: TablebaseGenerator [--threads n] <dir> <material>...   e.g. KQvK KRvK KPvK");
+            System.exit(2);
+        }
+        try (TablebaseGenerator generator = new TablebaseGenerator(Path.of(args[first]), threads)) {
+            for (int i = first + 1; i < args.length; i++) {
+                generator.generate(Material.of(args[i]));
+            }
+        }
+    }
+}
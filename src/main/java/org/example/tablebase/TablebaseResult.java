@@ -0,0 +1,42 @@
+package org.example.tablebase;
+
+/**
+ * The exact outcome of a tablebase position with best play, from the side to move's point of
+ * view, and how many plies it takes to mate.
+ */
+public final class TablebaseResult {
+    private final int value;
+
+    TablebaseResult(int value) {
+        this.value = value;
+    }
+
+    public boolean isWin() {
+        return Tablebases.isWin(value);
+    }
+
+    public boolean isDraw() {
+        return value == Tablebases.DRAW;
+    }
+
+    public boolean isLoss() {
+        return Tablebases.isLoss(value);
+    }
+
+    // Plies until mate with best play by both sides, or 0 for a draw. 0 also means already mated
+    public int getPliesToMate() {
+        return Tablebases.pliesToMate(value);
+    }
+
+    public int getMovesToMate() {
+        return (getPliesToMate() + 1) / 2;
+    }
+
+    @Override
+    public String toString() {
+        if (isWin()) {
+            return "win, mate in " + getMovesToMate();
+        }
+        return isLoss() ? "loss, mated in " + getMovesToMate() : "draw";
+    }
+}
@@ -0,0 +1,256 @@
+package org.example.tablebase;
+
+import org.example.game.BitboardPosition;
+import org.example.game.Bitboards;
+import org.example.game.ChessBoard;
+import org.example.protocol.LatencyStats;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The endgame tables of a directory, probed through one bounded LRU cache of inflated blocks.
+ * A probe gives the exact result with best play and the distance to mate for any position whose
+ * material has a table, as long as no castling rights remain. The fifty-move rule is ignored.
+ * <p>
+ * Values are ints: NOT_FOUND, DRAW, or the distance to mate in plies plus one, where an odd
+ * distance is a win for the side to move and an even one a loss; isWin, isLoss and pliesToMate
+ * decode them. Safe for any number of threads. Generate tables with TablebaseGenerator.
+ */
+public class Tablebases implements AutoCloseable {
+    public static final int NOT_FOUND = -1;
+    public static final int DRAW = 0;
+    public static final String FILE_SUFFIX = ".tb";
+
+    private final Tablebase[] tables; // Sorted by signature
+    private final long[] signatures;
+    private final int maxPieces;
+    private final BlockCache cache;
+
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder found = new LongAdder();
+    private final LatencyStats probeLatency = new LatencyStats();
+
+    private Tablebases(List<Tablebase> tables, int cacheMegabytes) {
+        tables.sort(Comparator.comparingLong(table -> table.getMaterial().getSignature()));
+        this.tables = tables.toArray(new Tablebase[0]);
+        this.signatures = new long[tables.size()];
+        int pieces = 2; // Bare kings are always known
+        for (int i = 0; i < signatures.length; i++) {
+            signatures[i] = this.tables[i].getMaterial().getSignature();
+            pieces = Math.max(pieces, this.tables[i].getMaterial().getPieceCount());
+        }
+        this.maxPieces = pieces;
+        this.cache = new BlockCache(cacheMegabytes);
+    }
+
+    /**
+     * Opens every table file in a directory. cacheMegabytes bounds the memory of inflated blocks.
+     */
+    public static Tablebases open(Path directory, int cacheMegabytes) throws IOException {
+        List<Tablebase> tables = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                tables.add(Tablebase.open(file));
+            }
+        } catch (IOException | RuntimeException e) {
+            for (Tablebase table : tables) {
+                table.close();
+            }
+            throw e;
+        }
+        return new Tablebases(tables, cacheMegabytes);
+    }
+
+    static Path file(Path directory, Material material) {
+        return directory.resolve(material.getName() + FILE_SUFFIX);
+    }
+
+    public int getTableCount() {
+        return tables.length;
+    }
+
+    public List<Material> getMaterials() {
+        List<Material> materials = new ArrayList<>();
+        for (Tablebase table : tables) {
+            materials.add(table.getMaterial());
+        }
+        return materials;
+    }
+
+    // The most pieces, kings included, of any table
+    public int getMaxPieces() {
+        return maxPieces;
+    }
+
+    /**
+     * The value of a position, see the class comment, or NOT_FOUND. When an en passant capture is
+     * possible its value comes from the moves, which are made on the position and taken back.
+     */
+    public int probe(BitboardPosition position) {
+        long start = System.nanoTime();
+        int value = probeValue(position);
+        probes.increment();
+        if (value != NOT_FOUND) {
+            found.increment();
+        }
+        probeLatency.record(System.nanoTime() - start);
+        return value;
+    }
+
+    // The exact result for a board, or null when it is not covered by the tables
+    public TablebaseResult probe(ChessBoard board) {
+        int value = probe(board.getBitboardPosition());
+        return value == NOT_FOUND ? null : new TablebaseResult(value);
+    }
+
+    /**
+     * The move that keeps the best result: the quickest mate when winning, a drawing move when
+     * drawn, the slowest mate when losing. 0 if the position or one of its moves is not covered.
+     */
+    public int bestMove(BitboardPosition position) {
+        if (Long.bitCount(position.occupied()) > maxPieces || position.getCastlingRights() != 0) {
+            return 0;
+        }
+        int[] moves = new int[256];
+        int count = position.generateLegalMoves(moves, 0);
+        int bestMove = 0;
+        int bestRank = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            int child = probeValue(position); // Not counted as probes of their own
+            position.unmakeMove();
+            if (child == NOT_FOUND) {
+                return 0;
+            }
+            int rank = Tablebase.rank(Tablebase.fromChild(child));
+            if (rank > bestRank) {
+                bestRank = rank;
+                bestMove = moves[i];
+            }
+        }
+        return bestMove;
+    }
+
+    public static boolean isWin(int value) {
+        return value > 0 && (value & 1) == 0;
+    }
+
+    public static boolean isLoss(int value) {
+        return value > 0 && (value & 1) == 1;
+    }
+
+    public static int pliesToMate(int value) {
+        return value > 0 ? value - 1 : 0;
+    }
+
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    // Probes of positions covered by the tables
+    public long getHits() {
+        return found.sum();
+    }
+
+    public long getCacheHits() {
+        return cache.getHits();
+    }
+
+    public long getCacheMisses() {
+        return cache.getMisses();
+    }
+
+    public long getCacheEvictions() {
+        return cache.getEvictions();
+    }
+
+    public double getCacheHitRate() {
+        long hits = getCacheHits();
+        long lookups = hits + getCacheMisses();
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    public LatencyStats getProbeLatency() {
+        return probeLatency;
+    }
+
+    public void resetStatistics() {
+        probes.reset();
+        found.reset();
+        probeLatency.reset();
+        cache.resetStatistics();
+    }
+
+    @Override
+    public void close() throws IOException {
+        cache.close();
+        for (Tablebase table : tables) {
+            table.close();
+        }
+    }
+
+    private int probeValue(BitboardPosition position) {
+        if (Long.bitCount(position.occupied()) > maxPieces || position.getCastlingRights() != 0) {
+            return NOT_FOUND;
+        }
+        int sideToMove = position.getSideToMove();
+        int enPassant = position.getEnPassantSquare();
+        if (enPassant != BitboardPosition.NO_SQUARE && (Bitboards.pawnAttacks(sideToMove ^ 1, enPassant)
+                & position.pieces(sideToMove, BitboardPosition.PAWN)) != 0) {
+            return probeMoves(position);
+        }
+        long signature = Material.signature(position);
+        if (Material.isBareKings(signature)) {
+            return DRAW;
+        }
+        int table = Arrays.binarySearch(signatures, signature);
+        boolean flipped = false;
+        if (table < 0) {
+            table = Arrays.binarySearch(signatures, Material.flip(signature));
+            flipped = true;
+        }
+        if (table < 0) {
+            return NOT_FOUND;
+        }
+        return cache.get(tables[table], tables[table].getMaterial().index(position, flipped));
+    }
+
+    // The value as the best of the moves, for positions the index cannot tell apart
+    private int probeMoves(BitboardPosition position) {
+        int[] moves = new int[256];
+        int count = position.generateLegalMoves(moves, 0);
+        if (count == 0) {
+            return position.isInCheck(position.getSideToMove()) ? 1 : DRAW;
+        }
+        int best = NOT_FOUND;
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            int child = probeValue(position);
+            position.unmakeMove();
+            if (child == NOT_FOUND) {
+                return NOT_FOUND;
+            }
+            int value = Tablebase.fromChild(child);
+            if (best == NOT_FOUND || Tablebase.rank(value) > Tablebase.rank(best)) {
+                best = value;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public String toString() {
+        return "Tablebases{tables=" + tables.length + ", maxPieces=" + maxPieces + ", probes=" + getProbes()
+                + ", hits=" + getHits() + ", cacheBlocks=" + cache.capacity() + ", cacheHitRate="
+                + String.format("%.3f", getCacheHitRate()) + ", evictions=" + getCacheEvictions()
+                + ", latency=" + probeLatency + "}";
+    }
+}
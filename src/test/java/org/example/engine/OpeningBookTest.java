@@ -0,0 +1,73 @@
+package org.example.engine;
+
+import org.example.game.BitboardPosition;
+import org.example.game.San;
+import org.example.pgn.PgnGame;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OpeningBookTest {
+    @Test
+    void probesListTheMovesOfAPositionHeaviestFirst() throws IOException {
+        OpeningBookBuilder builder = new OpeningBookBuilder(4, 1000);
+        // Added lightest first, so the order has to come from the weights
+        builder.addGame(game("0-1", "c4", "e5")); // c4 weighs 0, e5 weighs 2
+        builder.addGame(game("1/2-1/2", "d4", "d5"));
+        builder.addGame(game("1-0", "e4", "e5"));
+        builder.addGame(game("1-0", "e4", "c5"));
+        builder.addGame(game("1/2-1/2", "e4", "e5"));
+
+        Path file = Files.createTempDirectory("opening-book-test").resolve("test.book");
+        assertEquals(5, builder.write(file, 1), "moves that never scored are left out");
+        try (OpeningBook book = OpeningBook.open(file)) {
+            BitboardPosition start = position();
+            int e4 = San.parse(start, "e4");
+            int d4 = San.parse(start, "d4");
+            int[] moves = new int[8];
+            int[] weights = new int[8];
+            assertEquals(2, book.probe(start.getZobristKey(), moves, weights));
+            assertArrayEquals(new int[] { e4, d4 }, Arrays.copyOf(moves, 2));
+            assertArrayEquals(new int[] { 5, 1 }, Arrays.copyOf(weights, 2));
+
+            BitboardPosition afterE4 = position("e4");
+            assertEquals(1, book.probe(afterE4.getZobristKey(), moves, weights), "c5 only lost");
+            assertEquals(San.parse(afterE4, "e5"), moves[0]);
+            assertEquals(1, weights[0], "one loss and one draw");
+
+            assertEquals(e4, book.bestMove(start));
+            assertEquals(e4, book.pickMove(start, 0.0));
+            assertEquals(d4, book.pickMove(start, 0.99), "the last sixth of the range falls on d4");
+            assertEquals(1, book.probe(position("c4").getZobristKey(), moves, weights));
+            assertEquals(0, book.probe(position("a3").getZobristKey(), moves, weights));
+            assertEquals(OpeningBook.NO_MOVE, book.bestMove(position("a3")));
+        }
+    }
+
+    private static PgnGame game(String result, String... moves) {
+        PgnGame game = new PgnGame();
+        game.setResult(result);
+        BitboardPosition position = position();
+        for (String san : moves) {
+            int move = San.parse(position, san);
+            game.addMove(move);
+            position.makeMove(move);
+        }
+        return game;
+    }
+
+    private static BitboardPosition position(String... moves) {
+        BitboardPosition position = new BitboardPosition();
+        position.setFromFen(BitboardPosition.START_FEN);
+        for (String san : moves) {
+            position.makeMove(San.parse(position, san));
+        }
+        return position;
+    }
+}
@@ -0,0 +1,33 @@
+package org.example.engine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchTest {
+    @Test
+    void tablebaseMatesAreMateScoresAtAnyPly() {
+        int longestWin = Search.MAX_TABLEBASE_PLIES - 1; // Even values are wins, see Tablebases
+        for (int ply : new int[] { 0, 1, Search.MAX_PLY / 2, Search.MAX_PLY }) {
+            int win = Search.tablebaseScore(longestWin, ply);
+            int loss = Search.tablebaseScore(Search.MAX_TABLEBASE_PLIES, ply);
+            assertTrue(win >= Search.MATE_BOUND && win < Search.MATE, "win at ply " + ply);
+            assertTrue(-loss >= Search.MATE_BOUND && -loss < Search.MATE, "loss at ply " + ply);
+            assertTrue(new SearchResult(1, win, 1, 1, 1).isMateScore());
+
+            // Stored relative to the node, so the same mate read back at another ply keeps its distance
+            assertEquals(win - 3, Search.fromTableScore(Search.toTableScore(win, ply), ply + 3));
+            assertEquals(loss + 3, Search.fromTableScore(Search.toTableScore(loss, ply), ply + 3));
+        }
+    }
+
+    @Test
+    void ordinaryScoresAreLeftAlone() {
+        int score = 900;
+        assertEquals(score, Search.toTableScore(score, 40));
+        assertEquals(-score, Search.fromTableScore(-score, 40));
+        assertFalse(new SearchResult(1, score, 1, 1, 1).isMateScore());
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.game;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BitboardPositionTest {
+    @Test
+    void transpositionsShareAKeyWhenNoPawnCanCaptureEnPassant() {
+        BitboardPosition queensGambit = play("d4", "d5", "c4");
+        BitboardPosition transposed = play("c4", "d5", "d4");
+        BitboardPosition loaded = new BitboardPosition();
+        loaded.setFromFen("rnbqkbnr/ppp1pppp/8/3p4/2PP4/8/PP2PPPP/RNBQKBNR b KQkq c3 0 2");
+
+        assertEquals(BitboardPosition.NO_SQUARE, queensGambit.getEnPassantSquare());
+        assertEquals(queensGambit.getZobristKey(), transposed.getZobristKey());
+        assertEquals(queensGambit.getZobristKey(), loaded.getZobristKey());
+        assertEquals(loaded.computeZobristKey(), loaded.getZobristKey());
+        // The position after 1.e4 comes back after the knights return
+        assertEquals(1, play("e4", "Nf6", "Nf3", "Ng8", "Ng1").repetitionCount());
+    }
+
+    @Test
+    void aCapturableEnPassantSquareIsKeptAndHashed() {
+        BitboardPosition position = play("e4", "a6", "e5", "d5");
+        assertEquals(Bitboards.square(5, 3), position.getEnPassantSquare());
+        assertEquals(position.computeZobristKey(), position.getZobristKey());
+
+        BitboardPosition loaded = new BitboardPosition();
+        loaded.setFromFen(position.toFen());
+        assertEquals(position.getZobristKey(), loaded.getZobristKey());
+        loaded.setEnPassantSquare(BitboardPosition.NO_SQUARE);
+        assertNotEquals(position.getZobristKey(), loaded.getZobristKey());
+        assertTrue(position.isLegalMove(San.parse(position, "exd6")));
+    }
+
+    @Test
+    void unreachablePositionsAreRejected() {
+        String[] fens = {
+                "rnbqkbnr/ppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", // Short rank
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR/8 w KQkq - 0 1", // Nine ranks
+                "4k3/8/8/8/8/8/8/K3K3 w - - 0 1", // Two white kings
+                "8/8/8/8/8/8/8/4K3 w - - 0 1", // No black king
+                "4k3/8/8/8/8/8/8/4K3 w - e3 0 1", // En passant square on the mover's side
+                "4k3/8/8/8/8/8/8/4K3 b - e3 0 1", // En passant square without the pawn
+                "4k2P/8/8/8/8/8/8/4K3 w - - 0 1", // Pawn on the last rank
+                "4k3/4R3/8/8/8/8/8/4K3 w - - 0 1", // Black is in check with White to move
+        };
+        for (String fen : fens) {
+            assertThrows(IllegalArgumentException.class, () -> new BitboardPosition().setFromFen(fen), fen);
+        }
+    }
+
+    @Test
+    void legalPositionsRoundTrip() {
+        String[] fens = {
+                BitboardPosition.START_FEN,
+                "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+                "4k3/8/8/8/8/8/4r3/4K3 w - - 0 1", // The side to move may be in check
+        };
+        for (String fen : fens) {
+            BitboardPosition position = new BitboardPosition();
+            position.setFromFen(fen);
+            assertEquals(fen, position.toFen());
+        }
+    }
+
+    @Test
+    void isLegalMoveAcceptsExactlyTheGeneratedMoves() {
+        String[] fens = {
+                BitboardPosition.START_FEN,
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                "8/8/8/2k5/3Pp3/8/8/4K2R b K d3 0 1", // En passant captures the checking pawn
+                "4k3/8/8/q1pP3K/8/8/8/8 w - c6 0 1", // En passant would expose the king
+        };
+        BitboardPosition position = new BitboardPosition();
+        MoveList moves = new MoveList();
+        for (String fen : fens) {
+            position.setFromFen(fen);
+            assertAgreesWithGenerator(position, moves);
+            position.generateLegalMoves(moves);
+            int[] children = new int[moves.size()];
+            for (int i = 0; i < children.length; i++) {
+                children[i] = moves.get(i);
+            }
+            for (int move : children) {
+                position.makeMove(move);
+                assertAgreesWithGenerator(position, moves);
+                position.unmakeMove();
+            }
+        }
+        position.generateLegalMoves(moves);
+        assertFalse(position.isLegalMove(0x10000 | moves.get(0)), "bits above the packed move");
+    }
+
+    // Every 16-bit value, so wrong flags, promotion pieces and off-pattern squares are all tried
+    private static void assertAgreesWithGenerator(BitboardPosition position, MoveList moves) {
+        position.generateLegalMoves(moves);
+        boolean[] legal = new boolean[1 << 16];
+        for (int i = 0; i < moves.size(); i++) {
+            legal[moves.get(i)] = true;
+        }
+        String fen = position.toFen();
+        for (int move = 0; move < legal.length; move++) {
+            if (position.isLegalMove(move) != legal[move]) {
+                throw new AssertionError("isLegalMove(" + BitboardPosition.moveToString(move) + ") in " + fen);
+            }
+        }
+        assertEquals(fen, position.toFen(), "isLegalMove changed the position");
+    }
+
+    private static BitboardPosition play(String... moves) {
+        BitboardPosition position = new BitboardPosition();
+        position.setFromFen(BitboardPosition.START_FEN);
+        for (String san : moves) {
+            position.makeMove(San.parse(position, san));
+        }
+        return position;
+    }
+}
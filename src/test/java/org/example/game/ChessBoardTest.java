@@ -0,0 +1,64 @@
+package org.example.game;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChessBoardTest {
+    @Test
+    void movePieceOnlyPlaysLegalMovesOfTheSideToMove() {
+        ChessBoard board = new ChessBoard();
+        board.setFromFen("4k3/4r3/8/8/8/8/4B3/4K3 w - - 0 1");
+        String fen = board.toFen();
+
+        assertFalse(board.movePiece(move("e2", "d3")), "the bishop is pinned");
+        assertFalse(board.movePiece(move("e7", "e6")), "it is not Black's turn");
+        assertFalse(board.movePiece(move("e1", "e3")), "not a king move");
+        assertEquals(fen, board.toFen());
+
+        assertTrue(board.movePiece(move("e1", "d1")));
+        assertEquals(BitboardPosition.BLACK, board.getBitboardPosition().getSideToMove());
+        board.unmakeMove();
+        assertEquals(fen, board.toFen());
+    }
+
+    @Test
+    void aPawnReachingTheLastRankBecomesAQueen() {
+        ChessBoard board = new ChessBoard();
+        board.setFromFen("4k3/P7/8/8/8/8/8/4K3 w - - 0 1");
+
+        assertTrue(board.movePiece(move("a7", "a8")));
+        assertInstanceOf(Queen.class, board.getPiece(Bitboards.square(7, 0)));
+        assertEquals("Q3k3/8/8/8/8/8/8/4K3 b - - 0 1", board.toFen());
+
+        board.unmakeMove();
+        assertInstanceOf(Pawn.class, board.getPiece(Bitboards.square(6, 0)));
+        assertEquals("4k3/P7/8/8/8/8/8/4K3 w - - 0 1", board.toFen());
+    }
+
+    @Test
+    void castlingAndEnPassantMoveBothPieces() {
+        ChessBoard board = new ChessBoard();
+        board.setFromFen("4k3/8/8/3pP3/8/8/8/4K2R w K d6 0 1");
+
+        assertTrue(board.movePiece(move("e5", "d6")));
+        assertNull(board.getPiece(Bitboards.square(4, 3)), "the captured pawn is gone");
+        board.unmakeMove();
+
+        assertTrue(board.movePiece(move("e1", "g1")));
+        assertInstanceOf(Rook.class, board.getPiece(Bitboards.square(0, 5)));
+        assertEquals("4k3/8/8/3pP3/8/8/8/5RK1 b - - 1 1", board.toFen());
+    }
+
+    private static Move move(String from, String to) {
+        return new Move(Position.of(square(from)), Position.of(square(to)));
+    }
+
+    private static int square(String name) {
+        return Bitboards.square(name.charAt(1) - '1', name.charAt(0) - 'a');
+    }
+}
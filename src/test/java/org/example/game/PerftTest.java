@@ -0,0 +1,35 @@
+package org.example.game;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The perft regression suite at depths that keep mvn test quick. Run Perft --suite 6 for the
+ * full counts.
+ */
+class PerftTest {
+    @Test
+    void referencePositionsMatchToDepth4() {
+        assertTrue(Perft.runSuite(4));
+    }
+
+    // Also checks Piece.isValidMove against every legal move on the way
+    @Test
+    void gameApiMatchesToDepth3() {
+        assertTrue(Perft.runSuite(3, true));
+    }
+
+    @Test
+    void takingMovesBackRestoresThePosition() {
+        BitboardPosition position = new BitboardPosition();
+        position.setFromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        String fen = position.toFen();
+        long key = position.getZobristKey();
+        assertEquals(4085603, position.perft(4));
+        assertEquals(fen, position.toFen());
+        assertEquals(key, position.getZobristKey());
+        assertEquals(position.computeZobristKey(), position.getZobristKey());
+    }
+}
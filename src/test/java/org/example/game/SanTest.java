@@ -0,0 +1,66 @@
+package org.example.game;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SanTest {
+    private static final String[] FENS = {
+            BitboardPosition.START_FEN,
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+    };
+
+    @Test
+    void everyLegalMoveSurvivesTheRoundTrip() {
+        MoveList moves = new MoveList();
+        MoveList replies = new MoveList();
+        BitboardPosition position = new BitboardPosition();
+        for (String fen : FENS) {
+            position.setFromFen(fen);
+            position.generateLegalMoves(moves);
+            for (int i = 0; i < moves.size(); i++) {
+                assertRoundTrip(position, moves.get(i));
+                position.makeMove(moves.get(i));
+                position.generateLegalMoves(replies);
+                for (int j = 0; j < replies.size(); j++) {
+                    assertRoundTrip(position, replies.get(j));
+                }
+                position.unmakeMove();
+            }
+        }
+    }
+
+    @Test
+    void movesAreWrittenInStandardNotation() {
+        assertEquals("Nf3", san(BitboardPosition.START_FEN, 6, 21));
+        assertEquals("O-O", san("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1", 4, 6));
+        assertEquals("O-O-O", san("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1", 4, 2));
+        assertEquals("Rad1", san("4k3/8/8/8/8/8/4K3/R6R w - - 0 1", 0, 3));
+        assertEquals("N1d2", san("4k3/8/8/8/8/1N6/8/1N2K3 w - - 0 1", 1, 11));
+        assertEquals("exd6", san("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1", 36, 43));
+        assertEquals("a8=Q+", san("4k3/P7/8/8/8/8/8/4K3 w - - 0 1", 48, 56));
+        assertEquals("Rh8#", san("k7/8/1K6/8/8/8/8/7R w - - 0 1", 7, 63));
+    }
+
+    private static void assertRoundTrip(BitboardPosition position, int move) {
+        String san = San.toSan(position, move);
+        assertEquals(move, San.parse(position, san), san + " in " + position.toFen());
+    }
+
+    private static String san(String fen, int from, int to) {
+        BitboardPosition position = new BitboardPosition();
+        position.setFromFen(fen);
+        MoveList moves = new MoveList();
+        position.generateLegalMoves(moves);
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (BitboardPosition.moveFrom(move) == from && BitboardPosition.moveTo(move) == to) {
+                return San.toSan(position, move); // Promotions are generated queen first
+            }
+        }
+        throw new AssertionError("no legal move " + from + "-" + to + " in " + fen);
+    }
+}
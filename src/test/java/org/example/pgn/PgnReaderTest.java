@@ -0,0 +1,102 @@
+package org.example.pgn;
+
+import org.example.game.BitboardPosition;
+import org.example.game.San;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PgnReaderTest {
+    private static final String GAMES = String.join("\n",
+            "[Event \"Casual\"]",
+            "[White \"Anderssen\"]",
+            "[Black \"Kieseritzky\"]",
+            "[Result \"1-0\"]",
+            "",
+            "1. e4 e5 2. f4 {King's Gambit} exf4 3. Bc4 Qh4+ $6 (3... d5 4. Bxd5) 4. Kf1 b5?!",
+            "; the Bryan Counter-Gambit",
+            "5. Bxb5 1-0",
+            "",
+            "[Event \"Illegal\"]",
+            "",
+            "1. e4 e5 2. Ke3 *",
+            "",
+            "[Event \"Endgame\"]",
+            "[SetUp \"1\"]",
+            "[FEN \"4k3/P7/8/8/8/8/8/4K3 w - - 0 1\"]",
+            "",
+            "1. a8=Q+ Kd7 1/2-1/2",
+            "");
+
+    @Test
+    void gamesAreReadWithTagsMovesAndResults() throws IOException {
+        try (PgnReader reader = new PgnReader(new StringReader(GAMES))) {
+            PgnGame game = new PgnGame();
+            assertTrue(reader.next(game));
+            assertEquals("Anderssen", game.getTag("White"));
+            assertEquals("1-0", game.getResult());
+            assertEquals(9, game.getMoveCount(), "comments, NAGs and variations are skipped");
+            assertEquals(after(BitboardPosition.START_FEN, "e4", "e5", "f4", "exf4", "Bc4", "Qh4+", "Kf1", "b5", "Bxb5"),
+                    replayed(game));
+
+            // A bad game names its first line and does not stop the reader
+            IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> reader.next(game));
+            assertTrue(error.getMessage().startsWith("Game at line 10:"), error.getMessage());
+
+            assertTrue(reader.next(game));
+            assertEquals("1/2-1/2", game.getResult());
+            assertEquals(2, game.getMoveCount());
+            assertEquals("Q7/3k4/8/8/8/8/8/4K3 w - - 1 2", replayed(game));
+            assertFalse(reader.next(game));
+        }
+    }
+
+    @Test
+    void writtenGamesReadBackUnchanged() throws IOException {
+        PgnGame game = new PgnGame();
+        try (PgnReader reader = new PgnReader(new StringReader(GAMES))) {
+            reader.next(game);
+        }
+        StringWriter text = new StringWriter();
+        try (PgnWriter writer = new PgnWriter(text)) {
+            writer.write(game);
+        }
+
+        PgnGame copy = new PgnGame();
+        try (PgnReader reader = new PgnReader(new StringReader(text.toString()))) {
+            assertTrue(reader.next(copy));
+        }
+        for (Map.Entry<String, String> tag : game.getTags().entrySet()) {
+            assertEquals(tag.getValue(), copy.getTag(tag.getKey()));
+        }
+        assertEquals("?", copy.getTag("Site"), "the seven tag roster is filled in");
+        assertEquals(game.getResult(), copy.getResult());
+        assertEquals(game.getMoveCount(), copy.getMoveCount());
+        for (int ply = 0; ply < game.getMoveCount(); ply++) {
+            assertEquals(game.getMove(ply), copy.getMove(ply));
+        }
+    }
+
+    private static String replayed(PgnGame game) {
+        BitboardPosition position = new BitboardPosition();
+        game.replay(position);
+        return position.toFen();
+    }
+
+    private static String after(String fen, String... moves) {
+        BitboardPosition position = new BitboardPosition();
+        position.setFromFen(fen);
+        for (String san : moves) {
+            position.makeMove(San.parse(position, san));
+        }
+        return position.toFen();
+    }
+}
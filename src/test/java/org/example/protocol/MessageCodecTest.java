@@ -0,0 +1,78 @@
+package org.example.protocol;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MessageCodecTest {
+    @Test
+    void everyMessageTypeRoundTrips() throws ProtocolException {
+        Message[] messages = {
+                Message.move(0xABCD), Message.reject(0x1234), Message.ping(Long.MIN_VALUE + 7),
+                Message.pong(42L), Message.gameStart(1, 0x7FFF0001), Message.RESIGN, Message.DRAW_OFFER,
+                Message.RESET,
+        };
+        ByteBuffer buffer = ByteBuffer.allocate(messages.length * MessageCodec.MAX_FRAME_BYTES);
+        for (Message message : messages) {
+            MessageCodec.encode(message, buffer);
+        }
+        buffer.flip();
+        for (Message message : messages) {
+            int start = buffer.position();
+            Message decoded = MessageCodec.decode(buffer);
+            assertEquals(message.getType(), decoded.getType());
+            assertEquals(message.getMove(), decoded.getMove());
+            assertEquals(message.getTimestamp(), decoded.getTimestamp());
+            assertEquals(message.getColor(), decoded.getColor());
+            assertEquals(message.getGameId(), decoded.getGameId());
+            assertEquals(MessageCodec.frameSize(message), buffer.position() - start);
+        }
+        assertNull(MessageCodec.decode(buffer));
+    }
+
+    @Test
+    void aTruncatedFrameWaitsForTheRestOfItsBytes() throws ProtocolException {
+        ByteBuffer frame = ByteBuffer.allocate(MessageCodec.MAX_FRAME_BYTES);
+        MessageCodec.encode(Message.ping(99L), frame);
+        frame.flip();
+
+        ByteBuffer in = ByteBuffer.allocate(MessageCodec.MAX_FRAME_BYTES);
+        while (frame.remaining() > 1) {
+            in.put(frame.get());
+            in.flip();
+            assertNull(MessageCodec.decode(in));
+            assertEquals(0, in.position(), "nothing is consumed from a partial frame");
+            in.compact();
+        }
+        in.put(frame.get());
+        in.flip();
+        assertEquals(99L, MessageCodec.decode(in).getTimestamp());
+        assertEquals(0, in.remaining());
+    }
+
+    @Test
+    void malformedFramesAreRejected() {
+        // An oversized length is refused from its two bytes alone, before any body arrives
+        assertRejected(0xFFFF);
+        assertRejected(MessageCodec.MAX_FRAME_BYTES - MessageCodec.LENGTH_BYTES + 1);
+        assertRejected(1); // Too short for version and type
+        assertRejected(4, MessageCodec.PROTOCOL_VERSION, MessageType.RESIGN.getCode(), 0, 0); // Length of another type
+        assertRejected(2, MessageCodec.PROTOCOL_VERSION, MessageType.MOVE.getCode()); // Move without its payload
+        assertRejected(2, MessageCodec.PROTOCOL_VERSION + 1, MessageType.RESIGN.getCode());
+        assertRejected(2, MessageCodec.PROTOCOL_VERSION, 0xFF);
+    }
+
+    private static void assertRejected(int length, int... body) {
+        ByteBuffer in = ByteBuffer.allocate(MessageCodec.LENGTH_BYTES + body.length);
+        in.putShort((short) length);
+        for (int b : body) {
+            in.put((byte) b);
+        }
+        in.flip();
+        assertThrows(ProtocolException.class, () -> MessageCodec.decode(in), "length " + length);
+    }
+}
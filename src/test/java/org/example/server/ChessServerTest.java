@@ -0,0 +1,100 @@
+package org.example.server;
+
+import org.example.game.BitboardPosition;
+import org.example.protocol.Message;
+import org.example.protocol.MessageReader;
+import org.example.protocol.MessageType;
+import org.example.protocol.MessageWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class ChessServerTest {
+    private static final int E2E4 = BitboardPosition.encodeMove(12, 28, BitboardPosition.DOUBLE_PAWN_PUSH);
+
+    @Test
+    void resigningEndsTheGameAndPairsThePlayersAgain() throws Exception {
+        try (ChessServer server = new ChessServer()) {
+            server.start(0);
+            try (Client first = new Client(server.getPort()); Client second = new Client(server.getPort())) {
+                // Handlers race to matchmaking, so either connection may get White
+                Client[] players = seat(first, second);
+                Client white = players[BitboardPosition.WHITE];
+                Client black = players[BitboardPosition.BLACK];
+                int gameId = white.gameId;
+
+                white.writer.send(Message.move(E2E4));
+                assertEquals(MessageType.MOVE, black.read().getType());
+                white.writer.send(Message.RESIGN);
+                assertEquals(MessageType.RESIGN, black.read().getType());
+
+                // Both are seated again in a new game, where the opening move is legal once more
+                players = seat(first, second);
+                assertNotEquals(gameId, players[BitboardPosition.WHITE].gameId);
+                players[BitboardPosition.WHITE].writer.send(Message.move(E2E4));
+                assertEquals(MessageType.MOVE, players[BitboardPosition.BLACK].read().getType());
+            }
+        }
+    }
+
+    @Test
+    void theOpponentOfALeavingPlayerIsToldAndWaitsForTheNextGame() throws Exception {
+        try (ChessServer server = new ChessServer()) {
+            server.start(0);
+            try (Client stays = new Client(server.getPort())) {
+                try (Client leaves = new Client(server.getPort())) {
+                    assertEquals(MessageType.GAME_START, stays.read().getType());
+                    assertEquals(MessageType.GAME_START, leaves.read().getType());
+                }
+                assertEquals(MessageType.RESIGN, stays.read().getType());
+                try (Client next = new Client(server.getPort())) {
+                    assertEquals(MessageType.GAME_START, stays.read().getType());
+                    assertEquals(MessageType.GAME_START, next.read().getType());
+                }
+            }
+        }
+    }
+
+    // Reads each player's GAME_START and returns the players indexed by colour
+    private static Client[] seat(Client first, Client second) throws IOException {
+        Client[] players = new Client[2];
+        for (Client client : new Client[] { first, second }) {
+            Message start = client.read();
+            assertEquals(MessageType.GAME_START, start.getType());
+            client.gameId = start.getGameId();
+            players[start.getColor()] = client;
+        }
+        assertNotNull(players[BitboardPosition.WHITE]);
+        assertNotNull(players[BitboardPosition.BLACK]);
+        return players;
+    }
+
+    private static final class Client implements AutoCloseable {
+        private final Socket socket = new Socket();
+        private final MessageWriter writer;
+        private final MessageReader reader;
+        private int gameId;
+
+        Client(int port) throws IOException {
+            socket.connect(new InetSocketAddress("127.0.0.1", port));
+            socket.setSoTimeout(5000);
+            writer = new MessageWriter(socket.getOutputStream());
+            reader = new MessageReader(socket.getInputStream());
+        }
+
+        Message read() throws IOException {
+            return reader.read();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.server;
+
+import org.example.game.BitboardPosition;
+import org.example.pgn.PgnGame;
+import org.example.protocol.Message;
+import org.example.protocol.MessageCodec;
+import org.example.protocol.MessageType;
+import org.example.store.GameStore;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameServerTest {
+    @Test
+    void resignedGamesReachTheArchive() throws Exception {
+        Path directory = Files.createTempDirectory("game-server-test");
+        try (GameStore store = GameStore.open(directory)) {
+            GameServer server = new GameServer(0);
+            server.setArchive(store);
+            Thread selectorThread = new Thread(server, "GameServerSelector");
+            selectorThread.start();
+            try (Client white = new Client(server.getPort()); Client black = new Client(server.getPort())) {
+                assertEquals(MessageType.GAME_START, white.read().getType());
+                assertEquals(MessageType.GAME_START, black.read().getType());
+                white.send(Message.move(BitboardPosition.encodeMove(12, 28, BitboardPosition.DOUBLE_PAWN_PUSH)));
+                assertEquals(MessageType.MOVE, black.read().getType());
+                white.send(Message.RESIGN);
+                assertEquals(MessageType.RESIGN, black.read().getType());
+            } finally {
+                server.stop();
+                selectorThread.join();
+            }
+            assertEquals(1, server.getArchivedGames());
+            assertEquals(0, server.getDroppedArchives());
+            assertEquals(1, store.getGameCount());
+            BitboardPosition start = new BitboardPosition();
+            start.setFromFen(BitboardPosition.START_FEN);
+            PgnGame game = new PgnGame();
+            assertTrue(store.read(store.findGames(start, 1)[0], game));
+            assertEquals("0-1", game.getResult());
+            assertEquals(1, game.getMoveCount());
+        }
+    }
+
+    private static final class Client implements AutoCloseable {
+        private final SocketChannel channel;
+        private final ByteBuffer in = ByteBuffer.allocate(512);
+
+        Client(int port) throws IOException {
+            channel = SocketChannel.open(new InetSocketAddress("127.0.0.1", port));
+        }
+
+        void send(Message message) throws IOException {
+            ByteBuffer out = ByteBuffer.allocate(MessageCodec.MAX_FRAME_BYTES);
+            MessageCodec.encode(message, out);
+            out.flip();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+        }
+
+        Message read() throws IOException {
+            while (true) {
+                in.flip();
+                Message message = MessageCodec.decode(in);
+                in.compact();
+                if (message != null) {
+                    return message;
+                }
+                if (channel.read(in) < 0) {
+                    throw new IOException("server closed the connection");
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.store;
+
+import org.example.game.BitboardPosition;
+import org.example.game.San;
+import org.example.pgn.PgnGame;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameStoreTest {
+    @Test
+    void findGamesListsTheGamesThroughAPositionNewestFirst() throws IOException {
+        try (GameStore store = GameStore.open(Files.createTempDirectory("game-store-test"))) {
+            long italian = store.append(game("1-0", "e4", "e5", "Nf3", "Nc6", "Bc4"));
+            long queensGambit = store.append(game("1/2-1/2", "d4", "d5", "c4"));
+            long ruyLopez = store.append(game("0-1", "e4", "e5", "Nf3", "Nc6", "Bb5"));
+
+            assertArrayEquals(new long[] { ruyLopez, queensGambit, italian }, store.findGames(position(), 10));
+            assertArrayEquals(new long[] { ruyLopez, italian }, store.findGames(position("e4", "e5", "Nf3", "Nc6"), 10));
+            assertArrayEquals(new long[] { ruyLopez }, store.findGames(position("e4", "e5", "Nf3", "Nc6"), 1));
+            assertArrayEquals(new long[] { queensGambit }, store.findGames(position("d4", "d5", "c4"), 10));
+            assertArrayEquals(new long[0], store.findGames(position("c4"), 10));
+
+            PgnGame read = new PgnGame();
+            assertTrue(store.read(queensGambit, read));
+            assertEquals("1/2-1/2", read.getResult());
+            assertEquals("Test", read.getTag("Event"));
+            assertEquals(3, read.getMoveCount());
+            assertFalse(store.read(3L << 28, read), "a segment that does not exist");
+        }
+    }
+
+    @Test
+    void reopeningKeepsEveryCommittedGame() throws IOException {
+        Path directory = Files.createTempDirectory("game-store-test");
+        long first;
+        long second;
+        try (GameStore store = GameStore.open(directory)) {
+            first = store.append(game("1-0", "e4", "e5"));
+            second = store.append(game("0-1", "d4", "Nf6"));
+        }
+        // As if the process died after committing the second record but before updating the
+        // segment header, with a third record half written behind it
+        long torn = second + (second - first);
+        try (FileChannel segment = FileChannel.open(directory.resolve("games-00000.seg"), StandardOpenOption.WRITE)) {
+            segment.write(ByteBuffer.allocate(4).putInt(0, 1), 4);
+            segment.write(ByteBuffer.allocate(8).putLong(0, second), 8);
+            segment.write(ByteBuffer.allocate(8).putLong(0, -1L), torn + 4);
+        }
+
+        try (GameStore store = GameStore.open(directory)) {
+            assertEquals(2, store.getGameCount());
+            PgnGame game = new PgnGame();
+            assertTrue(store.read(second, game));
+            assertEquals("0-1", game.getResult());
+            assertEquals(2, game.getMoveCount());
+            assertFalse(store.read(torn, game), "the record without a length was never committed");
+
+            // The next game goes after the last committed one, over the torn bytes
+            assertEquals(torn, store.append(game("1/2-1/2", "c4")));
+            assertEquals(3, store.getGameCount());
+            assertArrayEquals(new long[] { torn }, store.findGames(position("c4"), 10));
+        }
+        try (GameStore store = GameStore.open(directory)) {
+            assertEquals(3, store.getGameCount());
+        }
+    }
+
+    private static PgnGame game(String result, String... moves) {
+        PgnGame game = new PgnGame();
+        game.setTag("Event", "Test");
+        game.setResult(result);
+        BitboardPosition position = new BitboardPosition();
+        game.setUp(position);
+        for (String san : moves) {
+            int move = San.parse(position, san);
+            game.addMove(move);
+            position.makeMove(move);
+        }
+        return game;
+    }
+
+    private static BitboardPosition position(String... moves) {
+        BitboardPosition position = new BitboardPosition();
+        position.setFromFen(BitboardPosition.START_FEN);
+        for (String san : moves) {
+            position.makeMove(San.parse(position, san));
+        }
+        return position;
+    }
+}
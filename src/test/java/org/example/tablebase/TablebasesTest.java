@@ -0,0 +1,91 @@
+package org.example.tablebase;
+
+import org.example.game.BitboardPosition;
+import org.example.game.San;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TablebasesTest {
+    private static Tablebases tablebases;
+
+    // KPvK also builds the KQvK and KRvK tables it promotes into, in a few seconds
+    @BeforeAll
+    static void generate() throws IOException {
+        Path directory = Files.createTempDirectory("tablebases-test");
+        try (TablebaseGenerator generator = new TablebaseGenerator(directory)) {
+            generator.generate(Material.of("KPvK"));
+        }
+        tablebases = Tablebases.open(directory, 4);
+    }
+
+    @AfterAll
+    static void close() throws IOException {
+        tablebases.close();
+    }
+
+    @Test
+    void queenAndRookEndingsAreWonWithTheirDistanceToMate() {
+        assertWin(1, "k7/8/1K6/8/8/8/7Q/8 w - - 0 1");
+        assertLoss(0, "k7/1Q6/1K6/8/8/8/8/8 b - - 0 1");
+        assertWin(1, "k7/8/1K6/8/8/8/8/7R w - - 0 1");
+        BitboardPosition rook = position("k7/8/1K6/8/8/8/8/7R w - - 0 1");
+        assertEquals("Rh8#", San.toSan(rook, tablebases.bestMove(rook)));
+
+        // The longest KQvK and KRvK wins take 10 and 16 moves
+        assertWithin(19, "8/8/8/3k4/8/8/8/K5Q1 w - - 0 1");
+        assertWithin(31, "8/8/8/3k4/8/8/8/K6R w - - 0 1");
+    }
+
+    @Test
+    void drawsAreDraws() {
+        assertEquals(Tablebases.DRAW, probe("k7/8/1Q6/8/8/8/8/7K b - - 0 1"), "stalemate");
+        assertEquals(Tablebases.DRAW, probe("k7/1R6/8/8/8/8/8/7K b - - 0 1"), "the rook hangs");
+        assertEquals(Tablebases.DRAW, probe("k7/8/8/8/8/8/P7/K7 w - - 0 1"), "rook pawn against the corner");
+    }
+
+    @Test
+    void pawnEndingsFollowTheOpposition() {
+        // With the king on the sixth in front of its pawn, White wins whoever moves
+        assertTrue(Tablebases.isWin(probe("4k3/8/4K3/4P3/8/8/8/8 w - - 0 1")));
+        assertTrue(Tablebases.isLoss(probe("4k3/8/4K3/4P3/8/8/8/8 b - - 0 1")));
+        // Behind its pawn the king only wins with the opposition
+        assertTrue(Tablebases.isLoss(probe("8/4k3/8/4K3/4P3/8/8/8 b - - 0 1")));
+        assertEquals(Tablebases.DRAW, probe("8/4k3/8/4K3/4P3/8/8/8 w - - 0 1"));
+        assertEquals(Tablebases.NOT_FOUND, probe("4k3/8/8/8/8/8/3PP3/4K3 w - - 0 1"), "no KPPvK table");
+    }
+
+    private static void assertWin(int plies, String fen) {
+        int value = probe(fen);
+        assertTrue(Tablebases.isWin(value), fen);
+        assertEquals(plies, Tablebases.pliesToMate(value), fen);
+    }
+
+    private static void assertWithin(int plies, String fen) {
+        int value = probe(fen);
+        assertTrue(Tablebases.isWin(value) && Tablebases.pliesToMate(value) <= plies, fen);
+    }
+
+    private static void assertLoss(int plies, String fen) {
+        int value = probe(fen);
+        assertTrue(Tablebases.isLoss(value), fen);
+        assertEquals(plies, Tablebases.pliesToMate(value), fen);
+    }
+
+    private static int probe(String fen) {
+        return tablebases.probe(position(fen));
+    }
+
+    private static BitboardPosition position(String fen) {
+        BitboardPosition position = new BitboardPosition();
+        position.setFromFen(fen);
+        return position;
+    }
+}